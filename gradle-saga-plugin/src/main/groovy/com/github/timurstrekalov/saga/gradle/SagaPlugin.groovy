@@ -17,6 +17,11 @@ class SagaPlugin implements Plugin<Project> {
 
             CoverageGeneratorFactory.newInstance(cfg).instrumentAndGenerateReports()
         }
+        project.task('coverageReports') << {
+            final InstanceFieldPerPropertyConfig cfg = (InstanceFieldPerPropertyConfig) project[PLUGIN_NAME]
+
+            CoverageGeneratorFactory.newInstance(cfg).generateReports()
+        }
     }
 
 }
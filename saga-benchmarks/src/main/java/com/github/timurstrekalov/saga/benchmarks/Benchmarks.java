@@ -0,0 +1,29 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, built with <code>mvn install -Pbenchmarks</code>, with the usual JMH command line options, always
+ * reporting allocation rates along with throughput,
+ * e.g. <code>java -jar saga-benchmarks-&lt;version&gt;-jar-with-dependencies.jar Instrumenter -rf json</code>.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
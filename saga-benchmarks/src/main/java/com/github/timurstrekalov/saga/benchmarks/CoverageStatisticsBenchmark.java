@@ -0,0 +1,96 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turning the coverage data of a script into statistics and adding them up, as done after every test.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CoverageStatisticsBenchmark {
+
+    private static final URI BASE_URI = URI.create("http://localhost/");
+
+    @Param({ SyntheticScripts.APP, SyntheticScripts.LIBRARY })
+    public String script;
+
+    /**
+     * The number of files covered by a test, each of them the size of {@link #script}.
+     */
+    @Param({ "10", "500" })
+    public int fileCount;
+
+    private ScriptData scriptData;
+    private int[] coverageData;
+
+    private ScriptCoverageStatistics stats;
+    private List<ScriptCoverageStatistics> testRunStats;
+
+    @Setup
+    public void setUp() {
+        final String source = SyntheticScripts.preset(script);
+        final URI fileUri = BASE_URI.resolve(script + ".js");
+
+        scriptData = SyntheticScripts.instrument(fileUri, source);
+        coverageData = SyntheticScripts.coverageData(scriptData);
+        stats = scriptData.generateScriptCoverageStatistics(BASE_URI, coverageData);
+
+        testRunStats = Lists.newArrayListWithCapacity(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            final ScriptData data = SyntheticScripts.instrument(BASE_URI.resolve("pkg" + i % 10 + "/" + script + i + ".js"), source);
+            testRunStats.add(data.generateScriptCoverageStatistics(BASE_URI, SyntheticScripts.coverageData(data)));
+        }
+    }
+
+    @Benchmark
+    public ScriptCoverageStatistics generateScriptCoverageStatistics() {
+        return scriptData.generateScriptCoverageStatistics(BASE_URI, coverageData);
+    }
+
+    @Benchmark
+    public ScriptCoverageStatistics merge() {
+        return ScriptCoverageStatistics.merge(stats, stats);
+    }
+
+    /**
+     * Adds the statistics of two tests that covered the same files to the total, so that the second test's statistics
+     * get merged into the first one's.
+     */
+    @Benchmark
+    public TestRunCoverageStatistics addToTotal() {
+        final TestRunCoverageStatistics totalStats = TestRunCoverageStatistics.newThreadSafeInstance(BASE_URI.resolve("total"), "Total");
+
+        for (final ScriptCoverageStatistics fileStats : testRunStats) {
+            totalStats.add(fileStats);
+        }
+
+        for (final ScriptCoverageStatistics fileStats : testRunStats) {
+            totalStats.add(fileStats);
+        }
+
+        return totalStats;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitBasedScriptInstrumenter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and instrumenting a script, bypassing the instrumentation cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InstrumenterBenchmark {
+
+    @Param({ SyntheticScripts.APP, SyntheticScripts.LIBRARY, SyntheticScripts.BUNDLE })
+    public String script;
+
+    private String source;
+    private String sourceName;
+    private Config config;
+
+    @Setup
+    public void setUp() {
+        source = SyntheticScripts.preset(script);
+        sourceName = "http://localhost/" + script + ".js";
+
+        config = new InstanceFieldPerPropertyConfig();
+        config.setCacheInstrumentedCode(false);
+    }
+
+    @Benchmark
+    public String instrument() {
+        return new HtmlUnitBasedScriptInstrumenter(config).instrument(source, sourceName, 1);
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import com.github.timurstrekalov.saga.core.Order;
+import com.github.timurstrekalov.saga.core.ReportFormat;
+import com.github.timurstrekalov.saga.core.SortBy;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.github.timurstrekalov.saga.core.reporter.Reporter;
+import com.github.timurstrekalov.saga.core.reporter.ReporterFactory;
+import com.google.common.io.Files;
+import org.codehaus.plexus.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing the total report of a test run in each format.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReporterBenchmark {
+
+    private static final URI BASE_URI = URI.create("http://localhost/");
+
+    @Param({ "HTML", "RAW", "CSV", "PDF", "COBERTURA", "HTML_PER_FILE", "BINARY" })
+    public ReportFormat reportFormat;
+
+    @Param({ "100" })
+    public int fileCount;
+
+    private Reporter reporter;
+    private TestRunCoverageStatistics runStats;
+    private File outputDir;
+
+    @Setup
+    public void setUp() {
+        reporter = ReporterFactory.reporterFor(reportFormat);
+
+        runStats = new TestRunCoverageStatistics(BASE_URI.resolve("total"), "Total");
+        runStats.setSortBy(SortBy.COVERAGE);
+        runStats.setOrder(Order.DESC);
+
+        final String source = SyntheticScripts.readable(50);
+        for (int i = 0; i < fileCount; i++) {
+            runStats.add(SyntheticScripts.coverage(BASE_URI, BASE_URI.resolve("pkg" + i % 10 + "/file" + i + ".js"), source));
+        }
+
+        outputDir = Files.createTempDir();
+    }
+
+    /**
+     * HTML_PER_FILE only rewrites the files that changed, so start from scratch every time to measure a full write.
+     */
+    @Setup(Level.Invocation)
+    public void cleanOutputDir() throws IOException {
+        FileUtils.cleanDirectory(outputDir);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(outputDir);
+    }
+
+    @Benchmark
+    public void writeReport() throws IOException {
+        reporter.writeReport(BASE_URI, outputDir, runStats);
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.github.timurstrekalov.saga.core.metrics.MetricsWriter;
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+/**
+ * Runs Saga end to end against a generated project (see {@link SyntheticProject}) once for each of the given thread
+ * counts, and reports the wall time, the peak heap usage and the time spent in each phase of every run. The JMH
+ * benchmarks cover the individual hot paths, this one shows how they add up and how well the whole thing scales with
+ * the number of threads.
+ * <p/>
+ * Every run happens in a JVM of its own, started with the same JVM arguments as this one, e.g.
+ * <code>java -Xmx2g -cp saga-benchmarks-&lt;version&gt;-jar-with-dependencies.jar
+ * com.github.timurstrekalov.saga.benchmarks.ScaleBenchmark --sources 500 --tests 200 --thread-counts 1,2,4,8</code>.
+ * The summary is also written to <code>scale-benchmark.csv</code> in the work directory.
+ */
+public final class ScaleBenchmark {
+
+    private static final String SUMMARY_FILE_NAME = "scale-benchmark.csv";
+
+    private static final Pattern PHASE_SECONDS = Pattern.compile("^saga_phase_seconds_total\\{phase=\"(.+)\"\\} (\\S+)$",
+            Pattern.MULTILINE);
+
+    private ScaleBenchmark() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void main(final String[] args) throws Exception {
+        final Option sourcesOpt = new Option(null, "sources", true, "The number of source files to generate (default is 200)");
+        final Option sourceFunctionsOpt = new Option(null, "source-functions", true,
+                "The number of functions in each source file, about 400 bytes each (default is 20)");
+        final Option testsOpt = new Option(null, "tests", true, "The number of test pages to generate (default is 100)");
+        final Option sourcesPerTestOpt = new Option(null, "sources-per-test", true,
+                "The number of source files each test page loads (default is 5)");
+        final Option threadCountsOpt = new Option(null, "thread-counts", true,
+                "A comma-separated list of the thread counts to run with (default is 1,2,4)");
+        final Option reportFormatsOpt = new Option(null, "report-formats", true,
+                "A comma-separated list of the formats of the reports to generate (default is HTML)");
+        final Option workDirOpt = new Option(null, "work-dir", true,
+                "The directory to generate the project and write the reports into (default is target/scale-benchmark)");
+        final Option helpOpt = new Option("h", "help", false, "Print this message");
+
+        final Options options = new Options();
+        options.addOption(sourcesOpt);
+        options.addOption(sourceFunctionsOpt);
+        options.addOption(testsOpt);
+        options.addOption(sourcesPerTestOpt);
+        options.addOption(threadCountsOpt);
+        options.addOption(reportFormatsOpt);
+        options.addOption(workDirOpt);
+        options.addOption(helpOpt);
+
+        final CommandLine line;
+        try {
+            line = new GnuParser().parse(options, args);
+        } catch (final ParseException e) {
+            System.err.println(e.getMessage());
+            printHelpAndExit(options);
+            return;
+        }
+
+        if (line.hasOption(helpOpt.getLongOpt())) {
+            printHelpAndExit(options);
+        }
+
+        final File workDir = new File(line.getOptionValue(workDirOpt.getLongOpt(), "target/scale-benchmark")).getAbsoluteFile();
+        final File projectDir = new File(workDir, "project");
+        final String reportFormats = line.getOptionValue(reportFormatsOpt.getLongOpt(), "HTML");
+
+        final List<Integer> threadCounts = Lists.newArrayList();
+        for (final String threadCount : Splitter.on(',').trimResults().omitEmptyStrings()
+                .split(line.getOptionValue(threadCountsOpt.getLongOpt(), "1,2,4"))) {
+            threadCounts.add(Integer.parseInt(threadCount));
+        }
+
+        final SyntheticProject project = new SyntheticProject(
+                Integer.parseInt(line.getOptionValue(sourcesOpt.getLongOpt(), "200")),
+                Integer.parseInt(line.getOptionValue(sourceFunctionsOpt.getLongOpt(), "20")),
+                Integer.parseInt(line.getOptionValue(testsOpt.getLongOpt(), "100")),
+                Integer.parseInt(line.getOptionValue(sourcesPerTestOpt.getLongOpt(), "5")));
+
+        System.out.println("Generating the project in " + projectDir);
+        project.generate(projectDir);
+
+        final List<Result> results = Lists.newArrayList();
+        final SortedSet<String> phases = Sets.newTreeSet();
+
+        for (final Integer threadCount : threadCounts) {
+            final File outputDir = new File(workDir, "threads-" + threadCount);
+
+            System.out.println("Running with " + threadCount + " thread(s)");
+            run(projectDir, outputDir, threadCount, reportFormats);
+
+            final Result result = Result.read(threadCount, outputDir);
+            phases.addAll(result.phaseSeconds.keySet());
+            results.add(result);
+        }
+
+        final String summary = toCsv(results, phases);
+        Files.write(summary, new File(workDir, SUMMARY_FILE_NAME), Charsets.UTF_8);
+
+        System.out.println();
+        System.out.print(summary.replace(',', '\t'));
+    }
+
+    private static void run(final File projectDir, final File outputDir, final int threadCount, final String reportFormats)
+            throws IOException, InterruptedException {
+        final List<String> command = Lists.newArrayList();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScaleBenchmarkRun.class.getName());
+        command.add(projectDir.getPath());
+        command.add(outputDir.getPath());
+        command.add(String.valueOf(threadCount));
+        command.add(reportFormats);
+
+        final Process process = new ProcessBuilder(command).inheritIO().start();
+        final int exitCode = process.waitFor();
+
+        if (exitCode != 0) {
+            throw new IllegalStateException("The run with " + threadCount + " thread(s) failed with exit code " + exitCode);
+        }
+    }
+
+    private static String toCsv(final List<Result> results, final SortedSet<String> phases) {
+        final StringBuilder csv = new StringBuilder("threads,wall_seconds,peak_heap_mb");
+        for (final String phase : phases) {
+            csv.append(',').append(phase).append("_seconds");
+        }
+        csv.append('\n');
+
+        for (final Result result : results) {
+            final List<String> row = Lists.newArrayList(
+                    String.valueOf(result.threadCount),
+                    String.format(Locale.ENGLISH, "%.3f", result.wallMillis / 1e3),
+                    String.format(Locale.ENGLISH, "%.1f", result.peakHeapBytes / (1024.0 * 1024.0)));
+
+            for (final String phase : phases) {
+                final Double seconds = result.phaseSeconds.get(phase);
+                row.add(String.format(Locale.ENGLISH, "%.3f", seconds != null ? seconds : 0.0));
+            }
+
+            csv.append(Joiner.on(',').join(row)).append('\n');
+        }
+
+        return csv.toString();
+    }
+
+    private static void printHelpAndExit(final Options options) {
+        new HelpFormatter().printHelp("java -cp saga-benchmarks.jar " + ScaleBenchmark.class.getName(), options);
+        System.exit(1);
+    }
+
+    private static final class Result {
+
+        private final int threadCount;
+        private final long wallMillis;
+        private final long peakHeapBytes;
+
+        /**
+         * Summed over all the threads, so it goes up along with the thread count as long as there's contention.
+         */
+        private final Map<String, Double> phaseSeconds;
+
+        private Result(final int threadCount, final long wallMillis, final long peakHeapBytes,
+                final Map<String, Double> phaseSeconds) {
+            this.threadCount = threadCount;
+            this.wallMillis = wallMillis;
+            this.peakHeapBytes = peakHeapBytes;
+            this.phaseSeconds = phaseSeconds;
+        }
+
+        static Result read(final int threadCount, final File outputDir) throws IOException {
+            final Properties properties = new Properties();
+            final InputStream in = Files.newInputStreamSupplier(new File(outputDir, ScaleBenchmarkRun.RESULT_FILE_NAME)).getInput();
+            try {
+                properties.load(in);
+            } finally {
+                Closeables.close(in, true);
+            }
+
+            final Map<String, Double> phaseSeconds = Maps.newHashMap();
+            final String prometheus = Files.toString(new File(outputDir, MetricsWriter.PROMETHEUS_FILE_NAME), Charsets.UTF_8);
+
+            final Matcher matcher = PHASE_SECONDS.matcher(prometheus);
+            while (matcher.find()) {
+                phaseSeconds.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+            }
+
+            return new Result(threadCount,
+                    Long.parseLong(properties.getProperty(ScaleBenchmarkRun.WALL_MILLIS)),
+                    Long.parseLong(properties.getProperty(ScaleBenchmarkRun.PEAK_HEAP_BYTES)),
+                    phaseSeconds);
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Properties;
+
+import com.github.timurstrekalov.saga.core.CoverageGeneratorFactory;
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.google.common.io.Closeables;
+
+/**
+ * A single run of {@link ScaleBenchmark}, in a JVM of its own, so that neither the instrumentation cache nor the peak
+ * heap usage carry over from one run to the next.
+ * <p/>
+ * Arguments: the project directory, the output directory, the thread count and the report formats.
+ */
+public final class ScaleBenchmarkRun {
+
+    static final String RESULT_FILE_NAME = "scale-benchmark.properties";
+    static final String WALL_MILLIS = "wallMillis";
+    static final String PEAK_HEAP_BYTES = "peakHeapBytes";
+
+    private ScaleBenchmarkRun() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final File projectDir = new File(args[0]);
+        final File outputDir = new File(args[1]);
+
+        final Config config = new InstanceFieldPerPropertyConfig();
+        config.setBaseDir(projectDir.getAbsolutePath());
+        config.setOutputDir(outputDir);
+        config.setIncludes(SyntheticProject.TEST_INCLUDES);
+        config.setNoInstrumentPatterns(new String[] { SyntheticProject.LIB_NO_INSTRUMENT_PATTERN });
+        config.setThreadCount(Integer.parseInt(args[2]));
+        config.setReportFormats(args[3]);
+
+        resetPeakHeapUsage();
+
+        final long started = System.nanoTime();
+        CoverageGeneratorFactory.newInstance(config).instrumentAndGenerateReports();
+        final long wallMillis = (System.nanoTime() - started) / 1000000;
+
+        final Properties result = new Properties();
+        result.setProperty(WALL_MILLIS, String.valueOf(wallMillis));
+        result.setProperty(PEAK_HEAP_BYTES, String.valueOf(getPeakHeapUsage()));
+
+        final OutputStream out = new FileOutputStream(new File(outputDir, RESULT_FILE_NAME));
+        try {
+            result.store(out, null);
+        } finally {
+            Closeables.close(out, false);
+        }
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * The pools peak at different times, so the sum is an upper bound of the actual peak, but it's the usual figure to
+     * compare runs by.
+     */
+    private static long getPeakHeapUsage() {
+        long peak = 0;
+
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        return peak;
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.io.Files;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Generates a JavaScript project with tests, laid out like the usual Jasmine project:
+ * <pre>
+ * lib/spec.js                            a tiny stand-in for Jasmine (describe, it and expect)
+ * src/pkg&lt;n&gt;/Module&lt;i&gt;.js             the sources
+ * test/pkg&lt;n&gt;/Module&lt;i&gt;Test.html       the test pages, each loading a few of the sources and its spec
+ * test/pkg&lt;n&gt;/Module&lt;i&gt;Test.js
+ * </pre>
+ * Every test exercises a handful of the functions of each source it loads, so the coverage ends up partial, as usual.
+ * The same parameters always produce the same project.
+ */
+public final class SyntheticProject {
+
+    public static final String TEST_INCLUDES = "test/**/*Test.html";
+    public static final String LIB_NO_INSTRUMENT_PATTERN = ".*/lib/.*";
+
+    private static final int FILES_PER_PACKAGE = 20;
+    private static final int FUNCTIONS_CALLED_PER_SOURCE = 5;
+
+    private static final String SPEC_LIBRARY = ""
+            + "var specResults = { passed: 0, failed: 0 };\n"
+            + "function describe(name, fn) {\n"
+            + "    fn();\n"
+            + "}\n"
+            + "function it(name, fn) {\n"
+            + "    try {\n"
+            + "        fn();\n"
+            + "        specResults.passed++;\n"
+            + "    } catch (e) {\n"
+            + "        specResults.failed++;\n"
+            + "    }\n"
+            + "}\n"
+            + "function expect(actual) {\n"
+            + "    return {\n"
+            + "        toBe: function (expected) {\n"
+            + "            if (actual !== expected) {\n"
+            + "                throw new Error('Expected ' + actual + ' to be ' + expected);\n"
+            + "            }\n"
+            + "        }\n"
+            + "    };\n"
+            + "}\n";
+
+    private final int sourceCount;
+    private final int functionsPerSource;
+    private final int testCount;
+    private final int sourcesPerTest;
+
+    /**
+     * @param sourceCount        the number of source files
+     * @param functionsPerSource the size of each source file, each function is about 400 bytes
+     * @param testCount          the number of test pages
+     * @param sourcesPerTest     how many of the sources each test page loads
+     */
+    public SyntheticProject(final int sourceCount, final int functionsPerSource, final int testCount, final int sourcesPerTest) {
+        Preconditions.checkArgument(sourceCount > 0, "There has to be at least one source");
+        Preconditions.checkArgument(functionsPerSource > 0, "There has to be at least one function per source");
+        Preconditions.checkArgument(sourcesPerTest > 0 && sourcesPerTest <= sourceCount,
+                "Tests have to load between 1 and %s sources", sourceCount);
+
+        this.sourceCount = sourceCount;
+        this.functionsPerSource = functionsPerSource;
+        this.testCount = testCount;
+        this.sourcesPerTest = sourcesPerTest;
+    }
+
+    /**
+     * Replaces whatever is in the directory with the project.
+     */
+    public void generate(final File dir) throws IOException {
+        if (dir.exists()) {
+            FileUtils.deleteDirectory(dir);
+        }
+
+        write(new File(dir, "lib/spec.js"), SPEC_LIBRARY);
+
+        for (int i = 0; i < sourceCount; i++) {
+            write(new File(dir, "src/" + getSourcePath(i)), SyntheticScripts.module(getModuleName(i), functionsPerSource));
+        }
+
+        for (int i = 0; i < testCount; i++) {
+            final String testPath = "test/pkg" + i / FILES_PER_PACKAGE + "/Module" + i + "Test";
+
+            write(new File(dir, testPath + ".html"), generateTestPage(i));
+            write(new File(dir, testPath + ".js"), generateSpec(i));
+        }
+    }
+
+    private String generateTestPage(final int testIndex) {
+        final StringBuilder html = new StringBuilder()
+                .append("<!DOCTYPE html>\n<html>\n<head>\n")
+                .append("<meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\">\n")
+                .append("<title>Module").append(testIndex).append(" tests</title>\n")
+                .append("<script src=\"../../lib/spec.js\"></script>\n");
+
+        for (int j = 0; j < sourcesPerTest; j++) {
+            html.append("<script src=\"../../src/").append(getSourcePath(getSourceIndex(testIndex, j))).append("\"></script>\n");
+        }
+
+        return html.append("<script src=\"Module").append(testIndex).append("Test.js\"></script>\n")
+                .append("</head>\n<body>\n</body>\n</html>\n")
+                .toString();
+    }
+
+    private String generateSpec(final int testIndex) {
+        final StringBuilder spec = new StringBuilder("describe('Module").append(testIndex).append("', function () {\n");
+
+        for (int j = 0; j < sourcesPerTest; j++) {
+            final String moduleName = getModuleName(getSourceIndex(testIndex, j));
+
+            for (int k = 0; k < FUNCTIONS_CALLED_PER_SOURCE; k++) {
+                final int function = (testIndex * FUNCTIONS_CALLED_PER_SOURCE + k) % functionsPerSource;
+                final String call = moduleName + ".fn" + function;
+
+                spec.append("    it('adds up the even items using ").append(call).append("', function () {\n")
+                        .append("        expect(").append(call).append("([1, 2, 3, 4]).total).toBe(6);\n")
+                        .append("    });\n");
+
+                if (k % 2 == 0) {
+                    spec.append("    it('rejects odd items using ").append(call).append("', function () {\n")
+                            .append("        var threw = false;\n")
+                            .append("        try {\n")
+                            .append("            ").append(call).append("([1], { strict: true });\n")
+                            .append("        } catch (e) {\n")
+                            .append("            threw = true;\n")
+                            .append("        }\n")
+                            .append("        expect(threw).toBe(true);\n")
+                            .append("    });\n");
+                }
+            }
+        }
+
+        return spec.append("});\n").toString();
+    }
+
+    /**
+     * Spreads the sources loaded by the tests over all of them, with neighbouring tests sharing some.
+     */
+    private int getSourceIndex(final int testIndex, final int j) {
+        return (testIndex * (sourcesPerTest / 2 + 1) + j) % sourceCount;
+    }
+
+    private static String getSourcePath(final int sourceIndex) {
+        return "pkg" + sourceIndex / FILES_PER_PACKAGE + "/Module" + sourceIndex + ".js";
+    }
+
+    private static String getModuleName(final int sourceIndex) {
+        return "Module" + sourceIndex;
+    }
+
+    private static void write(final File file, final String content) throws IOException {
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.github.timurstrekalov.saga.benchmarks;
+
+import java.net.URI;
+import java.util.Arrays;
+
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitBasedScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.instrumentation.ScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+
+/**
+ * Generates scripts with the usual mix of statements (loops, branches, object literals, string concatenation), so that
+ * the benchmarks don't depend on third-party libraries being around. The sizes of the presets are in the same ballpark
+ * as their real-world counterparts.
+ */
+public final class SyntheticScripts {
+
+    /**
+     * A typical application file, about 8 KB.
+     */
+    public static final String APP = "app";
+
+    /**
+     * About the size of an unminified jQuery, 280 KB.
+     */
+    public static final String LIBRARY = "library";
+
+    /**
+     * A minified bundle of about 2.5 MB with very long lines.
+     */
+    public static final String BUNDLE = "bundle";
+
+    private static final int FUNCTIONS_PER_BUNDLE_LINE = 500;
+
+    private SyntheticScripts() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static String preset(final String name) {
+        if (APP.equals(name)) {
+            return readable(20);
+        } else if (LIBRARY.equals(name)) {
+            return readable(700);
+        } else if (BUNDLE.equals(name)) {
+            return minified(13000);
+        }
+
+        throw new IllegalArgumentException("Unknown preset: " + name);
+    }
+
+    public static String readable(final int functionCount) {
+        final StringBuilder buf = new StringBuilder(functionCount * 420);
+
+        for (int i = 0; i < functionCount; i++) {
+            buf.append("function fn").append(i).append("(items, options) {\n")
+                    .append("    var result = [];\n")
+                    .append("    var total = 0;\n")
+                    .append("    for (var j = 0; j < items.length; j++) {\n")
+                    .append("        if (items[j] % 2 === 0) {\n")
+                    .append("            total += items[j];\n")
+                    .append("        } else if (options && options.strict) {\n")
+                    .append("            throw new Error(\"odd item \" + items[j]);\n")
+                    .append("        } else {\n")
+                    .append("            result.push(items[j] * ").append(i).append(");\n")
+                    .append("        }\n")
+                    .append("    }\n")
+                    .append("    return { result: result, total: total, name: 'fn").append(i).append("' };\n")
+                    .append("}\n\n");
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * @return the functions of {@link #readable(int)} wrapped in a module assigned to a global variable, so that several
+     *         of them can be loaded on the same page
+     */
+    public static String module(final String name, final int functionCount) {
+        final StringBuilder buf = new StringBuilder("var ").append(name).append(" = (function () {\n\n");
+        buf.append(readable(functionCount));
+        buf.append("return {");
+
+        for (int i = 0; i < functionCount; i++) {
+            buf.append(i == 0 ? " " : ", ").append("fn").append(i).append(": fn").append(i);
+        }
+
+        return buf.append(" };\n\n})();\n").toString();
+    }
+
+    public static String minified(final int functionCount) {
+        final StringBuilder buf = new StringBuilder(functionCount * 200);
+
+        for (int i = 0; i < functionCount; i++) {
+            buf.append("function f").append(i).append("(a,b){var c=[],d=0;for(var e=0;e<a.length;e++){if(a[e]%2===0){d+=a[e]}")
+                    .append("else if(b&&b.strict){throw new Error(\"odd \"+a[e])}else{c.push(a[e]*").append(i).append(")}}")
+                    .append("return{result:c,total:d,name:\"f").append(i).append("\"}}");
+
+            if ((i + 1) % FUNCTIONS_PER_BUNDLE_LINE == 0) {
+                buf.append('\n');
+            }
+        }
+
+        return buf.toString();
+    }
+
+    /**
+     * @return the instrumented script, not taken from or put into the instrumentation cache
+     */
+    public static ScriptData instrument(final URI fileUri, final String source) {
+        final Config config = new InstanceFieldPerPropertyConfig();
+        config.setCacheInstrumentedCode(false);
+
+        final ScriptInstrumenter instrumenter = new HtmlUnitBasedScriptInstrumenter(config);
+        instrumenter.instrument(source, fileUri.toString(), 1);
+
+        return instrumenter.getScriptDataList().get(0);
+    }
+
+    /**
+     * @return coverage data as if every other statement of the script had been executed a few times
+     */
+    public static int[] coverageData(final ScriptData data) {
+        final int[] coverageData = new int[data.getLineNumberOfLastStatement() + 1];
+        Arrays.fill(coverageData, LineCoverageRecord.LINE_NO_STATEMENT);
+
+        int i = 0;
+        for (final Integer lineNumber : data.getLineNumbersOfAllStatements()) {
+            coverageData[lineNumber] = i++ % 2 == 0 ? i : 0;
+        }
+
+        return coverageData;
+    }
+
+    public static ScriptCoverageStatistics coverage(final URI baseUri, final URI fileUri, final String source) {
+        final ScriptData data = instrument(fileUri, source);
+        return data.generateScriptCoverageStatistics(baseUri, coverageData(data));
+    }
+
+}
@@ -38,10 +38,30 @@ public class Main {
         final Option outputInstrumentedFilesOpt = new Option("f", "output-instrumented-files", false,
                 "Whether to output instrumented files (default is false)");
 
+        final Option instrumentationCacheDirOpt = new Option(null, "instrumentation-cache-dir", true,
+                "Directory to persist instrumented files in across runs (default is not to persist them)");
+
+        final Option counterModeOpt = new Option(null, "counter-mode", true,
+                "How instrumented scripts count executed statements, OBJECT or ARRAY (default is OBJECT)");
+
         final Option noInstrumentPatternOpt = new Option("n", "no-instrument-pattern", true,
                 "Regular expression patterns to match classes to exclude from instrumentation");
         noInstrumentPatternOpt.setArgs(Option.UNLIMITED_VALUES);
 
+        final Option staticResourcePatternOpt = new Option(null, "static-resource-pattern", true,
+                "Regular expression patterns to match the URLs of resources that don't change during a run, which are then only read once");
+        staticResourcePatternOpt.setArgs(Option.UNLIMITED_VALUES);
+
+        final Option blockedUrlPatternOpt = new Option(null, "blocked-url-pattern", true,
+                "Regular expression patterns to match the URLs of requests to answer with an empty response, e.g. analytics scripts");
+        blockedUrlPatternOpt.setArgs(Option.UNLIMITED_VALUES);
+
+        final Option leanBrowserOpt = new Option(null, "lean-browser", false,
+                "Skip CSS processing and the loading of images, stylesheets, fonts and other non-script resources (default is false)");
+
+        final Option staticResourceCacheSizeOpt = new Option(null, "static-resource-cache-size", true,
+                "The maximum total size of the static resources to keep in memory (in bytes, default is 64 MB)");
+
         final Option sourcesToPreloadOpt = new Option("p", "preload-sources", true,
                 "Comma-separated list of Ant-style paths to files to preload");
 
@@ -51,6 +71,34 @@ public class Main {
         final Option threadCountOpt = new Option("t", "thread-count", true,
                 "The maximum number of threads to use (defaults to the number of cores)");
 
+        final Option maxTestsPerBrowserOpt = new Option(null, "max-tests-per-browser", true,
+                "The number of tests a browser runs before it's replaced with a fresh one (default is 50)");
+
+        final Option browserRecycleHeapThresholdOpt = new Option(null, "browser-recycle-heap-threshold", true,
+                "Percentage of the maximum heap size in use past which browsers are not reused (default is 80)");
+
+        final Option testDurationHistoryFileOpt = new Option(null, "test-duration-history-file", true,
+                "File to keep test durations in, used to run the longest tests first (default is test-durations.properties in the output directory)");
+
+        final Option shardIndexOpt = new Option(null, "shard-index", true,
+                "The zero-based index of the shard of the tests to run (default is 0)");
+
+        final Option shardCountOpt = new Option(null, "shard-count", true,
+                "The number of shards to split the tests into, to be merged afterwards with "
+                        + Merge.class.getName() + " (default is 1)");
+
+        final Option incrementalOpt = new Option(null, "incremental", false,
+                "Only run the tests affected by changes to them or to the scripts they loaded since the previous run (default is false)");
+
+        final Option incrementalDataDirOpt = new Option(null, "incremental-data-dir", true,
+                "Directory to keep the coverage of each test in for incremental runs (default is incremental in the output directory)");
+
+        final Option watchOpt = new Option(null, "watch", false,
+                "Keep watching the base directory after running the tests, rerunning the affected tests on every change");
+
+        final Option watchIntervalOpt = new Option(null, "watch-interval", true,
+                "How often to check the base directory for changes while watching it (in milliseconds, default is 1000)");
+
         final Option outputStrategyOpt = new Option("s", "output-strategy", true,
                 "Coverage report output strategy. One of " + Arrays.toString(OutputStrategy.values()));
 
@@ -64,7 +112,10 @@ public class Main {
                 "Determines the browser and version profile that HtmlUnit will simulate");
 
         final Option reportFormatsOpt = new Option(null, "report-formats", true,
-                "A comma-separated list of formats of the reports to be generated. Valid values are: HTML, RAW, CSV, PDF");
+                "A comma-separated list of formats of the reports to be generated. Valid values are: HTML, RAW, CSV, PDF, COBERTURA, HTML_PER_FILE, BINARY");
+
+        final Option coverageDataFilesOpt = new Option(null, "coverage-data-files", true,
+                "A comma-separated list of BINARY coverage reports, or a single RAW one, to generate the reports from instead of running the tests");
 
         final Option sortByOpt = new Option(null, "sort-by", true,
                 "The column to sort by, one of 'file', 'statements', 'executed' or 'coverage' (default is 'coverage')");
@@ -80,8 +131,23 @@ public class Main {
         options.addOption(excludeOpt);
         options.addOption(outputDirOpt);
         options.addOption(outputInstrumentedFilesOpt);
+        options.addOption(instrumentationCacheDirOpt);
+        options.addOption(counterModeOpt);
         options.addOption(noInstrumentPatternOpt);
+        options.addOption(staticResourcePatternOpt);
+        options.addOption(staticResourceCacheSizeOpt);
+        options.addOption(blockedUrlPatternOpt);
+        options.addOption(leanBrowserOpt);
         options.addOption(threadCountOpt);
+        options.addOption(maxTestsPerBrowserOpt);
+        options.addOption(browserRecycleHeapThresholdOpt);
+        options.addOption(testDurationHistoryFileOpt);
+        options.addOption(shardIndexOpt);
+        options.addOption(shardCountOpt);
+        options.addOption(incrementalOpt);
+        options.addOption(incrementalDataDirOpt);
+        options.addOption(watchOpt);
+        options.addOption(watchIntervalOpt);
         options.addOption(outputStrategyOpt);
         options.addOption(includeInlineScriptsOpt);
         options.addOption(helpOpt);
@@ -90,6 +156,7 @@ public class Main {
         options.addOption(backgroundJavaScriptTimeoutOpt);
         options.addOption(browserVersionOpt);
         options.addOption(reportFormatsOpt);
+        options.addOption(coverageDataFilesOpt);
         options.addOption(sortByOpt);
         options.addOption(orderOpt);
 
@@ -130,7 +197,30 @@ public class Main {
                 config.setOutputInstrumentedFiles(true);
             }
 
+            final String instrumentationCacheDir = line.getOptionValue(instrumentationCacheDirOpt.getLongOpt());
+            if (instrumentationCacheDir != null) {
+                config.setInstrumentationCacheDir(new File(instrumentationCacheDir));
+            }
+
+            config.setCounterMode(line.getOptionValue(counterModeOpt.getLongOpt()));
             config.setNoInstrumentPatterns(line.getOptionValues(noInstrumentPatternOpt.getLongOpt()));
+            config.setStaticResourcePatterns(line.getOptionValues(staticResourcePatternOpt.getLongOpt()));
+            config.setBlockedUrlPatterns(line.getOptionValues(blockedUrlPatternOpt.getLongOpt()));
+
+            if (line.hasOption(leanBrowserOpt.getLongOpt())) {
+                config.setLeanBrowser(true);
+            }
+
+            final String staticResourceCacheSize = line.getOptionValue(staticResourceCacheSizeOpt.getLongOpt());
+            if (staticResourceCacheSize != null) {
+                try {
+                    config.setStaticResourceCacheSize(Long.parseLong(staticResourceCacheSize));
+                } catch (final Exception e) {
+                    System.err.println("Invalid static resource cache size");
+                    printHelpAndExit(options);
+                }
+            }
+
             config.setSourcesToPreload(line.getOptionValue(sourcesToPreloadOpt.getLongOpt()));
             config.setOutputStrategy(line.getOptionValue(outputStrategyOpt.getLongOpt()));
 
@@ -144,6 +234,62 @@ public class Main {
                 }
             }
 
+            final String maxTestsPerBrowser = line.getOptionValue(maxTestsPerBrowserOpt.getLongOpt());
+            if (maxTestsPerBrowser != null) {
+                try {
+                    config.setMaxTestsPerBrowser(Integer.parseInt(maxTestsPerBrowser));
+                } catch (final Exception e) {
+                    System.err.println("Invalid maximum number of tests per browser");
+                    printHelpAndExit(options);
+                }
+            }
+
+            final String browserRecycleHeapThreshold = line.getOptionValue(browserRecycleHeapThresholdOpt.getLongOpt());
+            if (browserRecycleHeapThreshold != null) {
+                try {
+                    config.setBrowserRecycleHeapThreshold(Integer.parseInt(browserRecycleHeapThreshold));
+                } catch (final Exception e) {
+                    System.err.println("Invalid browser recycle heap threshold");
+                    printHelpAndExit(options);
+                }
+            }
+
+            final String testDurationHistoryFile = line.getOptionValue(testDurationHistoryFileOpt.getLongOpt());
+            if (testDurationHistoryFile != null) {
+                config.setTestDurationHistoryFile(new File(testDurationHistoryFile));
+            }
+
+            final String shardIndex = line.getOptionValue(shardIndexOpt.getLongOpt());
+            final String shardCount = line.getOptionValue(shardCountOpt.getLongOpt());
+            if (shardIndex != null || shardCount != null) {
+                try {
+                    config.setShardIndex(shardIndex != null ? Integer.valueOf(shardIndex) : null);
+                    config.setShardCount(shardCount != null ? Integer.valueOf(shardCount) : null);
+                } catch (final Exception e) {
+                    System.err.println("Invalid shard");
+                    printHelpAndExit(options);
+                }
+            }
+
+            if (line.hasOption(incrementalOpt.getLongOpt())) {
+                config.setIncremental(true);
+            }
+
+            final String incrementalDataDir = line.getOptionValue(incrementalDataDirOpt.getLongOpt());
+            if (incrementalDataDir != null) {
+                config.setIncrementalDataDir(new File(incrementalDataDir));
+            }
+
+            final String watchInterval = line.getOptionValue(watchIntervalOpt.getLongOpt());
+            if (watchInterval != null) {
+                try {
+                    config.setWatchInterval(Long.valueOf(watchInterval));
+                } catch (final Exception e) {
+                    System.err.println("Invalid watch interval");
+                    printHelpAndExit(options);
+                }
+            }
+
             if (line.hasOption(includeInlineScriptsOpt.getLongOpt())) {
                 config.setIncludeInlineScripts(true);
             }
@@ -160,12 +306,19 @@ public class Main {
 
             config.setBrowserVersion(line.getOptionValue(browserVersionOpt.getLongOpt()));
             config.setReportFormats(line.getOptionValue(reportFormatsOpt.getLongOpt()));
+            config.setCoverageDataFiles(line.getOptionValue(coverageDataFilesOpt.getLongOpt()));
             config.setSortBy(line.getOptionValue(sortByOpt.getLongOpt()));
             config.setOrder(line.getOptionValue(orderOpt.getLongOpt()));
 
             logger.debug("Configured the coverage generator, running");
 
-            gen.instrumentAndGenerateReports();
+            if (line.hasOption(watchOpt.getLongOpt())) {
+                gen.watch();
+            } else if (config.getCoverageDataFiles().isEmpty()) {
+                gen.instrumentAndGenerateReports();
+            } else {
+                gen.generateReports();
+            }
         } catch (final MissingOptionException e) {
             System.err.println(e.getMessage());
             printHelpAndExit(options);
@@ -0,0 +1,99 @@
+package com.github.timurstrekalov.saga.cli;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.timurstrekalov.saga.core.CoverageGenerator;
+import com.github.timurstrekalov.saga.core.CoverageGeneratorFactory;
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.google.common.base.Joiner;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.MissingOptionException;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.UnrecognizedOptionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges the coverage data written by several runs, e.g. by the shards of a test run on different machines, into the
+ * total reports. Only BINARY coverage data can be merged, since RAW coverage data doesn't record the sources it was
+ * collected for.
+ */
+public class Merge {
+
+    private static final Logger logger = LoggerFactory.getLogger(Merge.class);
+
+    public static void main(final String[] args) throws IOException {
+        final Option baseDirOpt = new Option("b", "base-dir", true, "Base directory the tests were run from");
+        baseDirOpt.setRequired(true);
+
+        final Option outputDirOpt = new Option("o", "output-dir", true, "The output directory for coverage reports");
+        outputDirOpt.setRequired(true);
+
+        final Option sourcesEncodingOpt = new Option(null, "sources-encoding", true,
+                "Encoding of the sources of files in RAW coverage data (default is UTF-8)");
+
+        final Option reportFormatsOpt = new Option(null, "report-formats", true,
+                "A comma-separated list of formats of the reports to be generated. Valid values are: HTML, RAW, CSV, PDF, COBERTURA, HTML_PER_FILE, BINARY");
+
+        final Option sortByOpt = new Option(null, "sort-by", true,
+                "The column to sort by, one of 'file', 'statements', 'executed' or 'coverage' (default is 'coverage')");
+
+        final Option orderOpt = new Option(null, "order", true,
+                "The order of sorting, one of 'asc' or 'ascending', 'desc' or 'descending' (default is 'ascending')");
+
+        final Options options = new Options();
+
+        options.addOption(baseDirOpt);
+        options.addOption(outputDirOpt);
+        options.addOption(sourcesEncodingOpt);
+        options.addOption(reportFormatsOpt);
+        options.addOption(sortByOpt);
+        options.addOption(orderOpt);
+
+        try {
+            final CommandLine line = new GnuParser().parse(options, args);
+
+            if (line.getArgs().length == 0) {
+                System.err.println("No coverage data files given");
+                printHelpAndExit(options);
+            }
+
+            final String baseDir = line.getOptionValue(baseDirOpt.getLongOpt());
+            final File outputDir = new File(line.getOptionValue(outputDirOpt.getLongOpt()));
+
+            final CoverageGenerator gen = CoverageGeneratorFactory.newInstance(baseDir, outputDir);
+            final Config config = gen.getConfig();
+
+            config.setCoverageDataFiles(Joiner.on(',').join(line.getArgs()));
+            config.setSourcesToPreloadEncoding(line.getOptionValue(sourcesEncodingOpt.getLongOpt()));
+            config.setReportFormats(line.getOptionValue(reportFormatsOpt.getLongOpt()));
+            config.setSortBy(line.getOptionValue(sortByOpt.getLongOpt()));
+            config.setOrder(line.getOptionValue(orderOpt.getLongOpt()));
+
+            logger.debug("Merging {} coverage data files", line.getArgs().length);
+
+            gen.generateReports();
+        } catch (final MissingOptionException e) {
+            System.err.println(e.getMessage());
+            printHelpAndExit(options);
+        } catch (final UnrecognizedOptionException e) {
+            System.err.println(e.getMessage());
+            printHelpAndExit(options);
+        } catch (final ParseException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printHelpAndExit(final Options options) {
+        new HelpFormatter().printHelp("java -cp saga-cli-<version>-jar-with-dependencies.jar " + Merge.class.getName()
+                + " [options] <BINARY coverage data file>...", options, true);
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.instrumentation.InstrumentingBrowser;
+import com.github.timurstrekalov.saga.core.instrumentation.InstrumentingBrowserFactory;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps browsers around between tests, since starting one (a WebDriver session in particular) often takes longer than
+ * running the test itself. Browsers are reset before being reused and are only quit after running
+ * {@link Config#getMaxTestsPerBrowser()} tests, when the heap usage exceeds
+ * {@link Config#getBrowserRecycleHeapThreshold()} or when a test fails in an unexpected way.
+ */
+final class BrowserPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrowserPool.class);
+
+    private final Config config;
+
+    private final Queue<InstrumentingBrowser> idleBrowsers = new ConcurrentLinkedQueue<InstrumentingBrowser>();
+    private final Map<InstrumentingBrowser, Integer> testsRunByBrowser = Maps.newIdentityHashMap();
+
+    private boolean closed;
+
+    BrowserPool(final Config config) {
+        this.config = config;
+    }
+
+    InstrumentingBrowser acquire() {
+        final InstrumentingBrowser idleBrowser = idleBrowsers.poll();
+        if (idleBrowser != null) {
+            return idleBrowser;
+        }
+
+        final long start = System.nanoTime();
+        final InstrumentingBrowser browser = InstrumentingBrowserFactory.newInstance(config);
+        MetricsRecorder.recordTimeSince(MetricsRecorder.BROWSER_STARTUP, start);
+
+        synchronized (testsRunByBrowser) {
+            if (closed) {
+                browser.quit();
+                throw new IllegalStateException("Browser pool is closed");
+            }
+
+            testsRunByBrowser.put(browser, 0);
+        }
+
+        return browser;
+    }
+
+    /**
+     * Returns a browser that has run a test back to the pool, resetting it for the next test or quitting it if it
+     * shouldn't be reused.
+     */
+    void release(final InstrumentingBrowser browser) {
+        final int testsRun;
+
+        synchronized (testsRunByBrowser) {
+            if (closed) {
+                return;
+            }
+
+            testsRun = testsRunByBrowser.get(browser) + 1;
+            testsRunByBrowser.put(browser, testsRun);
+        }
+
+        if (testsRun >= config.getMaxTestsPerBrowser()) {
+            logger.info("Recycling browser after {} tests", testsRun);
+            discard(browser);
+            return;
+        }
+
+        if (isHeapUsageAboveThreshold()) {
+            logger.info("Heap usage exceeds {}%, recycling browser", config.getBrowserRecycleHeapThreshold());
+            discard(browser);
+            return;
+        }
+
+        try {
+            browser.reset();
+        } catch (final RuntimeException e) {
+            logger.warn("Error resetting browser, quitting it: {}", e.getMessage());
+            discard(browser);
+            return;
+        }
+
+        idleBrowsers.offer(browser);
+    }
+
+    /**
+     * Quits a browser that is in an unknown state, e.g. after a test failed with an exception.
+     */
+    void discard(final InstrumentingBrowser browser) {
+        synchronized (testsRunByBrowser) {
+            if (testsRunByBrowser.remove(browser) == null) {
+                return;
+            }
+        }
+
+        quit(browser);
+    }
+
+    /**
+     * Quits all the browsers created by this pool.
+     */
+    void close() {
+        final Iterable<InstrumentingBrowser> browsers;
+
+        synchronized (testsRunByBrowser) {
+            closed = true;
+            browsers = ImmutableList.copyOf(testsRunByBrowser.keySet());
+            testsRunByBrowser.clear();
+        }
+
+        idleBrowsers.clear();
+
+        for (final InstrumentingBrowser browser : browsers) {
+            quit(browser);
+        }
+    }
+
+    private boolean isHeapUsageAboveThreshold() {
+        final Runtime runtime = Runtime.getRuntime();
+        final long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+
+        return usedMemory * 100 > runtime.maxMemory() * config.getBrowserRecycleHeapThreshold();
+    }
+
+    private static void quit(final InstrumentingBrowser browser) {
+        logger.info("Quitting browser");
+
+        try {
+            browser.quit();
+        } catch (final RuntimeException e) {
+            logger.warn("Error quitting browser: {}", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.github.timurstrekalov.saga.core;
+
+/**
+ * Determines how instrumented scripts count executed statements.
+ */
+public enum CounterMode {
+
+    /**
+     * Every statement increments a line-keyed property of a per-script object, looked up by the script's URI, e.g.
+     * <code>__saga_coverage_data['http://localhost/file.js'][42]++</code>.
+     */
+    OBJECT,
+
+    /**
+     * Every script's counters are a dense array allocated once, and every statement increments the element at a
+     * compact index, e.g. <code>__saga_coverage_data['http://localhost/file.js'][7]++</code>. Indices are mapped back to
+     * lines when extracting the coverage data.
+     */
+    ARRAY
+
+}
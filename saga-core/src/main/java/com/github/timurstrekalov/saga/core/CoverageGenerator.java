@@ -8,6 +8,18 @@ public interface CoverageGenerator {
 
     void instrumentAndGenerateReports() throws IOException;
 
+    /**
+     * Generates the total reports from previously written coverage data, see
+     * {@link com.github.timurstrekalov.saga.core.cfg.Config#getCoverageDataFiles()}, without running any tests.
+     */
+    void generateReports() throws IOException;
+
+    /**
+     * Runs the tests and then keeps watching the base directory, rerunning the tests affected by each change and
+     * refreshing the reports, until the thread is interrupted. Browsers and instrumented scripts are kept between runs.
+     */
+    void watch() throws IOException;
+
     Config getConfig();
 
 }
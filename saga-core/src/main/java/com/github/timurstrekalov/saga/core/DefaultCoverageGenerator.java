@@ -3,23 +3,37 @@ package com.github.timurstrekalov.saga.core;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import com.github.timurstrekalov.saga.core.cfg.Config;
 import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitBasedScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.instrumentation.InstrumentationCounters;
+import com.github.timurstrekalov.saga.core.metrics.Metrics;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import com.github.timurstrekalov.saga.core.metrics.MetricsWriter;
 import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
 import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.github.timurstrekalov.saga.core.reporter.ReporterFactory;
 import com.github.timurstrekalov.saga.core.sourcepreloader.FileSystemSourcePreloader;
+import com.github.timurstrekalov.saga.core.storage.CoverageDataMerger;
 import com.github.timurstrekalov.saga.core.testfetcher.TestFetcher;
 import com.github.timurstrekalov.saga.core.testfetcher.TestFetcherFactory;
+import com.github.timurstrekalov.saga.core.util.UriUtil;
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang.StringUtils;
 import org.codehaus.plexus.util.FileUtils;
 import org.slf4j.Logger;
@@ -34,6 +48,9 @@ final class DefaultCoverageGenerator implements CoverageGenerator {
 
     private final Config config;
 
+    // only set while watching, to keep the browsers warm between runs
+    private BrowserPool sharedBrowserPool;
+
     DefaultCoverageGenerator() {
         this(new InstanceFieldPerPropertyConfig());
     }
@@ -55,7 +72,17 @@ final class DefaultCoverageGenerator implements CoverageGenerator {
             return;
         }
 
-        final int actualThreadCount = Math.min(config.getThreadCount(), tests.size());
+        // only started once there's a run to measure, so that the metrics of the previous run are left alone otherwise
+        final InstrumentationCounters countersBeforeRun = HtmlUnitBasedScriptInstrumenter.getCounters().snapshot();
+        final Metrics runMetrics = MetricsRecorder.startRun();
+
+        final TestRunCoverageStatistics totalStats = newTotalStats(baseUri);
+        final TestDependencies testDependencies = config.isIncremental() || sharedBrowserPool != null
+                ? loadTestDependencies(baseUri, tests)
+                : null;
+        final List<URI> testsToRun = testDependencies != null ? reuseUpToDateTests(tests, testDependencies, totalStats) : tests;
+
+        final int actualThreadCount = Math.max(1, Math.min(config.getThreadCount(), testsToRun.size()));
         logger.info("Using up to {} threads", actualThreadCount);
 
         final OutputStrategy outputStrategy = config.getOutputStrategy();
@@ -72,6 +99,14 @@ final class DefaultCoverageGenerator implements CoverageGenerator {
             logger.info("Using the following no-instrument patterns:\n\t{}", Joiner.on("\n\t").join(config.getNoInstrumentPatterns()));
         }
 
+        if (!config.getStaticResourcePatterns().isEmpty()) {
+            logger.info("Using the following static resource patterns:\n\t{}", Joiner.on("\n\t").join(config.getStaticResourcePatterns()));
+        }
+
+        if (!config.getBlockedUrlPatterns().isEmpty()) {
+            logger.info("Blocking the requests to URLs matching the following patterns:\n\t{}", Joiner.on("\n\t").join(config.getBlockedUrlPatterns()));
+        }
+
         final File outputDir = config.getOutputDir();
         FileUtils.mkdir(outputDir.getAbsolutePath());
 
@@ -79,53 +114,276 @@ final class DefaultCoverageGenerator implements CoverageGenerator {
             FileUtils.mkdir(config.getInstrumentedFileDirectory().getAbsolutePath());
         }
 
-        final TestRunCoverageStatistics totalStats = new TestRunCoverageStatistics(baseUri.relativize(URI.create(TOTAL_REPORT_NAME)), "Total coverage report");
+        maybePreloadSources(totalStats);
+
+        final TestDurationHistory testDurationHistory = loadTestDurationHistory(baseUri);
+        final Map<URI, Metrics> testMetrics = Maps.newConcurrentMap();
+        runTests(testDurationHistory.longestFirst(testsToRun), actualThreadCount, outputStrategy, totalStats, testDurationHistory,
+                testDependencies, testMetrics);
+        saveTestDurationHistory(testDurationHistory);
+        writeMetrics(baseUri, runMetrics, testMetrics);
+
+        if (testDependencies != null) {
+            saveTestDependencies(testDependencies);
+        }
+
+        logger.info("Instrumentation: {}", HtmlUnitBasedScriptInstrumenter.getCounters().since(countersBeforeRun));
+    }
+
+    @Override
+    public void generateReports() throws IOException {
+        Preconditions.checkNotNull(config.getBaseDir(), "baseDir cannot be null");
+        Preconditions.checkNotNull(config.getOutputDir(), "outputDir cannot be null");
+        Preconditions.checkArgument(!config.getCoverageDataFiles().isEmpty(), "coverageDataFiles cannot be empty");
+
+        final URI baseUri = config.getBaseUri();
+        final TestRunCoverageStatistics totalStats = newTotalStats(baseUri);
+        final Metrics runMetrics = MetricsRecorder.startRun();
+
+        final CoverageDataMerger merger = new CoverageDataMerger(baseUri, Charset.forName(config.getSourcesToPreloadEncoding()));
+
+        for (final File coverageDataFile : config.getCoverageDataFiles()) {
+            logger.info("Reading coverage data from {}", coverageDataFile);
+
+            final long mergeStart = System.nanoTime();
+            merger.merge(coverageDataFile, totalStats);
+            MetricsRecorder.recordTimeSince(MetricsRecorder.MERGE, mergeStart);
+        }
+
+        maybePreloadSources(totalStats);
+
+        FileUtils.mkdir(config.getOutputDir().getAbsolutePath());
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(config.getThreadCount(), config.getReportFormats().size())));
+
+        try {
+            new WritesStatistics(executorService).write(config, totalStats);
+        } finally {
+            executorService.shutdown();
+        }
+
+        writeMetrics(baseUri, runMetrics, Collections.<URI, Metrics>emptyMap());
+    }
+
+    @Override
+    public void watch() throws IOException {
+        Preconditions.checkNotNull(config.getBaseDir(), "baseDir cannot be null");
+        Preconditions.checkNotNull(config.getOutputDir(), "outputDir cannot be null");
+        Preconditions.checkArgument(UriUtil.isFileUri(config.getBaseUri()), "Only a base directory on the file system can be watched");
+
+        final File baseDir = new File(config.getBaseUri());
+        sharedBrowserPool = new BrowserPool(config);
+
+        try {
+            DirectorySnapshot snapshot = takeSnapshot(baseDir);
+            runWhileWatching();
+
+            while (true) {
+                Thread.sleep(config.getWatchInterval());
+
+                final List<File> changedFiles = takeSnapshot(baseDir).changedSince(snapshot);
+                if (changedFiles.isEmpty()) {
+                    continue;
+                }
+
+                // editors and build tools tend to write several files at once, wait for them to finish
+                DirectorySnapshot current = takeSnapshot(baseDir);
+                do {
+                    snapshot = current;
+                    Thread.sleep(config.getWatchInterval());
+                    current = takeSnapshot(baseDir);
+                } while (!current.changedSince(snapshot).isEmpty());
+
+                logger.info("{} files changed, running the affected tests", changedFiles.size());
+                logger.debug("Changed files:\n\t{}", Joiner.on("\n\t").join(changedFiles));
+                runWhileWatching();
+            }
+        } catch (final InterruptedException e) {
+            logger.info("Stopped watching {}", baseDir);
+            Thread.currentThread().interrupt();
+        } finally {
+            sharedBrowserPool.close();
+            sharedBrowserPool = null;
+        }
+    }
+
+    private void runWhileWatching() {
+        try {
+            instrumentAndGenerateReports();
+        } catch (final Exception e) {
+            // a broken test or script shouldn't stop the watch, the next change might fix it
+            logger.error("Error running tests: {}", e.getMessage(), e);
+        }
+    }
+
+    private DirectorySnapshot takeSnapshot(final File baseDir) {
+        final List<File> excludes = Lists.newArrayList(config.getOutputDir(), config.getIncrementalDataDir(),
+                config.getTestDurationHistoryFile());
+
+        if (config.getInstrumentationCacheDir() != null) {
+            excludes.add(config.getInstrumentationCacheDir());
+        }
+
+        return DirectorySnapshot.take(baseDir, excludes);
+    }
+
+    private TestRunCoverageStatistics newTotalStats(final URI baseUri) {
+        final TestRunCoverageStatistics totalStats = TestRunCoverageStatistics.newThreadSafeInstance(
+                baseUri.relativize(URI.create(TOTAL_REPORT_NAME)), "Total coverage report");
         totalStats.setSortBy(config.getSortBy());
         totalStats.setOrder(config.getOrder());
         totalStats.setSourceDirs(config.getSourceDirs());
 
-        maybePreloadSources(totalStats);
-        runTests(tests, actualThreadCount, outputStrategy, totalStats);
+        return totalStats;
     }
 
-    private void runTests(final List<URI> tests, final int actualThreadCount, final OutputStrategy outputStrategy, final TestRunCoverageStatistics totalStats) throws IOException {
+    private void runTests(final List<URI> tests, final int actualThreadCount, final OutputStrategy outputStrategy,
+            final TestRunCoverageStatistics totalStats, final TestDurationHistory testDurationHistory,
+            final TestDependencies testDependencies, final Map<URI, Metrics> testMetrics) throws IOException {
         final ExecutorService executorService = Executors.newFixedThreadPool(actualThreadCount);
+        final BrowserPool browserPool = sharedBrowserPool != null ? sharedBrowserPool : new BrowserPool(config);
         final CompletionService<TestRunCoverageStatistics> completionService = new ExecutorCompletionService<TestRunCoverageStatistics>(executorService);
 
+        final boolean collectTotal = outputStrategy.contains(OutputStrategy.TOTAL);
+
         for (final URI test : tests) {
-            completionService.submit(new TestRunCoverageStatisticsCallable(config, test, outputStrategy));
+            // the workers add up the total themselves as soon as each test finishes, only its dependencies need the stats after that
+            completionService.submit(new TestRunCoverageStatisticsCallable(config, browserPool, testDurationHistory, test, outputStrategy,
+                    collectTotal ? totalStats : null, testMetrics, testDependencies != null));
         }
 
-        final List<TestRunCoverageStatistics> allRunStats = Lists.newLinkedList();
         final int submittedTasks = tests.size();
 
         try {
-            for (int i = 0; i < submittedTasks; i++) {
-                try {
-                    final Future<TestRunCoverageStatistics> future = completionService.take();
-                    final TestRunCoverageStatistics runStats = future.get();
-
-                    allRunStats.add(runStats);
-                } catch (final Exception e) {
-                    logger.debug(e.getMessage(), e);
+            try {
+                for (int i = 0; i < submittedTasks; i++) {
+                    try {
+                        final TestRunCoverageStatistics runStats = completionService.take().get();
+
+                        if (testDependencies != null && runStats != TestRunCoverageStatistics.EMPTY) {
+                            recordTestDependencies(testDependencies, runStats);
+                        }
+                    } catch (final Exception e) {
+                        logger.debug(e.getMessage(), e);
+                    }
                 }
+            } finally {
+                if (browserPool != sharedBrowserPool) {
+                    browserPool.close();
+                }
+            }
+
+            logger.info("Test run finished");
+
+            if (collectTotal) {
+                // the test threads are idle by now, so they might as well write the formats in parallel
+                new WritesStatistics(executorService).write(config, totalStats);
+                maybeWriteShardCoverageData(totalStats);
             }
         } finally {
             executorService.shutdown();
         }
+    }
 
-        logger.info("Test run finished");
+    private void writeMetrics(final URI baseUri, final Metrics runMetrics, final Map<URI, Metrics> testMetrics) {
+        final SortedMap<String, Metrics> testMetricsByName = Maps.newTreeMap();
+        for (final Map.Entry<URI, Metrics> entry : testMetrics.entrySet()) {
+            testMetricsByName.put(baseUri.relativize(entry.getKey()).toString(), entry.getValue());
+        }
 
-        if (outputStrategy.contains(OutputStrategy.TOTAL)) {
-            for (final TestRunCoverageStatistics runStats : allRunStats) {
-                if (runStats != TestRunCoverageStatistics.EMPTY) {
-                    for (final ScriptCoverageStatistics scriptCoverageStatistics : runStats) {
-                        totalStats.add(scriptCoverageStatistics);
-                    }
+        try {
+            new MetricsWriter().write(config.getOutputDir(), runMetrics, testMetricsByName);
+        } catch (final IOException e) {
+            logger.warn("Could not write metrics to {}: {}", config.getOutputDir(), e.getMessage());
+        }
+    }
+
+    private void maybeWriteShardCoverageData(final TestRunCoverageStatistics totalStats) throws IOException {
+        // the coverage of the shards gets merged from their BINARY data, so make sure there is some
+        if (config.getShardCount() > 1 && !config.getReportFormats().contains(ReportFormat.BINARY)) {
+            ReporterFactory.reporterFor(ReportFormat.BINARY).writeReport(config.getBaseUri(), config.getOutputDir(), totalStats);
+        }
+    }
+
+    private TestDependencies loadTestDependencies(final URI baseUri, final List<URI> tests) {
+        final File dir = config.getIncrementalDataDir();
+        final Charset sourceEncoding = Charset.forName(config.getSourcesToPreloadEncoding());
+
+        try {
+            final TestDependencies testDependencies = TestDependencies.load(baseUri, dir, sourceEncoding);
+            testDependencies.retainOnly(tests);
+            return testDependencies;
+        } catch (final IOException e) {
+            logger.warn("Could not load test dependencies from {}, running all tests: {}", dir, e.getMessage());
+            return TestDependencies.empty(baseUri, dir, sourceEncoding);
+        }
+    }
+
+    /**
+     * Adds the stored coverage of the tests that aren't affected by any changes since the previous run to the total.
+     *
+     * @return the tests that have to be run
+     */
+    private List<URI> reuseUpToDateTests(final List<URI> tests, final TestDependencies testDependencies,
+            final TestRunCoverageStatistics totalStats) {
+        final List<URI> affectedTests = Lists.newArrayList();
+
+        for (final URI test : tests) {
+            if (!testDependencies.isUpToDate(test)) {
+                affectedTests.add(test);
+                continue;
+            }
+
+            try {
+                for (final ScriptCoverageStatistics fileStats : testDependencies.loadStats(test)) {
+                    totalStats.add(fileStats);
                 }
+            } catch (final IOException e) {
+                logger.debug("Could not load the stored coverage of {}, running it: {}", test, e.getMessage());
+                affectedTests.add(test);
             }
+        }
+
+        logger.info("{} of {} tests affected by changes since the previous run", affectedTests.size(), tests.size());
 
-            new WritesStatistics().write(config, totalStats);
+        return affectedTests;
+    }
+
+    private void recordTestDependencies(final TestDependencies testDependencies, final TestRunCoverageStatistics runStats) {
+        try {
+            testDependencies.record(runStats);
+        } catch (final IOException e) {
+            logger.warn("Could not store the coverage of {}, it will be run again next time: {}", runStats.test, e.getMessage());
+        }
+    }
+
+    private void saveTestDependencies(final TestDependencies testDependencies) {
+        try {
+            testDependencies.save();
+        } catch (final IOException e) {
+            logger.warn("Could not save test dependencies to {}: {}", config.getIncrementalDataDir(), e.getMessage());
+        }
+    }
+
+    private TestDurationHistory loadTestDurationHistory(final URI baseUri) {
+        final File file = config.getTestDurationHistoryFile();
+
+        try {
+            return TestDurationHistory.load(baseUri, file);
+        } catch (final IOException e) {
+            logger.warn("Could not load test durations from {}, running tests in the default order: {}", file, e.getMessage());
+            return new TestDurationHistory(baseUri);
+        }
+    }
+
+    private void saveTestDurationHistory(final TestDurationHistory testDurationHistory) {
+        final File file = config.getTestDurationHistoryFile();
+
+        try {
+            testDurationHistory.save(file);
+        } catch (final IOException e) {
+            logger.warn("Could not save test durations to {}: {}", file, e.getMessage());
         }
     }
 
@@ -144,7 +402,35 @@ final class DefaultCoverageGenerator implements CoverageGenerator {
 
         logger.info("{} tests found", tests.size());
 
-        return tests;
+        if (config.getShardCount() == 1) {
+            return tests;
+        }
+
+        final List<URI> shard = selectShard(baseDir, tests, config.getShardIndex(), config.getShardCount());
+        logger.info("Running the {} tests of shard {} of {}", shard.size(), config.getShardIndex() + 1, config.getShardCount());
+
+        return shard;
+    }
+
+    /**
+     * Picks the tests of a shard by hashing their paths relative to the base directory, so that every machine running
+     * a shard agrees on which tests are part of it, no matter where the tests are checked out or in what order they're
+     * found.
+     */
+    static List<URI> selectShard(final URI baseUri, final List<URI> tests, final int shardIndex, final int shardCount) {
+        Preconditions.checkArgument(shardIndex < shardCount, "Shard index %s is out of range for %s shards", shardIndex, shardCount);
+
+        final List<URI> shard = Lists.newArrayList();
+
+        for (final URI test : tests) {
+            final String relativePath = baseUri.relativize(test).toString();
+
+            if (Hashing.consistentHash(Hashing.md5().hashString(relativePath, Charsets.UTF_8), shardCount) == shardIndex) {
+                shard.add(test);
+            }
+        }
+
+        return shard;
     }
 
 }
@@ -0,0 +1,111 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The modification times and sizes of all the files in a directory tree at some point, used to poll for changes while
+ * watching the sources (the code base still targets Java 6, which doesn't have a file watching API).
+ */
+final class DirectorySnapshot {
+
+    private final Map<File, FileState> files;
+
+    private DirectorySnapshot(final Map<File, FileState> files) {
+        this.files = files;
+    }
+
+    /**
+     * @param excludes files and directories to leave out, e.g. the output directory, which changes with every run
+     */
+    static DirectorySnapshot take(final File dir, final Collection<File> excludes) {
+        final Set<File> absoluteExcludes = Sets.newHashSet();
+        for (final File exclude : excludes) {
+            absoluteExcludes.add(exclude.getAbsoluteFile());
+        }
+
+        final Map<File, FileState> files = Maps.newHashMap();
+        collect(dir.getAbsoluteFile(), absoluteExcludes, files);
+
+        return new DirectorySnapshot(files);
+    }
+
+    private static void collect(final File dir, final Set<File> excludes, final Map<File, FileState> files) {
+        final File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+
+        for (final File child : children) {
+            if (excludes.contains(child)) {
+                continue;
+            }
+
+            if (child.isDirectory()) {
+                collect(child, excludes, files);
+            } else {
+                files.put(child, new FileState(child.lastModified(), child.length()));
+            }
+        }
+    }
+
+    /**
+     * @return the files that have been added, changed or deleted since the earlier snapshot
+     */
+    List<File> changedSince(final DirectorySnapshot earlier) {
+        final List<File> changed = Lists.newArrayList();
+
+        for (final Map.Entry<File, FileState> entry : files.entrySet()) {
+            if (!entry.getValue().equals(earlier.files.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+
+        for (final File file : earlier.files.keySet()) {
+            if (!files.containsKey(file)) {
+                changed.add(file);
+            }
+        }
+
+        return changed;
+    }
+
+    private static final class FileState {
+
+        private final long lastModified;
+        private final long length;
+
+        FileState(final long lastModified, final long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof FileState)) {
+                return false;
+            }
+
+            final FileState other = (FileState) o;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (int) (lastModified ^ (lastModified >>> 32)) + (int) (length ^ (length >>> 32));
+        }
+
+    }
+
+}
@@ -27,6 +27,36 @@ public enum ReportFormat {
     	public String getExtension() {
     		return "xml";
     	}
+    },
+    /**
+     * A small index page, with the line-by-line coverage of each script in a file of its own that's only loaded when
+     * the script is opened in the report.
+     */
+    HTML_PER_FILE {
+        @Override
+        public String getSuffix() {
+            return "index";
+        }
+
+        @Override
+        public String getExtension() {
+            return "html";
+        }
+    },
+    /**
+     * Compact, memory-mappable coverage data that can be read back with
+     * {@link com.github.timurstrekalov.saga.core.storage.BinaryCoverageFile}.
+     */
+    BINARY {
+        @Override
+        public String getSuffix() {
+            return "coverage";
+        }
+
+        @Override
+        public String getExtension() {
+            return "bin";
+        }
     };
 
     public String getSuffix() {
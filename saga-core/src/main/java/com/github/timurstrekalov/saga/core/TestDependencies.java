@@ -0,0 +1,244 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.SourceLines;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.github.timurstrekalov.saga.core.storage.BinaryCoverageFile;
+import com.github.timurstrekalov.saga.core.storage.BinaryCoverageWriter;
+import com.github.timurstrekalov.saga.core.util.UriUtil;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.codehaus.plexus.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which scripts each test loaded and what coverage it produced, so that an incremental run only has to run
+ * the tests affected by changes since the previous one and can reuse the stored coverage of all the others.
+ * <p/>
+ * The directory holds an index mapping each test's URI relative to the base URI to the hash of the test file, and the
+ * coverage of each test as a BINARY coverage file, whose file table lists the scripts the test loaded along with the
+ * hashes of their sources. A test is affected if its own file or any of those scripts changed.
+ */
+final class TestDependencies {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestDependencies.class);
+
+    private static final String INDEX_FILE_NAME = "tests.properties";
+
+    private final URI baseUri;
+    private final File dir;
+    private final Charset sourceEncoding;
+
+    // guarded by this, tests are recorded as they finish
+    private final Properties testHashes = new Properties();
+
+    // scripts are usually loaded by many tests, no need to hash them over and over
+    private final Map<URI, byte[]> currentContentHashes = Maps.newHashMap();
+
+    private TestDependencies(final URI baseUri, final File dir, final Charset sourceEncoding) {
+        this.baseUri = baseUri;
+        this.dir = dir;
+        this.sourceEncoding = sourceEncoding;
+    }
+
+    static TestDependencies empty(final URI baseUri, final File dir, final Charset sourceEncoding) {
+        return new TestDependencies(baseUri, dir, sourceEncoding);
+    }
+
+    static TestDependencies load(final URI baseUri, final File dir, final Charset sourceEncoding) throws IOException {
+        final TestDependencies dependencies = empty(baseUri, dir, sourceEncoding);
+        final File indexFile = new File(dir, INDEX_FILE_NAME);
+
+        if (indexFile.isFile()) {
+            final InputStream in = Files.newInputStreamSupplier(indexFile).getInput();
+
+            try {
+                dependencies.testHashes.load(in);
+            } finally {
+                Closeables.close(in, true);
+            }
+        }
+
+        return dependencies;
+    }
+
+    /**
+     * @return whether neither the test nor any of the scripts it loaded last time have changed since, so that its stored
+     *         coverage can be used instead of running it
+     */
+    boolean isUpToDate(final URI test) {
+        final String storedTestHash;
+        synchronized (this) {
+            storedTestHash = testHashes.getProperty(getKey(test));
+        }
+
+        final File coverageFile = getCoverageFile(test);
+
+        if (storedTestHash == null || !coverageFile.isFile() || !storedTestHash.equals(hashTestFile(test))) {
+            return false;
+        }
+
+        try {
+            final BinaryCoverageFile coverage = BinaryCoverageFile.open(coverageFile);
+
+            try {
+                final List<URI> scripts = coverage.getFileUris();
+
+                for (final URI script : scripts) {
+                    if (!isUpToDate(test, script, coverage.getContentHash(script), scripts)) {
+                        logger.debug("{} changed since {} was last run", script, test);
+                        return false;
+                    }
+                }
+            } finally {
+                coverage.close();
+            }
+        } catch (final IOException e) {
+            logger.debug("Could not read the stored coverage of {}: {}", test, e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean isUpToDate(final URI test, final URI script, final byte[] storedContentHash, final List<URI> scripts) {
+        if (!UriUtil.isFileUri(script)) {
+            // no telling whether it changed
+            return false;
+        }
+
+        if (script.getRawFragment() != null) {
+            // code eval'd by a script changes along with that script, as long as it's checked as well
+            return scripts.contains(URI.create(script.getScheme() + ":" + script.getRawSchemeSpecificPart()));
+        }
+
+        // the query string of a script loaded off the file system doesn't matter
+        final File file = new File(script.getPath());
+
+        if (!file.isFile()) {
+            // inline scripts are named after the page they're in, so they change along with the test itself
+            return script.toString().startsWith(test.toString());
+        }
+
+        byte[] contentHash = currentContentHashes.get(script);
+
+        if (contentHash == null) {
+            try {
+                contentHash = BinaryCoverageWriter.contentHash(SourceLines.of(Files.toString(file, sourceEncoding)));
+            } catch (final IOException e) {
+                return false;
+            }
+
+            currentContentHashes.put(script, contentHash);
+        }
+
+        return Arrays.equals(contentHash, storedContentHash);
+    }
+
+    /**
+     * @return the coverage the test produced the last time it was run
+     */
+    List<ScriptCoverageStatistics> loadStats(final URI test) throws IOException {
+        final BinaryCoverageFile coverage = BinaryCoverageFile.open(getCoverageFile(test));
+
+        try {
+            final List<ScriptCoverageStatistics> result = Lists.newArrayList();
+            for (final URI fileUri : coverage.getFileUris()) {
+                result.add(coverage.getFileStats(fileUri));
+            }
+
+            return result;
+        } finally {
+            coverage.close();
+        }
+    }
+
+    void record(final TestRunCoverageStatistics runStats) throws IOException {
+        final String testHash = hashTestFile(runStats.test);
+        if (testHash == null) {
+            return;
+        }
+
+        FileUtils.mkdir(dir.getAbsolutePath());
+        new BinaryCoverageWriter().write(runStats, getCoverageFile(runStats.test));
+
+        synchronized (this) {
+            testHashes.setProperty(getKey(runStats.test), testHash);
+        }
+    }
+
+    /**
+     * Forgets about the tests that don't exist anymore.
+     */
+    synchronized void retainOnly(final Collection<URI> tests) {
+        final Set<String> keys = Sets.newHashSet();
+        for (final URI test : tests) {
+            keys.add(getKey(test));
+        }
+
+        for (final String key : testHashes.stringPropertyNames()) {
+            if (!keys.contains(key)) {
+                testHashes.remove(key);
+                FileUtils.fileDelete(getCoverageFile(key).getAbsolutePath());
+            }
+        }
+    }
+
+    synchronized void save() throws IOException {
+        FileUtils.mkdir(dir.getAbsolutePath());
+
+        final OutputStream out = Files.newOutputStreamSupplier(new File(dir, INDEX_FILE_NAME)).getOutput();
+        boolean threw = true;
+
+        try {
+            testHashes.store(out, "Hashes of the tests whose coverage is stored");
+            threw = false;
+        } finally {
+            Closeables.close(out, threw);
+        }
+    }
+
+    private static String hashTestFile(final URI test) {
+        if (!UriUtil.isFileUri(test)) {
+            return null;
+        }
+
+        try {
+            return Files.hash(new File(test), Hashing.md5()).toString();
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    private File getCoverageFile(final URI test) {
+        return getCoverageFile(getKey(test));
+    }
+
+    private File getCoverageFile(final String key) {
+        return new File(dir, Hashing.md5().hashString(key, Charsets.UTF_8) + "." + ReportFormat.BINARY.getExtension());
+    }
+
+    private String getKey(final URI test) {
+        return baseUri.relativize(test).toString();
+    }
+
+}
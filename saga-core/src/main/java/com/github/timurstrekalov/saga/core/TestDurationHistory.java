@@ -0,0 +1,184 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.timurstrekalov.saga.core.util.UriUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.codehaus.plexus.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers how long each test took to run, so that the next run can start the longest tests first (the LPT rule),
+ * instead of having a slow test start last and keep one thread busy while the others have nothing left to do.
+ * <p/>
+ * Tests are identified by their URI relative to the base URI, so the history survives moving the project around.
+ */
+final class TestDurationHistory {
+
+    private static final Logger logger = LoggerFactory.getLogger(TestDurationHistory.class);
+
+    private final URI baseUri;
+    private final ConcurrentMap<String, Long> previousDurations = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, Long> currentDurations = Maps.newConcurrentMap();
+
+    TestDurationHistory(final URI baseUri) {
+        this.baseUri = baseUri;
+    }
+
+    static TestDurationHistory load(final URI baseUri, final File file) throws IOException {
+        final TestDurationHistory history = new TestDurationHistory(baseUri);
+
+        if (file.isFile()) {
+            final Properties properties = new Properties();
+            final InputStream in = Files.newInputStreamSupplier(file).getInput();
+
+            try {
+                properties.load(in);
+            } finally {
+                Closeables.close(in, true);
+            }
+
+            for (final String key : properties.stringPropertyNames()) {
+                try {
+                    history.previousDurations.put(key, Long.parseLong(properties.getProperty(key)));
+                } catch (final NumberFormatException e) {
+                    logger.debug("Ignoring invalid duration of {}: {}", key, properties.getProperty(key));
+                }
+            }
+        }
+
+        return history;
+    }
+
+    /**
+     * Saves the durations recorded during this run, as well as those of the tests that didn't run this time.
+     */
+    void save(final File file) throws IOException {
+        final Properties properties = new Properties();
+
+        for (final Map.Entry<String, Long> e : previousDurations.entrySet()) {
+            properties.setProperty(e.getKey(), String.valueOf(e.getValue()));
+        }
+        for (final Map.Entry<String, Long> e : currentDurations.entrySet()) {
+            properties.setProperty(e.getKey(), String.valueOf(e.getValue()));
+        }
+
+        FileUtils.mkdir(file.getAbsoluteFile().getParent());
+
+        final OutputStream out = Files.newOutputStreamSupplier(file).getOutput();
+        boolean threw = true;
+
+        try {
+            properties.store(out, "Test durations in milliseconds");
+            threw = false;
+        } finally {
+            Closeables.close(out, threw);
+        }
+    }
+
+    void record(final URI test, final long durationInMillis) {
+        currentDurations.put(getKey(test), durationInMillis);
+    }
+
+    /**
+     * Orders the tests so that the longest ones come first. The duration of a test that hasn't run before is estimated
+     * from the size of its file, using the average time per byte of the tests that have.
+     */
+    List<URI> longestFirst(final List<URI> tests) {
+        final Map<URI, Double> estimatedDurations = estimateDurations(tests);
+        final List<URI> result = Lists.newArrayList(tests);
+
+        // the sort is stable, so tests with equal estimates keep their original order
+        Collections.sort(result, new Comparator<URI>() {
+            @Override
+            public int compare(final URI a, final URI b) {
+                return Double.compare(estimatedDurations.get(b), estimatedDurations.get(a));
+            }
+        });
+
+        return result;
+    }
+
+    private Map<URI, Double> estimateDurations(final List<URI> tests) {
+        final Map<URI, Double> estimatedDurations = Maps.newHashMap();
+        final List<URI> unknownTests = Lists.newArrayList();
+
+        long knownDurationTotal = 0;
+        long knownSizeTotal = 0;
+
+        for (final URI test : tests) {
+            final Long duration = previousDurations.get(getKey(test));
+
+            if (duration == null) {
+                unknownTests.add(test);
+                continue;
+            }
+
+            estimatedDurations.put(test, duration.doubleValue());
+
+            final long size = getFileSize(test);
+            if (size > 0) {
+                knownDurationTotal += duration;
+                knownSizeTotal += size;
+            }
+        }
+
+        final int knownTestCount = estimatedDurations.size();
+        final double millisPerByte = knownSizeTotal > 0 ? (double) knownDurationTotal / knownSizeTotal : 0;
+        final double averageDuration = knownTestCount > 0 ? sum(estimatedDurations.values()) / knownTestCount : 0;
+
+        for (final URI test : unknownTests) {
+            final long size = getFileSize(test);
+
+            if (size > 0 && millisPerByte > 0) {
+                estimatedDurations.put(test, size * millisPerByte);
+            } else if (knownTestCount > 0) {
+                estimatedDurations.put(test, averageDuration);
+            } else {
+                // without any history to go by, the size alone still tells the big tests from the small ones
+                estimatedDurations.put(test, (double) size);
+            }
+        }
+
+        return estimatedDurations;
+    }
+
+    private String getKey(final URI test) {
+        return baseUri.relativize(test).toString();
+    }
+
+    private static double sum(final Iterable<Double> values) {
+        double sum = 0;
+        for (final Double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static long getFileSize(final URI test) {
+        if (!UriUtil.isFileUri(test)) {
+            return 0;
+        }
+
+        try {
+            return new File(test).length();
+        } catch (final IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+}
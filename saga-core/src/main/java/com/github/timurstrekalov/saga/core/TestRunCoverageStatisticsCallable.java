@@ -4,39 +4,65 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
 import com.github.timurstrekalov.saga.core.cfg.Config;
 import com.github.timurstrekalov.saga.core.instrumentation.InstrumentingBrowser;
-import com.github.timurstrekalov.saga.core.instrumentation.InstrumentingBrowserFactory;
+import com.github.timurstrekalov.saga.core.metrics.Metrics;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
 import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
 import com.github.timurstrekalov.saga.core.model.ScriptData;
 import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
 import com.github.timurstrekalov.saga.core.util.UriUtil;
+import com.google.common.base.Stopwatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 class TestRunCoverageStatisticsCallable implements Callable<TestRunCoverageStatistics> {
 
     private static final Logger logger = LoggerFactory.getLogger(TestRunCoverageStatisticsCallable.class);
-    private static final ThreadLocal<InstrumentingBrowser> localBrowser = new ThreadLocal<InstrumentingBrowser>();
 
     private final Config config;
+    private final BrowserPool browserPool;
+    private final TestDurationHistory testDurationHistory;
     private final URI test;
     private final OutputStrategy outputStrategy;
-
-    public TestRunCoverageStatisticsCallable(final Config config, final URI test, final OutputStrategy outputStrategy) {
+    private final TestRunCoverageStatistics totalStats;
+    private final Map<URI, Metrics> testMetrics;
+    private final boolean returnRunStats;
+
+    /**
+     * @param totalStats the stats to add the results of the test to or null if the total isn't needed
+     * @param returnRunStats whether the caller needs the results of the test itself, otherwise
+     * {@link TestRunCoverageStatistics#EMPTY} is returned once they're written and added to the total, so that they
+     * aren't kept for any longer than that
+     */
+    public TestRunCoverageStatisticsCallable(final Config config, final BrowserPool browserPool,
+            final TestDurationHistory testDurationHistory, final URI test, final OutputStrategy outputStrategy,
+            final TestRunCoverageStatistics totalStats, final Map<URI, Metrics> testMetrics, final boolean returnRunStats) {
         this.config = config;
+        this.browserPool = browserPool;
+        this.testDurationHistory = testDurationHistory;
         this.test = test;
         this.outputStrategy = outputStrategy;
+        this.totalStats = totalStats;
+        this.testMetrics = testMetrics;
+        this.returnRunStats = returnRunStats;
     }
 
     @Override
     public TestRunCoverageStatistics call() {
+        final InstrumentingBrowser browser = acquireBrowser();
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final Metrics metrics = MetricsRecorder.startTest();
+        boolean browserReusable = false;
+
         try {
             logger.info("Running test at {}", test.toString());
 
             try {
-                final TestRunCoverageStatistics runStats = runTest(test);
+                final TestRunCoverageStatistics runStats = runTest(browser, test);
+                browserReusable = true;
 
                 if (runStats == TestRunCoverageStatistics.EMPTY) {
                     logger.warn("No actual test run for file: {}", test);
@@ -48,50 +74,62 @@ class TestRunCoverageStatisticsCallable implements Callable<TestRunCoverageStati
                     }
                 }
 
-                return runStats;
+                if (totalStats != null && runStats != TestRunCoverageStatistics.EMPTY) {
+                    final long mergeStart = System.nanoTime();
+
+                    for (final ScriptCoverageStatistics scriptCoverageStatistics : runStats) {
+                        totalStats.add(scriptCoverageStatistics);
+                    }
+
+                    MetricsRecorder.recordTimeSince(MetricsRecorder.MERGE, mergeStart);
+                }
+
+                return returnRunStats ? runStats : TestRunCoverageStatistics.EMPTY;
             } catch (final IOException e) {
+                browserReusable = true;
                 return TestRunCoverageStatistics.EMPTY;
             } catch (final RuntimeException e) {
                 logger.warn("Error running test {}: {}", test.toString(), e.getMessage());
                 throw e;
             }
         } finally {
-        	// If browser was provided by external test runner, then
-        	// keep browser open so that test results can be read
-            if (localBrowser.get() != null && config.getInstrumentingBrowser() == null) {
-                logger.info("Quitting browser");
-                localBrowser.get().quit();
-            }
+            MetricsRecorder.endTest();
+            testMetrics.put(test, metrics);
+            testDurationHistory.record(test, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            releaseBrowser(browser, browserReusable);
         }
     }
 
-    private TestRunCoverageStatistics runTest(final URI test) throws IOException {
-        final InstrumentingBrowser browser = getLocalBrowser();
-
+    private TestRunCoverageStatistics runTest(final InstrumentingBrowser browser, final URI test) throws IOException {
         browser.get(test.toASCIIString());
 
-        final Map<String, Map<String, Long>> coverageData = browser.extractCoverageDataVariable();
+        final long extractionStart = System.nanoTime();
+        final Map<String, int[]> coverageData = browser.extractCoverageDataVariable();
+        MetricsRecorder.recordTimeSince(MetricsRecorder.COVERAGE_EXTRACTION, extractionStart);
 
         if (coverageData == null) {
             return TestRunCoverageStatistics.EMPTY;
         }
 
-        return collectAndWriteRunStats(test, coverageData);
+        final long statisticsStart = System.nanoTime();
+        final TestRunCoverageStatistics runStats = collectAndWriteRunStats(browser, test, coverageData);
+        MetricsRecorder.recordTimeSince(MetricsRecorder.STATISTICS, statisticsStart);
+
+        return runStats;
     }
 
-    private TestRunCoverageStatistics collectAndWriteRunStats(
-            final URI test, final Map<String, Map<String, Long>> coverageDataForAllScripts) throws IOException {
+    private TestRunCoverageStatistics collectAndWriteRunStats(final InstrumentingBrowser browser, final URI test,
+            final Map<String, int[]> coverageDataForAllScripts) throws IOException {
         final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(test);
         runStats.setSortBy(config.getSortBy());
         runStats.setOrder(config.getOrder());
 
         final URI baseUri = config.getBaseUri();
 
-        for (final ScriptData data : getLocalBrowser().getScriptDataList()) {
+        for (final ScriptData data : browser.getScriptDataList()) {
             final String sourceUri = data.getSourceUriAsString();
 
-            @SuppressWarnings("unchecked")
-            final Map<String, Long> coverageDataForScript = coverageDataForAllScripts.get(sourceUri);
+            final int[] coverageDataForScript = coverageDataForAllScripts.get(sourceUri);
             final ScriptCoverageStatistics scriptCoverageStatistics = data.generateScriptCoverageStatistics(baseUri, coverageDataForScript);
 
             runStats.add(scriptCoverageStatistics);
@@ -100,15 +138,26 @@ class TestRunCoverageStatisticsCallable implements Callable<TestRunCoverageStati
         return runStats;
     }
 
-    private InstrumentingBrowser getLocalBrowser() {
-    	if (config.getInstrumentingBrowser() != null) {
-    		// Browser is provided by external test runner
-    		return config.getInstrumentingBrowser();
-    	} else {
-    		if (localBrowser.get() == null) {
-        		localBrowser.set(InstrumentingBrowserFactory.newInstance(config));
-        	}
-            return localBrowser.get();
+    private InstrumentingBrowser acquireBrowser() {
+        if (config.getInstrumentingBrowser() != null) {
+            // Browser is provided by external test runner
+            return config.getInstrumentingBrowser();
+        }
+
+        return browserPool.acquire();
+    }
+
+    private void releaseBrowser(final InstrumentingBrowser browser, final boolean reusable) {
+        if (browser == config.getInstrumentingBrowser()) {
+            // If browser was provided by external test runner, then
+            // keep browser open so that test results can be read
+            return;
+        }
+
+        if (reusable) {
+            browserPool.release(browser);
+        } else {
+            browserPool.discard(browser);
         }
     }
 
@@ -1,17 +1,86 @@
 package com.github.timurstrekalov.saga.core;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
 import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
 import com.github.timurstrekalov.saga.core.reporter.ReporterFactory;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 
 public final class WritesStatistics {
 
+    private final ExecutorService executorService;
+
+    /**
+     * Writes the reports one after another, on the calling thread.
+     */
+    public WritesStatistics() {
+        this(null);
+    }
+
+    /**
+     * Writes every report format on a thread of its own from the given executor, returning once all of them are written.
+     */
+    public WritesStatistics(final ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
     public void write(final Config config, final TestRunCoverageStatistics stats) throws IOException {
+        if (executorService == null || config.getReportFormats().size() < 2) {
+            for (final ReportFormat reportFormat : config.getReportFormats()) {
+                writeReport(config, stats, reportFormat);
+            }
+            return;
+        }
+
+        final List<Future<Void>> futures = Lists.newArrayList();
+
         for (final ReportFormat reportFormat : config.getReportFormats()) {
-            ReporterFactory.reporterFor(reportFormat).writeReport(config.getBaseUri(), config.getOutputDir(), stats);
+            futures.add(executorService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws IOException {
+                    writeReport(config, stats, reportFormat);
+                    return null;
+                }
+            }));
         }
+
+        // wait for all of them, even if one fails, so that no report is still being written once we return
+        Throwable failure = null;
+
+        for (final Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing reports for " + stats.getTestName());
+            }
+        }
+
+        if (failure != null) {
+            Throwables.propagateIfInstanceOf(failure, IOException.class);
+            throw Throwables.propagate(failure);
+        }
+    }
+
+    private static void writeReport(final Config config, final TestRunCoverageStatistics stats, final ReportFormat reportFormat)
+            throws IOException {
+        final long start = System.nanoTime();
+        ReporterFactory.reporterFor(reportFormat).writeReport(config.getBaseUri(), config.getOutputDir(), stats);
+        MetricsRecorder.recordTimeSince(MetricsRecorder.REPORT_PREFIX + reportFormat.name().toLowerCase(Locale.ENGLISH), start);
     }
 
 }
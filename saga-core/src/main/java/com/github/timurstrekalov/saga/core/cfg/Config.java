@@ -9,6 +9,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.github.timurstrekalov.saga.core.CounterMode;
 import com.github.timurstrekalov.saga.core.Order;
 import com.github.timurstrekalov.saga.core.OutputStrategy;
 import com.github.timurstrekalov.saga.core.ReportFormat;
@@ -25,6 +26,7 @@ public interface Config {
     OutputStrategy DEFAULT_OUTPUT_STRATEGY = OutputStrategy.TOTAL;
     SortBy DEFAULT_SORT_BY = SortBy.COVERAGE;
     Order DEFAULT_ORDER = Order.DESC;
+    CounterMode DEFAULT_COUNTER_MODE = CounterMode.OBJECT;
 
     Set<ReportFormat> DEFAULT_REPORT_FORMATS = ImmutableSet.of(ReportFormat.HTML, ReportFormat.RAW, ReportFormat.COBERTURA);
 
@@ -32,11 +34,21 @@ public interface Config {
 
     int DEFAULT_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
     long DEFAULT_BACKGROUND_JAVASCRIPT_TIMEOUT = 5 * 60 * 1000;
+    long DEFAULT_WATCH_INTERVAL = 1000;
+    int DEFAULT_MAX_TESTS_PER_BROWSER = 50;
+    int DEFAULT_BROWSER_RECYCLE_HEAP_THRESHOLD = 80;
+    int DEFAULT_SHARD_INDEX = 0;
+    int DEFAULT_SHARD_COUNT = 1;
+    long DEFAULT_STATIC_RESOURCE_CACHE_SIZE = 64 * 1024 * 1024;
 
     boolean DEFAULT_CACHE_INSTRUMENTED_CODE = true;
     boolean DEFAULT_INCLUDE_INLINE_SCRIPTS = false;
+    boolean DEFAULT_INCREMENTAL = false;
+    boolean DEFAULT_LEAN_BROWSER = false;
 
     String INSTRUMENTED_FILE_DIRECTORY_NAME = "instrumented";
+    String DEFAULT_TEST_DURATION_HISTORY_FILE_NAME = "test-durations.properties";
+    String DEFAULT_INCREMENTAL_DATA_DIRECTORY_NAME = "incremental";
     String DEFAULT_WEB_DRIVER_CLASS_NAME = "org.openqa.selenium.htmlunit.HtmlUnitDriver";
 
     // TODO stop this configuration setter madness
@@ -53,16 +65,50 @@ public interface Config {
 
     void setNoInstrumentPatterns(String[] noInstrumentPatterns);
 
+    void setStaticResourcePatterns(Collection<String> staticResourcePatterns);
+
+    void setStaticResourcePatterns(String[] staticResourcePatterns);
+
+    void setStaticResourceCacheSize(Long staticResourceCacheSize);
+
+    void setBlockedUrlPatterns(Collection<String> blockedUrlPatterns);
+
+    void setBlockedUrlPatterns(String[] blockedUrlPatterns);
+
+    void setLeanBrowser(Boolean leanBrowser);
+
     void setOutputInstrumentedFiles(Boolean outputInstrumentedFiles);
 
     void setCacheInstrumentedCode(Boolean cacheInstrumentedCode);
 
+    void setInstrumentationCacheDir(File instrumentationCacheDir);
+
+    void setCounterMode(String counterMode);
+
+    void setCounterMode(CounterMode counterMode);
+
     void setOutputStrategy(String outputStrategy);
 
     void setOutputStrategy(OutputStrategy outputStrategy);
 
     void setThreadCount(Integer threadCount);
 
+    void setMaxTestsPerBrowser(Integer maxTestsPerBrowser);
+
+    void setBrowserRecycleHeapThreshold(Integer browserRecycleHeapThreshold);
+
+    void setTestDurationHistoryFile(File testDurationHistoryFile);
+
+    void setShardIndex(Integer shardIndex);
+
+    void setShardCount(Integer shardCount);
+
+    void setIncremental(Boolean incremental);
+
+    void setIncrementalDataDir(File incrementalDataDir);
+
+    void setWatchInterval(Long watchInterval);
+
     void setIncludeInlineScripts(Boolean includeInlineScripts);
 
     void setBackgroundJavaScriptTimeout(Long backgroundJavaScriptTimeout);
@@ -77,6 +123,8 @@ public interface Config {
 
     void setReportFormats(String reportFormatString);
 
+    void setCoverageDataFiles(String coverageDataFiles);
+
     void setSortBy(String sortBy);
 
     void setOrder(String order);
@@ -99,14 +147,88 @@ public interface Config {
 
     Set<String> getNoInstrumentPatterns();
 
+    /**
+     * @return the regular expressions matching the URLs of the resources that don't change during a run (e.g.
+     * libraries), which are only read once and then served from memory to every test
+     */
+    Set<String> getStaticResourcePatterns();
+
+    /**
+     * @return the maximum total size of the static resources to keep in memory, in bytes
+     */
+    long getStaticResourceCacheSize();
+
+    /**
+     * @return the regular expressions matching the URLs of the requests to answer with an empty response right away,
+     * e.g. the ones to analytics services
+     */
+    Set<String> getBlockedUrlPatterns();
+
+    /**
+     * @return whether the HtmlUnit browsers skip the work that doesn't affect coverage, i.e. processing CSS, running
+     * applets and loading images, stylesheets, fonts and other resources that aren't scripts
+     */
+    boolean isLeanBrowser();
+
     boolean isOutputInstrumentedFiles();
 
     boolean isCacheInstrumentedCode();
 
+    /**
+     * @return the directory to persist instrumented code in across runs or null if it shouldn't be persisted
+     */
+    File getInstrumentationCacheDir();
+
+    CounterMode getCounterMode();
+
     OutputStrategy getOutputStrategy();
 
     int getThreadCount();
 
+    /**
+     * @return the number of tests a browser runs before it's quit and replaced with a fresh one
+     */
+    int getMaxTestsPerBrowser();
+
+    /**
+     * @return the percentage of the maximum heap size in use past which browsers are quit instead of being reused
+     */
+    int getBrowserRecycleHeapThreshold();
+
+    /**
+     * @return the file to keep the durations of the tests in, used to run the longest tests first; defaults to
+     * {@link #DEFAULT_TEST_DURATION_HISTORY_FILE_NAME} in the output directory
+     */
+    File getTestDurationHistoryFile();
+
+    /**
+     * @return the zero-based index of the shard of the tests to run, out of {@link #getShardCount()}
+     */
+    int getShardIndex();
+
+    /**
+     * @return the number of shards to split the tests into, e.g. to run them on several machines and merge the
+     * coverage afterwards; every test always ends up in the same shard
+     */
+    int getShardCount();
+
+    /**
+     * @return whether to only run the tests affected by changes to them or to the scripts they loaded since the previous
+     * run, reusing the stored coverage of the other ones
+     */
+    boolean isIncremental();
+
+    /**
+     * @return the directory to keep the per-test coverage and dependencies of incremental runs in; defaults to
+     * {@link #DEFAULT_INCREMENTAL_DATA_DIRECTORY_NAME} in the output directory
+     */
+    File getIncrementalDataDir();
+
+    /**
+     * @return how often to check the base directory for changes while watching it, in milliseconds
+     */
+    long getWatchInterval();
+
     boolean isIncludeInlineScripts();
 
     long getBackgroundJavaScriptTimeout();
@@ -119,6 +241,12 @@ public interface Config {
 
     Set<ReportFormat> getReportFormats();
 
+    /**
+     * @return previously written coverage data (BINARY reports or a single RAW one) to generate reports from instead of
+     * running the tests, empty unless set
+     */
+    List<File> getCoverageDataFiles();
+
     SortBy getSortBy();
 
     Order getOrder();
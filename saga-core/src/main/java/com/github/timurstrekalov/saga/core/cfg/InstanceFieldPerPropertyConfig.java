@@ -9,6 +9,7 @@ import java.util.Set;
 import java.util.regex.Pattern;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.github.timurstrekalov.saga.core.CounterMode;
 import com.github.timurstrekalov.saga.core.Order;
 import com.github.timurstrekalov.saga.core.OutputStrategy;
 import com.github.timurstrekalov.saga.core.ReportFormat;
@@ -22,6 +23,7 @@ import com.google.common.base.Splitter;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.slf4j.Logger;
@@ -39,18 +41,33 @@ public class InstanceFieldPerPropertyConfig implements Config {
     private String excludes;
 
     private Set<String> noInstrumentPatterns = Sets.newHashSet();
+    private Set<String> staticResourcePatterns = Sets.newHashSet();
+    private Set<String> blockedUrlPatterns = Sets.newHashSet();
     private Set<ReportFormat> reportFormats = Config.DEFAULT_REPORT_FORMATS;
+    private List<File> coverageDataFiles = Lists.newArrayList();
 
     private boolean outputInstrumentedFiles;
 
     private boolean cacheInstrumentedCode = Config.DEFAULT_CACHE_INSTRUMENTED_CODE;
+    private File instrumentationCacheDir;
     private boolean includeInlineScripts = Config.DEFAULT_INCLUDE_INLINE_SCRIPTS;
 
+    private CounterMode counterMode = Config.DEFAULT_COUNTER_MODE;
     private OutputStrategy outputStrategy = Config.DEFAULT_OUTPUT_STRATEGY;
     private BrowserVersion browserVersion = Config.DEFAULT_BROWSER_VERSION;
 
     private int threadCount = Config.DEFAULT_THREAD_COUNT;
+    private int maxTestsPerBrowser = Config.DEFAULT_MAX_TESTS_PER_BROWSER;
+    private int browserRecycleHeapThreshold = Config.DEFAULT_BROWSER_RECYCLE_HEAP_THRESHOLD;
+    private File testDurationHistoryFile;
+    private int shardIndex = Config.DEFAULT_SHARD_INDEX;
+    private int shardCount = Config.DEFAULT_SHARD_COUNT;
+    private boolean incremental = Config.DEFAULT_INCREMENTAL;
+    private boolean leanBrowser = Config.DEFAULT_LEAN_BROWSER;
+    private File incrementalDataDir;
+    private long watchInterval = Config.DEFAULT_WATCH_INTERVAL;
     private long backgroundJavaScriptTimeout = Config.DEFAULT_BACKGROUND_JAVASCRIPT_TIMEOUT;
+    private long staticResourceCacheSize = Config.DEFAULT_STATIC_RESOURCE_CACHE_SIZE;
 
     private String sourcesToPreload;
     private String sourcesToPreloadEncoding = Config.DEFAULT_SOURCES_TO_PRELOAD_ENCODING;
@@ -98,6 +115,49 @@ public class InstanceFieldPerPropertyConfig implements Config {
         }
     }
 
+    @Override
+    public void setStaticResourcePatterns(final Collection<String> staticResourcePatterns) {
+        if (staticResourcePatterns != null) {
+            this.staticResourcePatterns = Sets.newHashSet(staticResourcePatterns);
+        }
+    }
+
+    @Override
+    public void setStaticResourcePatterns(final String[] staticResourcePatterns) {
+        if (staticResourcePatterns != null) {
+            setStaticResourcePatterns(ImmutableList.copyOf(staticResourcePatterns));
+        }
+    }
+
+    @Override
+    public void setStaticResourceCacheSize(final Long staticResourceCacheSize) {
+        if (staticResourceCacheSize != null) {
+            Preconditions.checkArgument(staticResourceCacheSize > 0, "Static resource cache size must be greater than zero");
+            this.staticResourceCacheSize = staticResourceCacheSize;
+        }
+    }
+
+    @Override
+    public void setBlockedUrlPatterns(final Collection<String> blockedUrlPatterns) {
+        if (blockedUrlPatterns != null) {
+            this.blockedUrlPatterns = Sets.newHashSet(blockedUrlPatterns);
+        }
+    }
+
+    @Override
+    public void setBlockedUrlPatterns(final String[] blockedUrlPatterns) {
+        if (blockedUrlPatterns != null) {
+            setBlockedUrlPatterns(ImmutableList.copyOf(blockedUrlPatterns));
+        }
+    }
+
+    @Override
+    public void setLeanBrowser(final Boolean leanBrowser) {
+        if (leanBrowser != null) {
+            this.leanBrowser = leanBrowser;
+        }
+    }
+
     @Override
     public void setOutputInstrumentedFiles(final Boolean outputInstrumentedFiles) {
         if (outputInstrumentedFiles != null) {
@@ -112,6 +172,25 @@ public class InstanceFieldPerPropertyConfig implements Config {
         }
     }
 
+    @Override
+    public void setInstrumentationCacheDir(final File instrumentationCacheDir) {
+        this.instrumentationCacheDir = instrumentationCacheDir;
+    }
+
+    @Override
+    public void setCounterMode(final String counterMode) {
+        if (counterMode != null) {
+            setCounterMode(CounterMode.valueOf(counterMode.trim().toUpperCase()));
+        }
+    }
+
+    @Override
+    public void setCounterMode(final CounterMode counterMode) {
+        if (counterMode != null) {
+            this.counterMode = counterMode;
+        }
+    }
+
     @Override
     public void setOutputStrategy(final String outputStrategy) {
         if (outputStrategy != null) {
@@ -134,6 +213,68 @@ public class InstanceFieldPerPropertyConfig implements Config {
         }
     }
 
+    @Override
+    public void setMaxTestsPerBrowser(final Integer maxTestsPerBrowser) {
+        if (maxTestsPerBrowser != null) {
+            Preconditions.checkArgument(maxTestsPerBrowser > 0, "Maximum number of tests per browser must be greater than zero");
+            this.maxTestsPerBrowser = maxTestsPerBrowser;
+        }
+    }
+
+    @Override
+    public void setTestDurationHistoryFile(final File testDurationHistoryFile) {
+        if (testDurationHistoryFile != null) {
+            this.testDurationHistoryFile = testDurationHistoryFile;
+        }
+    }
+
+    @Override
+    public void setShardIndex(final Integer shardIndex) {
+        if (shardIndex != null) {
+            Preconditions.checkArgument(shardIndex >= 0, "Shard index cannot be negative");
+            this.shardIndex = shardIndex;
+        }
+    }
+
+    @Override
+    public void setShardCount(final Integer shardCount) {
+        if (shardCount != null) {
+            Preconditions.checkArgument(shardCount > 0, "Shard count must be positive");
+            this.shardCount = shardCount;
+        }
+    }
+
+    @Override
+    public void setIncremental(final Boolean incremental) {
+        if (incremental != null) {
+            this.incremental = incremental;
+        }
+    }
+
+    @Override
+    public void setIncrementalDataDir(final File incrementalDataDir) {
+        if (incrementalDataDir != null) {
+            this.incrementalDataDir = incrementalDataDir;
+        }
+    }
+
+    @Override
+    public void setWatchInterval(final Long watchInterval) {
+        if (watchInterval != null) {
+            Preconditions.checkArgument(watchInterval > 0, "Watch interval must be greater than zero");
+            this.watchInterval = watchInterval;
+        }
+    }
+
+    @Override
+    public void setBrowserRecycleHeapThreshold(final Integer browserRecycleHeapThreshold) {
+        if (browserRecycleHeapThreshold != null) {
+            Preconditions.checkArgument(browserRecycleHeapThreshold > 0 && browserRecycleHeapThreshold <= 100,
+                    "Browser recycle heap threshold must be a percentage between 1 and 100");
+            this.browserRecycleHeapThreshold = browserRecycleHeapThreshold;
+        }
+    }
+
     @Override
     public void setIncludeInlineScripts(final Boolean includeInlineScripts) {
         if (includeInlineScripts != null) {
@@ -203,6 +344,24 @@ public class InstanceFieldPerPropertyConfig implements Config {
         }));
     }
 
+    @Override
+    public void setCoverageDataFiles(final String coverageDataFiles) {
+        if (coverageDataFiles == null) {
+            return;
+        }
+
+        this.coverageDataFiles = Lists.newArrayList(Iterables.transform(Splitter.on(",")
+                .omitEmptyStrings()
+                .trimResults()
+                .split(coverageDataFiles), new Function<String, File>() {
+
+            @Override
+            public File apply(final String input) {
+                return new File(input);
+            }
+        }));
+    }
+
     @Override
     public void setSortBy(final String sortBy) {
         if (sortBy == null) {
@@ -251,6 +410,26 @@ public class InstanceFieldPerPropertyConfig implements Config {
         return noInstrumentPatterns;
     }
 
+    @Override
+    public Set<String> getStaticResourcePatterns() {
+        return staticResourcePatterns;
+    }
+
+    @Override
+    public long getStaticResourceCacheSize() {
+        return staticResourceCacheSize;
+    }
+
+    @Override
+    public Set<String> getBlockedUrlPatterns() {
+        return blockedUrlPatterns;
+    }
+
+    @Override
+    public boolean isLeanBrowser() {
+        return leanBrowser;
+    }
+
     @Override
     public boolean isOutputInstrumentedFiles() {
         return outputInstrumentedFiles;
@@ -261,6 +440,16 @@ public class InstanceFieldPerPropertyConfig implements Config {
         return cacheInstrumentedCode;
     }
 
+    @Override
+    public File getInstrumentationCacheDir() {
+        return instrumentationCacheDir;
+    }
+
+    @Override
+    public CounterMode getCounterMode() {
+        return counterMode;
+    }
+
     @Override
     public OutputStrategy getOutputStrategy() {
         return outputStrategy;
@@ -271,6 +460,46 @@ public class InstanceFieldPerPropertyConfig implements Config {
         return threadCount;
     }
 
+    @Override
+    public File getTestDurationHistoryFile() {
+        return testDurationHistoryFile != null ? testDurationHistoryFile : new File(outputDir, DEFAULT_TEST_DURATION_HISTORY_FILE_NAME);
+    }
+
+    @Override
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    @Override
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    @Override
+    public File getIncrementalDataDir() {
+        return incrementalDataDir != null ? incrementalDataDir : new File(outputDir, DEFAULT_INCREMENTAL_DATA_DIRECTORY_NAME);
+    }
+
+    @Override
+    public long getWatchInterval() {
+        return watchInterval;
+    }
+
+    @Override
+    public int getMaxTestsPerBrowser() {
+        return maxTestsPerBrowser;
+    }
+
+    @Override
+    public int getBrowserRecycleHeapThreshold() {
+        return browserRecycleHeapThreshold;
+    }
+
     @Override
     public boolean isIncludeInlineScripts() {
         return includeInlineScripts;
@@ -301,6 +530,11 @@ public class InstanceFieldPerPropertyConfig implements Config {
         return reportFormats;
     }
 
+    @Override
+    public List<File> getCoverageDataFiles() {
+        return coverageDataFiles;
+    }
+
     @Override
     public SortBy getSortBy() {
         return sortBy;
@@ -0,0 +1,116 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.ScriptPreProcessor;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.JavaScriptEngine;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.sourceforge.htmlunit.corejs.javascript.Script;
+
+/**
+ * Compiles every script once per JVM rather than once per page, sharing the compiled scripts between all browsers and
+ * threads, which Rhino allows. Compiling the instrumented scripts of a page usually takes far longer than running them.
+ * <p/>
+ * The scripts are looked up by their source after pre-processing (i.e. after instrumentation), so the pre-processor
+ * still runs for every page, keeping track of the scripts on it, and only compilation is skipped. The web client has to
+ * hide its pre-processor while a script {@link #isCompilingPreProcessedScript() is being compiled}, so that it doesn't
+ * run twice.
+ */
+final class CachingJavaScriptEngine extends JavaScriptEngine {
+
+    // soft values, since the scripts of a large suite add up, and compiling one again is always an option
+    private static final Cache<Key, Script> compiledScripts = CacheBuilder.newBuilder().softValues().build();
+
+    private static final ThreadLocal<Boolean> compilingPreProcessedScript = new ThreadLocal<Boolean>();
+
+    CachingJavaScriptEngine(final WebClient webClient) {
+        super(webClient);
+    }
+
+    static boolean isCompilingPreProcessedScript() {
+        return compilingPreProcessedScript.get() != null;
+    }
+
+    @Override
+    public Script compile(final HtmlPage htmlPage, final String sourceCode, final String sourceName, final int startLine) {
+        final ScriptPreProcessor preProcessor = getWebClient().getScriptPreProcessor();
+        final String preProcessedSourceCode = preProcessor != null
+                ? Objects.firstNonNull(preProcessor.preProcess(htmlPage, sourceCode, sourceName, startLine, null), "")
+                : sourceCode;
+
+        // the browser version determines how the source is compiled
+        final Key key = new Key(getWebClient().getBrowserVersion(), preProcessedSourceCode, sourceName, startLine);
+
+        final Script cachedScript = compiledScripts.getIfPresent(key);
+        if (cachedScript != null) {
+            MetricsRecorder.increment(MetricsRecorder.COMPILED_SCRIPT_CACHE_HITS);
+            return cachedScript;
+        }
+
+        MetricsRecorder.increment(MetricsRecorder.COMPILED_SCRIPT_CACHE_MISSES);
+
+        final long start = System.nanoTime();
+        final Script script;
+
+        compilingPreProcessedScript.set(Boolean.TRUE);
+        try {
+            script = super.compile(htmlPage, preProcessedSourceCode, sourceName, startLine);
+        } finally {
+            compilingPreProcessedScript.remove();
+        }
+
+        MetricsRecorder.recordTimeSince(MetricsRecorder.COMPILATION, start);
+
+        // a syntax error, which has been reported already
+        if (script != null) {
+            compiledScripts.put(key, script);
+        }
+
+        return script;
+    }
+
+    private static final class Key {
+
+        private final BrowserVersion browserVersion;
+        private final String sourceCode;
+        private final String sourceName;
+        private final int startLine;
+
+        Key(final BrowserVersion browserVersion, final String sourceCode, final String sourceName, final int startLine) {
+            this.browserVersion = browserVersion;
+            this.sourceCode = sourceCode;
+            this.sourceName = sourceName;
+            this.startLine = startLine;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key other = (Key) o;
+
+            // the source code is the same instance most of the time, coming from the instrumentation cache
+            return startLine == other.startLine
+                    && browserVersion.equals(other.browserVersion)
+                    && Objects.equal(sourceName, other.sourceName)
+                    && sourceCode.equals(other.sourceCode);
+        }
+
+        @Override
+        public int hashCode() {
+            // String caches its hash code, so this is cheap for the same instance
+            return Objects.hashCode(browserVersion, sourceCode, sourceName, startLine);
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.apache.http.HttpStatus;
+
+/**
+ * Decides which requests a browser answers with an empty response right away instead of loading anything, i.e. the ones
+ * to URLs matching one of the blocked patterns (e.g. analytics scripts) and, optionally, the ones for resources that
+ * can't affect coverage, such as images, stylesheets and fonts.
+ * <p/>
+ * Some browser versions send a distinct Accept header for images and stylesheets, which is used to recognize them;
+ * other resources are recognized by the extensions of their URLs.
+ */
+public final class RequestFilter {
+
+    private static final Set<String> NON_SCRIPT_EXTENSIONS = ImmutableSet.of(
+            "css", "png", "gif", "jpg", "jpeg", "bmp", "ico", "svg", "webp",
+            "woff", "woff2", "ttf", "otf", "eot",
+            "mp3", "mp4", "ogg", "wav", "webm",
+            "swf", "class", "jar");
+
+    private static final List<NameValuePair> NO_HEADERS = Collections.emptyList();
+
+    private final List<Pattern> blockedUrlPatterns;
+    private final boolean skipNonScriptResources;
+
+    /**
+     * @param blockedUrlPatterns the regular expressions matching the URLs of the requests to block
+     * @param skipNonScriptResources whether to block the requests for resources other than pages and scripts
+     */
+    public RequestFilter(final Collection<String> blockedUrlPatterns, final boolean skipNonScriptResources) {
+        final List<Pattern> compiledPatterns = Lists.newArrayListWithCapacity(blockedUrlPatterns.size());
+        for (final String pattern : blockedUrlPatterns) {
+            compiledPatterns.add(Pattern.compile(pattern));
+        }
+
+        this.blockedUrlPatterns = ImmutableList.copyOf(compiledPatterns);
+        this.skipNonScriptResources = skipNonScriptResources;
+    }
+
+    public boolean isBlocked(final WebRequest request, final BrowserVersion browserVersion) {
+        final String url = request.getUrl().toExternalForm();
+        for (final Pattern pattern : blockedUrlPatterns) {
+            if (pattern.matcher(url).matches()) {
+                return true;
+            }
+        }
+
+        return skipNonScriptResources && isNonScriptResource(request, browserVersion);
+    }
+
+    private static boolean isNonScriptResource(final WebRequest request, final BrowserVersion browserVersion) {
+        final String accept = request.getAdditionalHeaders().get("Accept");
+
+        // not telling anything apart if the browser version accepts anything for everything
+        if (accept != null && !accept.equals(browserVersion.getScriptAcceptHeader())
+                && (accept.equals(browserVersion.getImgAcceptHeader()) || accept.equals(browserVersion.getCssAcceptHeader()))) {
+            return true;
+        }
+
+        final String path = request.getUrl().getPath();
+        final int extensionStart = path.lastIndexOf('.');
+
+        return extensionStart > path.lastIndexOf('/')
+                && NON_SCRIPT_EXTENSIONS.contains(path.substring(extensionStart + 1).toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return a successful response without any content, so that e.g. the onload handlers of images still get called
+     */
+    public static WebResponse emptyResponse(final WebRequest request) {
+        return new WebResponse(new WebResponseData(new byte[0], HttpStatus.SC_OK, "OK", NO_HEADERS), request, 0);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import java.io.IOException;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.ScriptPreProcessor;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+
+/**
+ * The web client created by {@link WebClientFactory}.
+ */
+public final class SagaWebClient extends WebClient {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile RequestFilter requestFilter;
+    private volatile StaticResourceCache staticResourceCache;
+
+    SagaWebClient(final BrowserVersion browserVersion) {
+        super(browserVersion);
+    }
+
+    /**
+     * @param requestFilter the filter of the requests to answer with an empty response or null not to block any
+     */
+    public void setRequestFilter(final RequestFilter requestFilter) {
+        this.requestFilter = requestFilter;
+    }
+
+    /**
+     * @param staticResourceCache the cache to serve static resources from or null not to cache them
+     */
+    public void setStaticResourceCache(final StaticResourceCache staticResourceCache) {
+        this.staticResourceCache = staticResourceCache;
+    }
+
+    @Override
+    public WebResponse loadWebResponse(final WebRequest webRequest) throws IOException {
+        // local files never reach the web connection, so this is the one place all resources go through
+        final RequestFilter filter = requestFilter;
+        if (filter != null && filter.isBlocked(webRequest, getBrowserVersion())) {
+            MetricsRecorder.increment(MetricsRecorder.BLOCKED_REQUESTS);
+            return RequestFilter.emptyResponse(webRequest);
+        }
+
+        final StaticResourceCache cache = staticResourceCache;
+        if (cache == null) {
+            return super.loadWebResponse(webRequest);
+        }
+
+        final WebResponse cachedResponse = cache.get(webRequest);
+        if (cachedResponse != null) {
+            return cachedResponse;
+        }
+
+        return cache.put(webRequest, new WebResponseProxy(super.loadWebResponse(webRequest)));
+    }
+
+    @Override
+    public ScriptPreProcessor getScriptPreProcessor() {
+        // the script engine runs the pre-processor itself before compiling anything
+        return CachingJavaScriptEngine.isCompilingPreProcessedScript() ? null : super.getScriptPreProcessor();
+    }
+
+}
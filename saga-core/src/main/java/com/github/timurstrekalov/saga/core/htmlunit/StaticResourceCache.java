@@ -0,0 +1,203 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+import org.apache.http.HttpStatus;
+
+/**
+ * Keeps the responses of static resources (libraries, fixtures, stylesheets, etc.) in memory, so that they're read once
+ * rather than once per test page. Only the resources whose URLs match one of the given patterns are cached, as they're
+ * assumed not to change during a run. The exception are local files, which are checked for modifications on every
+ * lookup, since they may well change while the base directory is being watched.
+ * <p/>
+ * The responses are shared between all browsers and threads, evicting the least recently used ones once their bodies
+ * take up more than the maximum size.
+ */
+public final class StaticResourceCache {
+
+    private static final String FILE_PROTOCOL = "file";
+
+    // one per maximum size, which is the same for every browser of a run
+    private static final ConcurrentMap<Long, Cache<String, CachedResponse>> cachesByMaximumSize = Maps.newConcurrentMap();
+
+    private final List<Pattern> patterns;
+    private final Cache<String, CachedResponse> responses;
+
+    /**
+     * @param patterns the regular expressions matching the URLs of the resources to cache
+     * @param maximumSize the maximum total size of the cached response bodies, in bytes
+     */
+    public StaticResourceCache(final Collection<String> patterns, final long maximumSize) {
+        Preconditions.checkArgument(maximumSize > 0, "Maximum size must be greater than zero");
+
+        final List<Pattern> compiledPatterns = Lists.newArrayListWithCapacity(patterns.size());
+        for (final String pattern : patterns) {
+            compiledPatterns.add(Pattern.compile(pattern));
+        }
+
+        this.patterns = ImmutableList.copyOf(compiledPatterns);
+        this.responses = getSharedCache(maximumSize);
+    }
+
+    private static Cache<String, CachedResponse> getSharedCache(final long maximumSize) {
+        final Cache<String, CachedResponse> cache = cachesByMaximumSize.get(maximumSize);
+        if (cache != null) {
+            return cache;
+        }
+
+        final Cache<String, CachedResponse> newCache = CacheBuilder.newBuilder()
+                .maximumWeight(maximumSize)
+                .weigher(new Weigher<String, CachedResponse>() {
+                    @Override
+                    public int weigh(final String url, final CachedResponse response) {
+                        return response.size;
+                    }
+                })
+                .build();
+
+        final Cache<String, CachedResponse> existingCache = cachesByMaximumSize.putIfAbsent(maximumSize, newCache);
+        return existingCache != null ? existingCache : newCache;
+    }
+
+    /**
+     * @return the cached response to the request or null if there's no up-to-date one
+     */
+    public WebResponse get(final WebRequest request) {
+        if (!isCacheable(request)) {
+            return null;
+        }
+
+        final URL url = request.getUrl();
+        final String key = url.toExternalForm();
+        final CachedResponse cachedResponse = responses.getIfPresent(key);
+
+        if (cachedResponse == null || !cachedResponse.isUpToDate(url)) {
+            MetricsRecorder.increment(MetricsRecorder.STATIC_RESOURCE_CACHE_MISSES);
+            return null;
+        }
+
+        MetricsRecorder.increment(MetricsRecorder.STATIC_RESOURCE_CACHE_HITS);
+        return new WebResponse(cachedResponse.data, request, 0);
+    }
+
+    /**
+     * Reads the response into memory if it's a successful response to a cacheable request, returning a response that
+     * can be read instead of the original one.
+     */
+    public WebResponse put(final WebRequest request, final WebResponse response) throws IOException {
+        if (!isCacheable(request) || response.getStatusCode() != HttpStatus.SC_OK) {
+            return response;
+        }
+
+        final URL url = request.getUrl();
+
+        // looked at before reading the file, so that a modification while reading it makes the entry stale
+        final long lastModified;
+        final long length;
+
+        if (FILE_PROTOCOL.equals(url.getProtocol())) {
+            final File file = toFile(url);
+            lastModified = file.lastModified();
+            length = file.length();
+        } else {
+            lastModified = -1;
+            length = -1;
+        }
+
+        final byte[] body;
+        final InputStream in = response.getContentAsStream();
+        try {
+            body = ByteStreams.toByteArray(in);
+        } finally {
+            Closeables.close(in, true);
+        }
+
+        // the body has already been decoded, so neither of these applies to it anymore
+        final List<NameValuePair> headers = Lists.newArrayList();
+        for (final NameValuePair header : response.getResponseHeaders()) {
+            if (!"Content-Encoding".equalsIgnoreCase(header.getName()) && !"Content-Length".equalsIgnoreCase(header.getName())) {
+                headers.add(header);
+            }
+        }
+
+        final WebResponseData data = new WebResponseData(body, response.getStatusCode(), response.getStatusMessage(), headers);
+        responses.put(url.toExternalForm(), new CachedResponse(data, body.length, lastModified, length));
+
+        return new WebResponse(data, request, response.getLoadTime());
+    }
+
+    private boolean isCacheable(final WebRequest request) {
+        if (patterns.isEmpty() || request.getHttpMethod() != HttpMethod.GET) {
+            return false;
+        }
+
+        final String url = request.getUrl().toExternalForm();
+        for (final Pattern pattern : patterns) {
+            if (pattern.matcher(url).matches()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static File toFile(final URL url) {
+        // the same file HtmlUnit loads, i.e. without the query and the fragment, with escapes such as %20 decoded
+        try {
+            return new File(new URI(FILE_PROTOCOL + ':' + url.getPath()));
+        } catch (final URISyntaxException e) {
+            // not escaped at all, e.g. file:/some dir/lib.js
+            return new File(url.getPath());
+        }
+    }
+
+    private static final class CachedResponse {
+
+        private final WebResponseData data;
+        private final int size;
+        private final long lastModified;
+        private final long length;
+
+        CachedResponse(final WebResponseData data, final int size, final long lastModified, final long length) {
+            this.data = data;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean isUpToDate(final URL url) {
+            if (!FILE_PROTOCOL.equals(url.getProtocol())) {
+                return true;
+            }
+
+            final File file = toFile(url);
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+    }
+
+}
@@ -1,7 +1,5 @@
 package com.github.timurstrekalov.saga.core.htmlunit;
 
-import java.io.IOException;
-
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.HttpWebConnection;
 import com.gargoylesoftware.htmlunit.IncorrectnessListener;
@@ -39,12 +37,10 @@ public final class WebClientFactory {
     // New version allows for creation of web drivers without the need for a config object
     // which may not be readily available if the driver is created by third-party code.
     public static WebClient newInstance(final BrowserVersion version) {
-        final WebClient client = new WebClient(version) {
-            @Override
-            public WebResponse loadWebResponse(final WebRequest webRequest) throws IOException {
-                return new WebResponseProxy(super.loadWebResponse(webRequest));
-            }
-        };
+        final SagaWebClient client = new SagaWebClient(version);
+
+        // no background JavaScript has been started by the default engine yet, that only happens when a page is loaded
+        client.setJavaScriptEngine(new CachingJavaScriptEngine(client));
 
         client.setIncorrectnessListener(quietIncorrectnessListener);
         client.setJavaScriptErrorListener(loggingJsErrorListener);
@@ -0,0 +1,178 @@
+package com.github.timurstrekalov.saga.core.instrumentation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import com.google.common.collect.Maps;
+
+import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_NO_STATEMENT;
+
+/**
+ * Converts the coverage variable into counts indexed by line number. Rather than having the web driver turn the variable
+ * into nested maps of boxed numbers, {@link #EXTRACTION_SCRIPT} serializes it into a single string in the browser,
+ * which is then decoded straight into arrays.
+ * <p/>
+ * Every script is on a line of its own: its URI, a tab, the counter mode, another tab and the comma-separated counts.
+ * Depending on the counter mode the scripts were instrumented with, the counts are either pairs of line numbers and
+ * counts, or an array of counters, which are mapped back to lines using the corresponding {@link ScriptData}.
+ */
+final class CoverageDataConverter {
+
+    private static final char OBJECT_COUNTERS = 'o';
+    private static final char ARRAY_COUNTERS = 'a';
+
+    static final String EXTRACTION_SCRIPT = ""
+            + "var data = window." + ScriptInstrumenter.COVERAGE_VARIABLE_NAME + ";\n"
+            + "if (!data) {\n"
+            + "    return null;\n"
+            + "}\n"
+            + "var scripts = [];\n"
+            + "for (var uri in data) {\n"
+            + "    if (!data.hasOwnProperty(uri)) {\n"
+            + "        continue;\n"
+            + "    }\n"
+            + "    var counts = data[uri];\n"
+            + "    if (Object.prototype.toString.call(counts) === '[object Array]') {\n"
+            + "        scripts.push(uri + '\\t" + ARRAY_COUNTERS + "\\t' + counts.join(','));\n"
+            + "    } else {\n"
+            + "        var pairs = [];\n"
+            + "        for (var lineNr in counts) {\n"
+            + "            if (counts.hasOwnProperty(lineNr)) {\n"
+            + "                pairs.push(lineNr, counts[lineNr]);\n"
+            + "            }\n"
+            + "        }\n"
+            + "        scripts.push(uri + '\\t" + OBJECT_COUNTERS + "\\t' + pairs.join(','));\n"
+            + "    }\n"
+            + "}\n"
+            + "return scripts.join('\\n');";
+
+    private CoverageDataConverter() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * @param coverageData the result of {@link #EXTRACTION_SCRIPT}
+     */
+    static Map<String, int[]> convert(final Object coverageData, final List<ScriptData> scriptDataList) {
+        if (coverageData == null) {
+            return null;
+        }
+
+        final Map<String, ScriptData> scriptDataByUri = Maps.newHashMap();
+        synchronized (scriptDataList) {
+            for (final ScriptData data : scriptDataList) {
+                scriptDataByUri.put(data.getSourceUriAsString(), data);
+            }
+        }
+
+        final String s = coverageData.toString();
+        final Map<String, int[]> result = Maps.newHashMapWithExpectedSize(scriptDataByUri.size());
+
+        for (int start = 0; start < s.length(); ) {
+            final int lineEnd = s.indexOf('\n', start);
+            final int end = lineEnd < 0 ? s.length() : lineEnd;
+            final int uriEnd = s.indexOf('\t', start);
+
+            if (uriEnd < 0 || uriEnd + 2 >= end) {
+                throw new IllegalArgumentException("Malformed coverage data: " + s.substring(start, end));
+            }
+
+            final String sourceUri = s.substring(start, uriEnd);
+            final ScriptData data = scriptDataByUri.get(sourceUri);
+            final CountReader counts = new CountReader(s, uriEnd + 3, end);
+
+            if (s.charAt(uriEnd + 1) == OBJECT_COUNTERS) {
+                result.put(sourceUri, convertObjectCounters(counts, data));
+            } else if (data != null) {
+                result.put(sourceUri, convertArrayCounters(counts, data));
+            }
+
+            start = end + 1;
+        }
+
+        return result;
+    }
+
+    private static int[] convertObjectCounters(final CountReader counts, final ScriptData data) {
+        int[] result = newCounts(data != null ? data.getLineNumberOfLastStatement() + 1 : 0);
+
+        while (counts.hasNext()) {
+            final int lineNr = counts.next();
+            final int count = counts.next();
+
+            if (lineNr >= result.length) {
+                final int oldLength = result.length;
+                result = Arrays.copyOf(result, Math.max(lineNr + 1, oldLength * 2));
+                Arrays.fill(result, oldLength, result.length, LINE_NO_STATEMENT);
+            }
+
+            result[lineNr] = count;
+        }
+
+        return result;
+    }
+
+    private static int[] convertArrayCounters(final CountReader counts, final ScriptData data) {
+        final int[] result = newCounts(data.getLineNumberOfLastStatement() + 1);
+        final int numberOfCounters = data.getNumberOfCounters();
+
+        for (int i = 0; i < numberOfCounters && counts.hasNext(); i++) {
+            result[data.getLineNumberOfCounter(i)] = counts.next();
+        }
+
+        return result;
+    }
+
+    private static int[] newCounts(final int length) {
+        final int[] counts = new int[length];
+        Arrays.fill(counts, LINE_NO_STATEMENT);
+        return counts;
+    }
+
+    /**
+     * Reads the comma-separated numbers of a single script without creating a string for each of them.
+     */
+    private static final class CountReader {
+
+        private final String s;
+        private final int end;
+        private int pos;
+
+        CountReader(final String s, final int start, final int end) {
+            this.s = s;
+            this.pos = start;
+            this.end = end;
+        }
+
+        boolean hasNext() {
+            return pos < end;
+        }
+
+        /**
+         * @return the next number, capped at {@link Integer#MAX_VALUE}, or 0 if it's not a number
+         */
+        int next() {
+            long value = 0;
+            boolean digitsOnly = true;
+
+            for (; pos < end && s.charAt(pos) != ','; pos++) {
+                final char c = s.charAt(pos);
+
+                if (c >= '0' && c <= '9' && digitsOnly) {
+                    value = Math.min(value * 10 + (c - '0'), Integer.MAX_VALUE);
+                } else {
+                    digitsOnly = false;
+                }
+            }
+
+            // skip the comma
+            pos++;
+
+            return digitsOnly ? (int) value : 0;
+        }
+
+    }
+
+}
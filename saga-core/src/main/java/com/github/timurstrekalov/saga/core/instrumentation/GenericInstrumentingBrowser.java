@@ -8,6 +8,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
 import com.github.timurstrekalov.saga.core.model.ScriptData;
 import com.github.timurstrekalov.saga.core.server.InstrumentingProxyServer;
 import com.github.timurstrekalov.saga.core.webdriver.SafeJavascriptWait;
@@ -26,16 +27,28 @@ public class GenericInstrumentingBrowser implements InstrumentingBrowser {
 
     private static final Logger logger = LoggerFactory.getLogger(GenericInstrumentingBrowser.class);
 
+    private static final long COMPLETION_CHECK_INTERVAL = 100;
+
+    // also tries to hook into the test runner again, in case it was loaded after the last instrumented script
+    private static final String CHECK_COMPLETION_SCRIPT = ""
+            + "var saga = window." + SAGA_NAMESPACE + ";\n"
+            + "if (!saga || !saga.completed) {\n"
+            + "    return true;\n"
+            + "}\n"
+            + "saga.hookIntoFrameworks();\n"
+            + "return saga.completed();";
+
     private final Config config;
     private final WebDriver driver;
-    private final ScriptInstrumenter instrumenter;
+    private final HtmlUnitBasedScriptInstrumenter instrumenter;
+    private final InstrumentingProxyServer proxyServer;
     private final int proxyServerPort;
 
     public GenericInstrumentingBrowser(final Config config) {
         this.config = config;
         instrumenter = new HtmlUnitBasedScriptInstrumenter(config);
 
-        final InstrumentingProxyServer proxyServer = new InstrumentingProxyServer(instrumenter);
+        proxyServer = new InstrumentingProxyServer(instrumenter);
         proxyServerPort = proxyServer.start();
 
         driver = newDriver(getWebDriverClass());
@@ -43,33 +56,55 @@ public class GenericInstrumentingBrowser implements InstrumentingBrowser {
 
     @Override
     public void get(final String url) {
+        final long start = System.nanoTime();
         driver.get(url);
+        MetricsRecorder.recordTimeSince(MetricsRecorder.PAGE_LOAD, start);
 
+        final long backgroundJavaScriptStart = System.nanoTime();
         final JavascriptExecutor js = (JavascriptExecutor) driver;
 
         WebDriverUtils.waitForWindowJavaScriptVariableToBePresent(js, SAGA_NAMESPACE);
+        waitForTestRunner(js, config.getBackgroundJavaScriptTimeout());
 
+        MetricsRecorder.recordTimeSince(MetricsRecorder.BACKGROUND_JAVASCRIPT, backgroundJavaScriptStart);
+    }
+
+    /**
+     * Polls the completion monitor rather than waiting for it to call back: an asynchronous script would have to be
+     * started over every time the script timeout runs out, leaving another callback behind on the page each time.
+     */
+    private static void waitForTestRunner(final JavascriptExecutor js, final long timeoutMillis) {
         new SafeJavascriptWait(js)
-                .withTimeout(config.getBackgroundJavaScriptTimeout(), TimeUnit.MILLISECONDS)
+                .withTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .pollingEvery(COMPLETION_CHECK_INTERVAL, TimeUnit.MILLISECONDS)
                 .until(new Predicate<JavascriptExecutor>() {
                     @Override
                     public boolean apply(final JavascriptExecutor input) {
                         logger.debug("Waiting for test runner to finish");
-                        return Boolean.TRUE.equals(input.executeScript("return " + SAGA_NAMESPACE + ".completed()"));
+                        return Boolean.TRUE.equals(input.executeScript(CHECK_COMPLETION_SCRIPT));
                     }
                 });
     }
 
+    @Override
+    public void reset() {
+        WebDriverUtils.resetBrowser(driver);
+        instrumenter.getScriptDataList().clear();
+    }
+
     @Override
     public void quit() {
-        driver.quit();
+        try {
+            driver.quit();
+        } finally {
+            proxyServer.stop();
+        }
     }
 
     @Override
-    @SuppressWarnings("unchecked")
-    public Map<String, Map<String, Long>> extractCoverageDataVariable() {
+    public Map<String, int[]> extractCoverageDataVariable() {
         final JavascriptExecutor js = (JavascriptExecutor) driver;
-        return (Map<String, Map<String, Long>>) js.executeScript("return window." + ScriptInstrumenter.COVERAGE_VARIABLE_NAME);
+        return CoverageDataConverter.convert(js.executeScript(CoverageDataConverter.EXTRACTION_SCRIPT), getScriptDataList());
     }
 
     @Override
@@ -9,15 +9,22 @@ import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.github.timurstrekalov.saga.core.CounterMode;
 import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
 import com.github.timurstrekalov.saga.core.model.ScriptData;
 import com.github.timurstrekalov.saga.core.util.UriUtil;
 import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -38,6 +45,10 @@ public final class HtmlUnitBasedScriptInstrumenter implements ScriptInstrumenter
 
     private static final String INITIALIZING_CODE = String.format("%s = window.%s || {};%n", COVERAGE_VARIABLE_NAME, COVERAGE_VARIABLE_NAME);
     private static final String ARRAY_INITIALIZER = String.format("    %s['%%s'][%%d] = 0;%n", COVERAGE_VARIABLE_NAME);
+    private static final String COUNTERS_INITIALIZER = String.format(
+            "if(!%1$s['%%1$s']) {%n" +
+            "    %1$s['%%1$s'] = (function (a, n) { for (var i = 0; i < n; i++) { a[i] = 0; } return a; })([], %%2$d);%n" +
+            "}%n", COVERAGE_VARIABLE_NAME);
     public static final String COMPLETION_MONITOR;
 
     private static final AtomicInteger evalCounter = new AtomicInteger();
@@ -47,59 +58,176 @@ public final class HtmlUnitBasedScriptInstrumenter implements ScriptInstrumenter
     private static final Pattern inlineScriptRe = Pattern.compile("script in (.+) from \\((\\d+), (\\d+)\\) to \\((\\d+), (\\d+)\\)");
     private static final Pattern evalRe = Pattern.compile("(.+)(#|%23)(\\d+\\(eval\\))");
     private static final Pattern nonFileRe = Pattern.compile("JavaScriptStringJob");
+    private static final Pattern normalizedInlineScriptRe = Pattern.compile(".+__from_\\d+_\\d+_to_\\d+_\\d+");
+    private static final Pattern normalizedEvalRe = Pattern.compile(".+(#|%23)\\d+\\(eval\\)\\(\\d+\\)");
 
-    private static final ConcurrentMap<URI, ScriptData> instrumentedScriptCache = Maps.newConcurrentMap();
+    /**
+     * Holds a future per script so that when several browsers load the same script at once, only one of them
+     * instruments it and the rest wait for the result.
+     */
+    private static final ConcurrentMap<URI, Future<ScriptData>> instrumentedScriptCache = Maps.newConcurrentMap();
+    private static final InstrumentationCounters counters = new InstrumentationCounters();
     private static final Set<URI> writtenToDisk = Sets.newHashSet();
 
     private final Config config;
     private final List<ScriptData> scriptDataList = Collections.synchronizedList( Lists.<ScriptData>newLinkedList() );
+    private final PersistentInstrumentationCache persistentCache;
     private Collection<Pattern> ignorePatterns;
     private File instrumentedFileDirectory;
 
     public HtmlUnitBasedScriptInstrumenter(final Config config) {
         this.config = config;
         setIgnorePatterns(config.getIgnorePatterns());
+
+        final File instrumentationCacheDir = config.getInstrumentationCacheDir();
+        persistentCache = instrumentationCacheDir != null
+                ? new PersistentInstrumentationCache(instrumentationCacheDir, config.getCounterMode() + COMPLETION_MONITOR)
+                : null;
     }
 
     @Override
     public String instrument(final String sourceCode, final String sourceName, final int lineNumber) {
+        final ScriptData data = instrumentScript(sourceCode, sourceName, lineNumber);
+        return data != null ? data.getInstrumentedSourceCode() : sourceCode;
+    }
+
+    /**
+     * Does the same as {@link #instrument(String, String, int)}, but returns the script itself, so that it can be
+     * {@link #recordScript(ScriptData) recorded} again later without instrumenting it again.
+     *
+     * @return the instrumented script or null if the script is ignored or couldn't be instrumented
+     */
+    public ScriptData instrumentScript(final String sourceCode, final String sourceName, final int lineNumber) {
         try {
             final String normalizedSourceName = handleEvals(handleInvalidUriChars(handleInlineScripts(sourceName)));
 
             if (shouldIgnore(normalizedSourceName)) {
-                return sourceCode;
+                return null;
             }
 
             final boolean separateFile = isSeparateFile(sourceName, normalizedSourceName);
             final URI sourceUri = URI.create(normalizedSourceName).normalize();
 
-            if (config.isCacheInstrumentedCode() && instrumentedScriptCache.containsKey(sourceUri)) {
-                final ScriptData data = instrumentedScriptCache.get(sourceUri);
-                scriptDataList.add(data);
-                return data.getInstrumentedSourceCode();
+            final ScriptData data = config.isCacheInstrumentedCode()
+                    ? instrumentOnce(sourceCode, separateFile, sourceUri, lineNumber)
+                    : newInstrumentedScriptData(sourceCode, separateFile, sourceUri, lineNumber);
+
+            scriptDataList.add(data);
+
+            return data;
+        } catch (final RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // the test is being stopped, running the script without coverage would only make its results wrong
+                throw e;
             }
 
-            final ScriptData data = addNewScriptData(sourceCode, separateFile, sourceUri);
+            logger.error("Exception caught while instrumenting code", e);
+            return null;
+        }
+    }
 
-            final String instrumentedCode = instrument(lineNumber, data);
-            data.setInstrumentedSourceCode(instrumentedCode);
+    /**
+     * Records a script returned by {@link #instrumentScript(String, String, int)} before as loaded again, e.g. when its
+     * instrumented code is served from a cache.
+     */
+    public void recordScript(final ScriptData data) {
+        scriptDataList.add(data);
+    }
 
-            maybeCache(sourceUri, data);
-            maybeWriteInstrumentedCodeToDisk(separateFile, sourceUri, instrumentedCode);
+    private ScriptData instrumentOnce(final String sourceCode, final boolean separateFile, final URI sourceUri,
+            final int lineNumber) {
+        final FutureTask<ScriptData> task = new FutureTask<ScriptData>(new Callable<ScriptData>() {
+            @Override
+            public ScriptData call() {
+                return newInstrumentedScriptData(sourceCode, separateFile, sourceUri, lineNumber);
+            }
+        });
 
-            return instrumentedCode;
-        } catch (final RuntimeException e) {
-            logger.error("Exception caught while instrumenting code", e);
-            return sourceCode;
+        while (true) {
+            Future<ScriptData> future = instrumentedScriptCache.putIfAbsent(sourceUri, task);
+            final boolean reused = future != null;
+
+            if (future == null) {
+                future = task;
+                task.run();
+            }
+
+            final boolean pending = !future.isDone();
+            final ScriptData data;
+
+            try {
+                data = future.get();
+            } catch (final ExecutionException e) {
+                // let the next browser to load the script have another go at it
+                instrumentedScriptCache.remove(sourceUri, future);
+                throw Throwables.propagate(e.getCause());
+            } catch (final InterruptedException e) {
+                // keeps the interrupt status set, so that instrument() doesn't fall back to the uninstrumented code
+                Thread.currentThread().interrupt();
+                throw Throwables.propagate(e);
+            }
+
+            if (!reused) {
+                return data;
+            }
+
+            if (data.getSourceCode().equals(sourceCode)) {
+                counters.incrementReused(pending);
+                MetricsRecorder.increment(MetricsRecorder.INSTRUMENTATION_CACHE_HITS);
+                return data;
+            }
+
+            // the script has changed since it was cached, e.g. while watching the sources
+            instrumentedScriptCache.remove(sourceUri, future);
+        }
+    }
+
+    private ScriptData newInstrumentedScriptData(final String sourceCode, final boolean separateFile, final URI sourceUri,
+            final int lineNumber) {
+        final ScriptData data = new ScriptData(sourceUri, sourceCode, separateFile);
+
+        final String instrumentedCode = instrumentOrLoadFromDisk(lineNumber, data);
+        data.setInstrumentedSourceCode(instrumentedCode);
+
+        maybeWriteInstrumentedCodeToDisk(separateFile, sourceUri, instrumentedCode);
+
+        return data;
+    }
+
+    private String instrumentOrLoadFromDisk(final int lineNumber, final ScriptData data) {
+        if (persistentCache == null) {
+            return instrument(lineNumber, data);
         }
+
+        final String cachedCode = persistentCache.load(data, lineNumber);
+        if (cachedCode != null) {
+            counters.incrementLoadedFromDisk();
+            MetricsRecorder.increment(MetricsRecorder.INSTRUMENTATION_DISK_CACHE_HITS);
+            return cachedCode;
+        }
+
+        final String instrumentedCode = instrument(lineNumber, data);
+        persistentCache.store(data, lineNumber, instrumentedCode);
+
+        return instrumentedCode;
     }
 
     private String instrument(final int lineNumber, final ScriptData data) {
+        counters.incrementParsed();
+        MetricsRecorder.increment(MetricsRecorder.INSTRUMENTATION_CACHE_MISSES);
+        MetricsRecorder.increment(MetricsRecorder.INSTRUMENTED_CHARACTERS, data.getSourceCode().length());
+
         final Parser parser = new Parser();
 
         final String sourceUriAsString = data.getSourceUriAsString();
+        final boolean arrayCounters = config.getCounterMode() == CounterMode.ARRAY;
+
+        final long parsingStart = System.nanoTime();
         final AstRoot root = parser.parse(data.getSourceCode(), sourceUriAsString, lineNumber);
-        root.visit(new InstrumentingNodeVisitor(data, lineNumber - 1));
+        MetricsRecorder.recordTimeSince(MetricsRecorder.PARSING, parsingStart);
+
+        final long instrumentationStart = System.nanoTime();
+        root.visit(new InstrumentingNodeVisitor(data, lineNumber - 1, arrayCounters));
 
         final String treeSource = root.toSource();
         final StringBuilder buf = new StringBuilder(
@@ -109,27 +237,38 @@ public final class HtmlUnitBasedScriptInstrumenter implements ScriptInstrumenter
 
         buf.append(COMPLETION_MONITOR);
         buf.append(INITIALIZING_CODE);
-        buf.append(String.format("if(!%s['%s']) {%n", COVERAGE_VARIABLE_NAME, sourceUriAsString));
-        buf.append(String.format("    %s['%s'] = {};%n", COVERAGE_VARIABLE_NAME, sourceUriAsString));
 
-        for (final Integer i : data.getLineNumbersOfAllStatements()) {
-            buf.append(String.format(ARRAY_INITIALIZER, sourceUriAsString, i));
+        if (arrayCounters) {
+            buf.append(String.format(COUNTERS_INITIALIZER, sourceUriAsString, data.getNumberOfCounters()));
+        } else {
+            buf.append(String.format("if(!%s['%s']) {%n", COVERAGE_VARIABLE_NAME, sourceUriAsString));
+            buf.append(String.format("    %s['%s'] = {};%n", COVERAGE_VARIABLE_NAME, sourceUriAsString));
+
+            for (final Integer i : data.getLineNumbersOfAllStatements()) {
+                buf.append(String.format(ARRAY_INITIALIZER, sourceUriAsString, i));
+            }
+            buf.append(String.format("}%n"));
         }
-        buf.append(String.format("}%n"));
 
         buf.append(treeSource);
 
+        MetricsRecorder.recordTimeSince(MetricsRecorder.INSTRUMENTATION, instrumentationStart);
+
         return buf.toString();
     }
 
-    private ScriptData addNewScriptData(final String sourceCode, final boolean separateFile, final URI sourceUri) {
-        final ScriptData data = new ScriptData(sourceUri, sourceCode, separateFile);
-        scriptDataList.add(data);
-        return data;
+    private static boolean isSeparateFile(final String sourceName, final String normalizedSourceName) {
+        return normalizedSourceName.equals(sourceName) && isSeparateFile(normalizedSourceName);
     }
 
-    private static boolean isSeparateFile(final String sourceName, final String normalizedSourceName) {
-        return normalizedSourceName.equals(sourceName) && !nonFileRe.matcher(normalizedSourceName).matches();
+    /**
+     * @return whether the script with the given (normalized) name is a file of its own rather than an inline script, an
+     * eval or the like, e.g. for telling them apart in stored coverage data
+     */
+    public static boolean isSeparateFile(final String normalizedSourceName) {
+        return !nonFileRe.matcher(normalizedSourceName).matches()
+                && !normalizedInlineScriptRe.matcher(normalizedSourceName).matches()
+                && !normalizedEvalRe.matcher(normalizedSourceName).matches();
     }
 
     private static String handleInlineScripts(final String sourceName) {
@@ -180,12 +319,6 @@ public final class HtmlUnitBasedScriptInstrumenter implements ScriptInstrumenter
         return buf.toString();
     }
 
-    private void maybeCache(final URI sourceUri, final ScriptData data) {
-        if (config.isCacheInstrumentedCode()) {
-            instrumentedScriptCache.putIfAbsent(sourceUri, data);
-        }
-    }
-
     private void maybeWriteInstrumentedCodeToDisk(final boolean separateFile, final URI sourceUri, final String instrumentedCode) {
         if (config.isOutputInstrumentedFiles() && separateFile) {
             synchronized (writtenToDisk) {
@@ -224,6 +357,13 @@ public final class HtmlUnitBasedScriptInstrumenter implements ScriptInstrumenter
         return scriptDataList;
     }
 
+    /**
+     * @return the counters shared by all instances, since they share the cache of instrumented scripts as well
+     */
+    public static InstrumentationCounters getCounters() {
+        return counters;
+    }
+
     public void setIgnorePatterns(final Collection<Pattern> ignorePatterns) {
         this.ignorePatterns = ignorePatterns;
     }
@@ -5,19 +5,33 @@ import java.net.URL;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
+import net.sourceforge.htmlunit.corejs.javascript.BaseFunction;
+import net.sourceforge.htmlunit.corejs.javascript.Context;
+import net.sourceforge.htmlunit.corejs.javascript.Function;
+import net.sourceforge.htmlunit.corejs.javascript.Scriptable;
+import net.sourceforge.htmlunit.corejs.javascript.ScriptableObject;
+import net.sourceforge.htmlunit.corejs.javascript.Undefined;
+
 import org.openqa.selenium.Capabilities;
 import org.openqa.selenium.htmlunit.HtmlUnitDriver;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.Page;
 import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.github.timurstrekalov.saga.core.cfg.Config;
 import com.github.timurstrekalov.saga.core.htmlunit.InstrumentingPreProcessor;
+import com.github.timurstrekalov.saga.core.htmlunit.RequestFilter;
+import com.github.timurstrekalov.saga.core.htmlunit.SagaWebClient;
+import com.github.timurstrekalov.saga.core.htmlunit.StaticResourceCache;
 import com.github.timurstrekalov.saga.core.htmlunit.WebClientFactory;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
 import com.github.timurstrekalov.saga.core.model.ScriptData;
-import com.google.common.base.Function;
-import com.google.common.collect.Maps;
+import com.github.timurstrekalov.saga.core.webdriver.WebDriverUtils;
 
 public final class HtmlUnitInstrumentingBrowser implements InstrumentingBrowser {
 
@@ -83,41 +97,36 @@ public final class HtmlUnitInstrumentingBrowser implements InstrumentingBrowser
         driver.get(url);
     }
 
+    @Override
+    public void reset() {
+        if (!initialized) {
+            return;
+        }
+
+        driver.reset();
+        instrumenter.getScriptDataList().clear();
+    }
+
     @Override
     public void quit() {
         driver.quit();
     }
 
     @Override
-    public Map<String, Map<String, Long>> extractCoverageDataVariable() {
+    public Map<String, int[]> extractCoverageDataVariable() {
         try {
             driver.disableInstrumentation();
 
-            @SuppressWarnings("unchecked")
-            final Map<String, Map<Long, Long>> data = (Map<String, Map<Long, Long>>) driver.executeScript(
-                    "return window." + ScriptInstrumenter.COVERAGE_VARIABLE_NAME);
-
-            if (data == null) {
-                return null;
-            }
-
-            return Maps.transformValues(data, new Function<Map<Long, Long>, Map<String, Long>>() {
-                @Override
-                public Map<String, Long> apply(final java.util.Map<Long, Long> input) {
-                    final Map<String, Long> result = Maps.newHashMap();
-                    for (final Map.Entry<Long, Long> e : input.entrySet()) {
-                        result.put(String.valueOf(e.getKey()), e.getValue());
-                    }
-
-                    return result;
-                }
-            });
+            return CoverageDataConverter.convert(driver.executeScript(CoverageDataConverter.EXTRACTION_SCRIPT), getScriptDataList());
         } finally {
             driver.enableInstrumentation();
         }
     }
 
     public static class Driver extends HtmlUnitDriver {
+
+        private static final long BACKGROUND_JOB_CHECK_INTERVAL = 20;
+
         private Config config;
         private InstrumentingPreProcessor preProcessor;
 
@@ -134,6 +143,26 @@ public final class HtmlUnitInstrumentingBrowser implements InstrumentingBrowser
         private void init(Config config, InstrumentingPreProcessor preProcessor) {
             this.config = config;
             this.preProcessor = preProcessor;
+
+            final WebClient webClient = getWebClient();
+            if (config.isLeanBrowser()) {
+                webClient.getOptions().setCssEnabled(false);
+                webClient.getOptions().setAppletEnabled(false);
+            }
+
+            if (!(webClient instanceof SagaWebClient)) {
+                return;
+            }
+
+            final SagaWebClient sagaWebClient = (SagaWebClient) webClient;
+            if (config.isLeanBrowser() || !config.getBlockedUrlPatterns().isEmpty()) {
+                sagaWebClient.setRequestFilter(new RequestFilter(config.getBlockedUrlPatterns(), config.isLeanBrowser()));
+            }
+
+            if (!config.getStaticResourcePatterns().isEmpty()) {
+                sagaWebClient.setStaticResourceCache(
+                        new StaticResourceCache(config.getStaticResourcePatterns(), config.getStaticResourceCacheSize()));
+            }
         }
         
         @Override
@@ -143,9 +172,76 @@ public final class HtmlUnitInstrumentingBrowser implements InstrumentingBrowser
 
         @Override
         protected void get(final URL fullUrl) {
+            final long start = System.nanoTime();
             super.get(fullUrl);
-            getWebClient().waitForBackgroundJavaScript(
-                    config != null ? config.getBackgroundJavaScriptTimeout() : Config.DEFAULT_BACKGROUND_JAVASCRIPT_TIMEOUT);
+            MetricsRecorder.recordTimeSince(MetricsRecorder.PAGE_LOAD, start);
+
+            final long backgroundJavaScriptStart = System.nanoTime();
+            waitForTestRunner(config != null ? config.getBackgroundJavaScriptTimeout() : Config.DEFAULT_BACKGROUND_JAVASCRIPT_TIMEOUT);
+            MetricsRecorder.recordTimeSince(MetricsRecorder.BACKGROUND_JAVASCRIPT, backgroundJavaScriptStart);
+        }
+
+        /**
+         * Waits for the test runner on the page to signal that it has finished, or for there to be no background
+         * JavaScript left to run, whichever comes first, so that long-lived timers don't hold things up once the tests
+         * are done.
+         */
+        private void waitForTestRunner(final long timeoutMillis) {
+            final CountDownLatch completed = new CountDownLatch(1);
+
+            if (!whenCompleted(completed)) {
+                getWebClient().waitForBackgroundJavaScript(timeoutMillis);
+                return;
+            }
+
+            final long deadline = System.currentTimeMillis() + timeoutMillis;
+
+            try {
+                for (long remaining = timeoutMillis; remaining > 0; remaining = deadline - System.currentTimeMillis()) {
+                    if (completed.await(Math.min(remaining, BACKGROUND_JOB_CHECK_INTERVAL), TimeUnit.MILLISECONDS)) {
+                        // the signal comes from a job on the JavaScript thread, which may not have returned yet
+                        getWebClient().waitForBackgroundJavaScriptStartingBefore(0);
+                        return;
+                    }
+
+                    // doesn't wait at all, just returns the number of jobs left in all of the windows
+                    if (getWebClient().waitForBackgroundJavaScript(0) == 0) {
+                        return;
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Registers the latch with the completion monitor directly, rather than by executing a script, since that would
+         * go through the instrumenter.
+         *
+         * @return false if there's no completion monitor on the page to register with, i.e. nothing was instrumented
+         */
+        private boolean whenCompleted(final CountDownLatch completed) {
+            final Page page = getWebClient().getCurrentWindow().getEnclosedPage();
+            if (!(page instanceof HtmlPage)) {
+                return false;
+            }
+
+            final Object saga = ScriptableObject.getProperty(
+                    (Scriptable) page.getEnclosingWindow().getScriptObject(), ScriptInstrumenter.SAGA_NAMESPACE);
+            if (!(saga instanceof Scriptable)) {
+                return false;
+            }
+
+            final Object whenCompleted = ScriptableObject.getProperty((Scriptable) saga, "whenCompleted");
+            if (!(whenCompleted instanceof Function)) {
+                return false;
+            }
+
+            final HtmlPage htmlPage = (HtmlPage) page;
+            htmlPage.executeJavaScriptFunctionIfPossible((Function) whenCompleted, (Scriptable) saga,
+                    new Object[] { new CountDownFunction(completed) }, htmlPage);
+
+            return true;
         }
 
         public void enableInstrumentation() {
@@ -156,6 +252,32 @@ public final class HtmlUnitInstrumentingBrowser implements InstrumentingBrowser
             getWebClient().setScriptPreProcessor(null);
         }
 
+        public void reset() {
+            WebDriverUtils.resetBrowser(this);
+            // unlike other browsers, it's possible to get rid of the cookies of all domains
+            getWebClient().getCookieManager().clearCookies();
+            // the pre-processor never sees the scripts compiled from the cache, so the next test wouldn't know about them
+            getWebClient().getCache().clear();
+        }
+
+    }
+
+    private static final class CountDownFunction extends BaseFunction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CountDownLatch latch;
+
+        CountDownFunction(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args) {
+            latch.countDown();
+            return Undefined.instance;
+        }
+
     }
 
 }
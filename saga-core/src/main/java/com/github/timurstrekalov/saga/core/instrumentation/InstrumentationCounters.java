@@ -0,0 +1,92 @@
+package com.github.timurstrekalov.saga.core.instrumentation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how scripts handed to the instrumenter were dealt with, mostly to show how much work the caches saved.
+ */
+public final class InstrumentationCounters {
+
+    private final AtomicLong parsed = new AtomicLong();
+    private final AtomicLong loadedFromDisk = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong waitedForInFlight = new AtomicLong();
+
+    InstrumentationCounters() {
+    }
+
+    private InstrumentationCounters(final long parsed, final long loadedFromDisk, final long reused, final long waitedForInFlight) {
+        this.parsed.set(parsed);
+        this.loadedFromDisk.set(loadedFromDisk);
+        this.reused.set(reused);
+        this.waitedForInFlight.set(waitedForInFlight);
+    }
+
+    void incrementParsed() {
+        parsed.incrementAndGet();
+    }
+
+    void incrementLoadedFromDisk() {
+        loadedFromDisk.incrementAndGet();
+    }
+
+    void incrementReused(final boolean inFlight) {
+        reused.incrementAndGet();
+
+        if (inFlight) {
+            waitedForInFlight.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the number of scripts that had to be parsed and instrumented
+     */
+    public long getParsed() {
+        return parsed.get();
+    }
+
+    /**
+     * @return the number of scripts loaded from the persistent instrumentation cache instead of being parsed
+     */
+    public long getLoadedFromDisk() {
+        return loadedFromDisk.get();
+    }
+
+    /**
+     * @return the number of times an already instrumented script was reused instead of being parsed again
+     */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /**
+     * @return how many of the reused scripts were still being instrumented by another thread, which would have parsed
+     * the same script at the same time without single-flight instrumentation
+     */
+    public long getWaitedForInFlight() {
+        return waitedForInFlight.get();
+    }
+
+    public InstrumentationCounters snapshot() {
+        return new InstrumentationCounters(getParsed(), getLoadedFromDisk(), getReused(), getWaitedForInFlight());
+    }
+
+    /**
+     * @return the counts accumulated since <code>earlier</code> was taken
+     */
+    public InstrumentationCounters since(final InstrumentationCounters earlier) {
+        return new InstrumentationCounters(
+                getParsed() - earlier.getParsed(),
+                getLoadedFromDisk() - earlier.getLoadedFromDisk(),
+                getReused() - earlier.getReused(),
+                getWaitedForInFlight() - earlier.getWaitedForInFlight());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d scripts parsed, %d loaded from the instrumentation cache directory, " +
+                "%d redundant parses avoided (%d of them by waiting for another thread)",
+                getParsed(), getLoadedFromDisk(), getReused(), getWaitedForInFlight());
+    }
+
+}
@@ -2,12 +2,35 @@ package com.github.timurstrekalov.saga.core.instrumentation;
 
 import java.util.Map;
 
+/**
+ * A browser that runs the tests and collects the coverage data of the scripts they load. Implementations can be passed
+ * to {@link com.github.timurstrekalov.saga.core.cfg.Config#setInstrumentingBrowser}.
+ * <p/>
+ * Since 1.5.6, this interface has changed in ways that break existing implementations: {@link
+ * #extractCoverageDataVariable()} returns the counts of every script as an array instead of a map of line numbers to
+ * counts, and {@link #reset()} has been added.
+ */
 public interface InstrumentingBrowser extends ScriptInstrumenter {
 
-    Map<String, Map<String, Long>> extractCoverageDataVariable();
+    /**
+     * @return the number of times each line of every script on the current page ran, indexed by line number (see {@link
+     *         com.github.timurstrekalov.saga.core.model.ScriptData#generateScriptCoverageStatistics}), by the URI of the
+     *         script, or null if the page doesn't have any coverage data
+     */
+    Map<String, int[]> extractCoverageDataVariable();
 
     void get(String url);
 
+    /**
+     * Prepares the browser for running another test: closes extra windows, deletes cookies, navigates away from the
+     * current page (which drops the coverage data and the {@link #SAGA_NAMESPACE} variable) and forgets the scripts
+     * instrumented so far.
+     * <p/>
+     * Only ever called on the browsers Saga starts itself, so one passed to {@link
+     * com.github.timurstrekalov.saga.core.cfg.Config#setInstrumentingBrowser} can implement it as a no-op.
+     */
+    void reset();
+
     void quit();
 
 }
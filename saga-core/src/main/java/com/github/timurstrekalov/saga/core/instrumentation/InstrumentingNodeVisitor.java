@@ -48,10 +48,16 @@ class InstrumentingNodeVisitor implements NodeVisitor {
 
     private final ScriptData data;
     private final int lineNumberOffset;
+    private final boolean arrayCounters;
 
-    public InstrumentingNodeVisitor(final ScriptData data, final int lineNumberOffset) {
+    /**
+     * @param arrayCounters whether the coverage variable holds an array of counters for this script, indexed by
+     *                      {@link ScriptData#addCounter(int)}, rather than the executed lines by line number
+     */
+    public InstrumentingNodeVisitor(final ScriptData data, final int lineNumberOffset, final boolean arrayCounters) {
         this.data = data;
         this.lineNumberOffset = lineNumberOffset;
+        this.arrayCounters = arrayCounters;
     }
 
     @Override
@@ -274,7 +280,18 @@ class InstrumentingNodeVisitor implements NodeVisitor {
 
         inc.setIsPostfix(true);
         inc.setOperator(Token.INC);
+        inc.setOperand(newCounterNode(arrayCounters ? data.addCounter(lineNr) : lineNr));
+
+        instrumentationNode.setExpression(inc);
+        instrumentationNode.setHasResult();
 
+        return instrumentationNode;
+    }
+
+    /**
+     * __saga_coverage_data['file.js'][lineNr or counterIndex]
+     */
+    private AstNode newCounterNode(final int index) {
         final ElementGet outer = new ElementGet();
         final ElementGet inner = new ElementGet();
 
@@ -290,19 +307,16 @@ class InstrumentingNodeVisitor implements NodeVisitor {
         fileName.setQuoteCharacter('\'');
 
         inner.setElement(fileName);
+        outer.setElement(newNumberLiteral(index));
 
-        final NumberLiteral index = new NumberLiteral();
-        index.setNumber(lineNr);
-        index.setValue(Integer.toString(lineNr));
-
-        outer.setElement(index);
-
-        inc.setOperand(outer);
-
-        instrumentationNode.setExpression(inc);
-        instrumentationNode.setHasResult();
+        return outer;
+    }
 
-        return instrumentationNode;
+    private static NumberLiteral newNumberLiteral(final int value) {
+        final NumberLiteral literal = new NumberLiteral();
+        literal.setNumber(value);
+        literal.setValue(Integer.toString(value));
+        return literal;
     }
 
 }
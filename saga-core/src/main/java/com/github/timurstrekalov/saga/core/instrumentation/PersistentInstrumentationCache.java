@@ -0,0 +1,192 @@
+package com.github.timurstrekalov.saga.core.instrumentation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import org.codehaus.plexus.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * On-disk cache of instrumented scripts, shared across runs. Entries are content-addressed: the key is a hash of the
+ * source code along with everything else that affects the instrumented output (the instrumenter version and settings,
+ * the source name and the line number the script starts at), so an entry never has to be invalidated - a changed file
+ * simply hashes to a different entry.
+ */
+final class PersistentInstrumentationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PersistentInstrumentationCache.class);
+
+    private static final int MAGIC = 0x53414741; // "SAGA"
+
+    /**
+     * Bump whenever the instrumented output or the layout of the entries changes.
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    private static final String INSTRUMENTER_VERSION;
+
+    private final File cacheDir;
+    private final String instrumenterFingerprint;
+
+    /**
+     * @param cacheDir the directory to keep the entries in
+     * @param instrumenterSettings anything besides the source itself that affects the instrumented output
+     */
+    PersistentInstrumentationCache(final File cacheDir, final String instrumenterSettings) {
+        this.cacheDir = cacheDir;
+        this.instrumenterFingerprint = Hashing.sha1().newHasher()
+                .putInt(FORMAT_VERSION)
+                .putString(INSTRUMENTER_VERSION, Charsets.UTF_8)
+                .putString(instrumenterSettings, Charsets.UTF_8)
+                .hash()
+                .toString();
+    }
+
+    /**
+     * Loads the instrumented code for the given script, adding the lines containing statements (and their counters, if
+     * any) to <code>data</code>.
+     *
+     * @return the instrumented code or null if it's not cached
+     */
+    String load(final ScriptData data, final int lineNumber) {
+        final File entry = getEntryFile(data, lineNumber);
+
+        if (!entry.isFile()) {
+            return null;
+        }
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.debug("Ignoring incompatible cache entry {}", entry);
+                return null;
+            }
+
+            final int[] linesWithStatements = readInts(in);
+            final int[] linesByCounterIndex = readInts(in);
+
+            final byte[] instrumentedCode = new byte[in.readInt()];
+            in.readFully(instrumentedCode);
+
+            for (final int lineNr : linesWithStatements) {
+                data.addExecutableLine(lineNr);
+            }
+            for (final int lineNr : linesByCounterIndex) {
+                data.addCounter(lineNr);
+            }
+
+            return new String(instrumentedCode, Charsets.UTF_8);
+        } catch (final IOException e) {
+            logger.warn("Error reading cache entry {}: {}", entry, e.getMessage());
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    void store(final ScriptData data, final int lineNumber, final String instrumentedCode) {
+        final File entry = getEntryFile(data, lineNumber);
+        final File entryDir = entry.getParentFile();
+
+        DataOutputStream out = null;
+        File tempFile = null;
+
+        try {
+            FileUtils.mkdir(entryDir.getAbsolutePath());
+
+            // write to a temporary file first so that concurrent runs never see a partially written entry
+            tempFile = File.createTempFile(entry.getName(), ".tmp", entryDir);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+
+            out.writeInt(data.getNumberOfStatements());
+            for (final Integer lineNr : data.getLineNumbersOfAllStatements()) {
+                out.writeInt(lineNr);
+            }
+
+            out.writeInt(data.getNumberOfCounters());
+            for (int i = 0; i < data.getNumberOfCounters(); i++) {
+                out.writeInt(data.getLineNumberOfCounter(i));
+            }
+
+            final byte[] instrumentedCodeBytes = instrumentedCode.getBytes(Charsets.UTF_8);
+            out.writeInt(instrumentedCodeBytes.length);
+            out.write(instrumentedCodeBytes);
+
+            out.close();
+            out = null;
+
+            if (!tempFile.renameTo(entry)) {
+                logger.debug("Could not move {} to {}, probably cached by another process", tempFile, entry);
+            }
+        } catch (final IOException e) {
+            logger.warn("Error writing cache entry {}: {}", entry, e.getMessage());
+        } finally {
+            closeQuietly(out);
+
+            if (tempFile != null && tempFile.exists() && !tempFile.delete()) {
+                logger.debug("Could not delete {}", tempFile);
+            }
+        }
+    }
+
+    private static int[] readInts(final DataInputStream in) throws IOException {
+        final int[] ints = new int[in.readInt()];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = in.readInt();
+        }
+        return ints;
+    }
+
+    private File getEntryFile(final ScriptData data, final int lineNumber) {
+        final String key = Hashing.sha1().newHasher()
+                .putString(instrumenterFingerprint, Charsets.UTF_8)
+                .putString(data.getSourceUriAsString(), Charsets.UTF_8)
+                .putInt(lineNumber)
+                .putBoolean(data.isSeparateFile())
+                .putUnencodedChars(data.getSourceCode())
+                .hash()
+                .toString();
+
+        return new File(new File(cacheDir, key.substring(0, 2)), key);
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            Closeables.close(closeable, true);
+        } catch (final IOException e) {
+            // can't happen, swallowed by Closeables
+        }
+    }
+
+    static {
+        final Properties properties = new Properties();
+
+        try {
+            properties.load(PersistentInstrumentationCache.class.getResourceAsStream("/app.properties"));
+        } catch (final IOException e) {
+            throw new RuntimeException("Error loading configuration", e);
+        }
+
+        INSTRUMENTER_VERSION = properties.getProperty("app.version");
+    }
+
+}
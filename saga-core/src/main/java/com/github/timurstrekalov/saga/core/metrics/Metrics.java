@@ -0,0 +1,103 @@
+package com.github.timurstrekalov.saga.core.metrics;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+
+/**
+ * The time spent in each phase of a run (or of a single test) along with counts of what happened during it, e.g. how
+ * many scripts were found in the instrumentation cache. Safe to record into from several threads at once.
+ */
+public final class Metrics {
+
+    private final ConcurrentMap<String, Timer> timers = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, AtomicLong> counters = Maps.newConcurrentMap();
+
+    public void recordTime(final String phase, final long nanos) {
+        Timer timer = timers.get(phase);
+
+        if (timer == null) {
+            final Timer newTimer = new Timer();
+            timer = timers.putIfAbsent(phase, newTimer);
+
+            if (timer == null) {
+                timer = newTimer;
+            }
+        }
+
+        timer.record(nanos);
+    }
+
+    public void increment(final String counter, final long delta) {
+        AtomicLong value = counters.get(counter);
+
+        if (value == null) {
+            final AtomicLong newValue = new AtomicLong();
+            value = counters.putIfAbsent(counter, newValue);
+
+            if (value == null) {
+                value = newValue;
+            }
+        }
+
+        value.addAndGet(delta);
+    }
+
+    /**
+     * @return the timers by phase name, sorted by name
+     */
+    public SortedMap<String, Timer> getTimers() {
+        return ImmutableSortedMap.copyOf(timers);
+    }
+
+    /**
+     * @return the current values of the counters by name, sorted by name
+     */
+    public SortedMap<String, Long> getCounters() {
+        final ImmutableSortedMap.Builder<String, Long> builder = ImmutableSortedMap.naturalOrder();
+
+        for (final Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * How many times a phase was gone through and how long it took.
+     */
+    public static final class Timer {
+
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(final long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.github.timurstrekalov.saga.core.metrics;
+
+/**
+ * Records metrics from wherever they happen, e.g. deep inside HtmlUnit while a page is loading, without having to pass
+ * anything around. Everything is recorded into the metrics of the current run, and also into those of the test being
+ * run on the current thread, if any.
+ * <p/>
+ * The phases nest: the time a page takes to load includes parsing and instrumenting the scripts on it, for example.
+ */
+public final class MetricsRecorder {
+
+    public static final String BROWSER_STARTUP = "browser_startup";
+    public static final String PAGE_LOAD = "page_load";
+    public static final String BACKGROUND_JAVASCRIPT = "background_javascript";
+    public static final String PARSING = "parsing";
+    public static final String INSTRUMENTATION = "instrumentation";
+    public static final String COMPILATION = "compilation";
+    public static final String COVERAGE_EXTRACTION = "coverage_extraction";
+    public static final String STATISTICS = "statistics";
+    public static final String MERGE = "merge";
+    public static final String REPORT_PREFIX = "report_";
+
+    public static final String INSTRUMENTATION_CACHE_HITS = "instrumentation_cache_hits";
+    public static final String INSTRUMENTATION_DISK_CACHE_HITS = "instrumentation_disk_cache_hits";
+    public static final String INSTRUMENTATION_CACHE_MISSES = "instrumentation_cache_misses";
+    public static final String INSTRUMENTED_CHARACTERS = "instrumented_characters";
+    public static final String COMPILED_SCRIPT_CACHE_HITS = "compiled_script_cache_hits";
+    public static final String COMPILED_SCRIPT_CACHE_MISSES = "compiled_script_cache_misses";
+    public static final String STATIC_RESOURCE_CACHE_HITS = "static_resource_cache_hits";
+    public static final String STATIC_RESOURCE_CACHE_MISSES = "static_resource_cache_misses";
+    public static final String BLOCKED_REQUESTS = "blocked_requests";
+    public static final String INSTRUMENTED_RESPONSE_CACHE_HITS = "instrumented_response_cache_hits";
+    public static final String INSTRUMENTED_RESPONSE_CACHE_MISSES = "instrumented_response_cache_misses";
+
+    // nobody might ever start a run, e.g. when an external test runner provides the browser
+    private static volatile Metrics runMetrics = new Metrics();
+
+    private static final ThreadLocal<Metrics> testMetrics = new ThreadLocal<Metrics>();
+
+    private MetricsRecorder() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * @return the metrics everything is recorded into from now on
+     */
+    public static Metrics startRun() {
+        final Metrics metrics = new Metrics();
+        runMetrics = metrics;
+        return metrics;
+    }
+
+    /**
+     * @return the metrics to record into in addition to those of the run, until {@link #endTest()} is called on the
+     *         same thread
+     */
+    public static Metrics startTest() {
+        final Metrics metrics = new Metrics();
+        testMetrics.set(metrics);
+        return metrics;
+    }
+
+    public static void endTest() {
+        testMetrics.remove();
+    }
+
+    /**
+     * @param startNanos the value of {@link System#nanoTime()} when the phase started
+     */
+    public static void recordTimeSince(final String phase, final long startNanos) {
+        final long nanos = System.nanoTime() - startNanos;
+
+        runMetrics.recordTime(phase, nanos);
+
+        final Metrics metrics = testMetrics.get();
+        if (metrics != null) {
+            metrics.recordTime(phase, nanos);
+        }
+    }
+
+    public static void increment(final String counter) {
+        increment(counter, 1);
+    }
+
+    public static void increment(final String counter, final long delta) {
+        runMetrics.increment(counter, delta);
+
+        final Metrics metrics = testMetrics.get();
+        if (metrics != null) {
+            metrics.increment(counter, delta);
+        }
+    }
+
+}
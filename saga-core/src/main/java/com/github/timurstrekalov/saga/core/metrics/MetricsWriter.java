@@ -0,0 +1,154 @@
+package com.github.timurstrekalov.saga.core.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Writes the metrics of a run as JSON, including those of every test, and in the Prometheus text exposition format,
+ * which only has the totals, since a series per test would be far too many for Prometheus to handle.
+ */
+public final class MetricsWriter {
+
+    public static final String JSON_FILE_NAME = "metrics.json";
+    public static final String PROMETHEUS_FILE_NAME = "metrics.prom";
+
+    private static final String PROMETHEUS_PREFIX = "saga_";
+
+    /**
+     * @param testMetrics the metrics of every test by its name, e.g. its path relative to the base directory
+     */
+    public void write(final File outputDir, final Metrics runMetrics, final SortedMap<String, Metrics> testMetrics)
+            throws IOException {
+        Files.write(toJson(runMetrics, testMetrics), new File(outputDir, JSON_FILE_NAME), Charsets.UTF_8);
+        Files.write(toPrometheus(runMetrics), new File(outputDir, PROMETHEUS_FILE_NAME), Charsets.UTF_8);
+    }
+
+    static String toJson(final Metrics runMetrics, final SortedMap<String, Metrics> testMetrics) {
+        final StringBuilder json = new StringBuilder("{\n");
+        appendJsonFields(json, runMetrics, "  ");
+        json.append(",\n  \"tests\": {");
+
+        for (final Iterator<Map.Entry<String, Metrics>> it = testMetrics.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String, Metrics> entry = it.next();
+
+            json.append("\n    ").append(jsonString(entry.getKey())).append(": {\n");
+            appendJsonFields(json, entry.getValue(), "      ");
+            json.append("\n    }");
+
+            if (it.hasNext()) {
+                json.append(',');
+            }
+        }
+
+        return json.append(testMetrics.isEmpty() ? "}\n}\n" : "\n  }\n}\n").toString();
+    }
+
+    private static void appendJsonFields(final StringBuilder json, final Metrics metrics, final String indent) {
+        json.append(indent).append("\"phases\": {");
+
+        for (final Iterator<Map.Entry<String, Metrics.Timer>> it = metrics.getTimers().entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String, Metrics.Timer> entry = it.next();
+            final Metrics.Timer timer = entry.getValue();
+
+            json.append('\n').append(indent).append("  ").append(jsonString(entry.getKey()))
+                    .append(": {\"count\": ").append(timer.getCount())
+                    .append(", \"totalMillis\": ").append(millis(timer.getTotalNanos()))
+                    .append(", \"maxMillis\": ").append(millis(timer.getMaxNanos()))
+                    .append('}');
+
+            if (it.hasNext()) {
+                json.append(',');
+            }
+        }
+
+        json.append(metrics.getTimers().isEmpty() ? "" : "\n" + indent).append("},\n");
+        json.append(indent).append("\"counters\": {");
+
+        for (final Iterator<Map.Entry<String, Long>> it = metrics.getCounters().entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String, Long> entry = it.next();
+
+            json.append('\n').append(indent).append("  ").append(jsonString(entry.getKey())).append(": ").append(entry.getValue());
+
+            if (it.hasNext()) {
+                json.append(',');
+            }
+        }
+
+        json.append(metrics.getCounters().isEmpty() ? "" : "\n" + indent).append('}');
+    }
+
+    static String toPrometheus(final Metrics runMetrics) {
+        final StringBuilder out = new StringBuilder();
+        final SortedMap<String, Metrics.Timer> timers = runMetrics.getTimers();
+
+        appendPrometheusHeader(out, "phase_seconds_total", "counter", "Time spent in each phase of the run");
+        for (final Map.Entry<String, Metrics.Timer> entry : timers.entrySet()) {
+            appendPrometheusSample(out, "phase_seconds_total", entry.getKey(), seconds(entry.getValue().getTotalNanos()));
+        }
+
+        appendPrometheusHeader(out, "phase_count_total", "counter", "Number of times each phase was gone through");
+        for (final Map.Entry<String, Metrics.Timer> entry : timers.entrySet()) {
+            appendPrometheusSample(out, "phase_count_total", entry.getKey(), String.valueOf(entry.getValue().getCount()));
+        }
+
+        appendPrometheusHeader(out, "phase_max_seconds", "gauge", "Longest time a single pass through each phase took");
+        for (final Map.Entry<String, Metrics.Timer> entry : timers.entrySet()) {
+            appendPrometheusSample(out, "phase_max_seconds", entry.getKey(), seconds(entry.getValue().getMaxNanos()));
+        }
+
+        for (final Map.Entry<String, Long> entry : runMetrics.getCounters().entrySet()) {
+            final String name = entry.getKey() + "_total";
+
+            appendPrometheusHeader(out, name, "counter", null);
+            out.append(PROMETHEUS_PREFIX).append(name).append(' ').append(entry.getValue()).append('\n');
+        }
+
+        return out.toString();
+    }
+
+    private static void appendPrometheusHeader(final StringBuilder out, final String name, final String type, final String help) {
+        if (help != null) {
+            out.append("# HELP ").append(PROMETHEUS_PREFIX).append(name).append(' ').append(help).append('\n');
+        }
+
+        out.append("# TYPE ").append(PROMETHEUS_PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void appendPrometheusSample(final StringBuilder out, final String name, final String phase, final String value) {
+        out.append(PROMETHEUS_PREFIX).append(name).append("{phase=\"").append(phase).append("\"} ").append(value).append('\n');
+    }
+
+    private static String millis(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.3f", nanos / 1e6);
+    }
+
+    private static String seconds(final long nanos) {
+        return String.format(Locale.ENGLISH, "%.6f", nanos / 1e9);
+    }
+
+    private static String jsonString(final String s) {
+        final StringBuilder buf = new StringBuilder(s.length() + 2).append('"');
+
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                buf.append('\\').append(c);
+            } else if (c < 0x20) {
+                buf.append(String.format("\\u%04x", (int) c));
+            } else {
+                buf.append(c);
+            }
+        }
+
+        return buf.append('"').toString();
+    }
+
+}
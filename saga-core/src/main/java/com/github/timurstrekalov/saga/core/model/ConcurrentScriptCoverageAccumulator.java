@@ -0,0 +1,71 @@
+package com.github.timurstrekalov.saga.core.model;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.google.common.base.Preconditions;
+
+import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_NO_STATEMENT;
+
+/**
+ * A thread-safe counterpart of {@link ScriptCoverageAccumulator}, which lets several threads add coverage of the same
+ * script at the same time without locking: every line's count is updated atomically on its own.
+ */
+public final class ConcurrentScriptCoverageAccumulator implements CoverageAccumulator {
+
+    private final URI baseUri;
+    private final URI fileUri;
+    private final boolean separateFile;
+    private final SourceLines sourceLines;
+    private final AtomicIntegerArray timesExecuted;
+
+    public ConcurrentScriptCoverageAccumulator(final ScriptCoverageStatistics initialStatistics) {
+        this.baseUri = initialStatistics.getBaseUri();
+        this.fileUri = initialStatistics.getFileUri();
+        this.separateFile = initialStatistics.isSeparateFile();
+        this.sourceLines = initialStatistics.getSourceLines();
+        this.timesExecuted = new AtomicIntegerArray(initialStatistics.getTimesExecuted());
+    }
+
+    @Override
+    public void add(final ScriptCoverageStatistics newStatistics) {
+        Preconditions.checkArgument(fileUri.equals(newStatistics.getFileUri()), "Got different file names: %s and %s", fileUri, newStatistics);
+        Preconditions.checkArgument(sourceLines.hasSameLines(newStatistics.getSourceLines()),
+                "Error merging %s: the source differs between test runs", fileUri);
+
+        final int[] newTimesExecuted = newStatistics.getTimesExecuted();
+
+        for (int i = 0; i < newTimesExecuted.length; i++) {
+            final int newTimes = newTimesExecuted[i];
+
+            if (newTimes == LINE_NO_STATEMENT) {
+                timesExecuted.set(i, LINE_NO_STATEMENT);
+                continue;
+            }
+
+            while (true) {
+                final int times = timesExecuted.get(i);
+                final int mergedTimes = times == LINE_NO_STATEMENT ? newTimes : times + newTimes;
+
+                if (timesExecuted.compareAndSet(i, times, mergedTimes)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a snapshot of the coverage added so far
+     */
+    @Override
+    public ScriptCoverageStatistics toStatistics() {
+        final int[] snapshot = new int[timesExecuted.length()];
+
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = timesExecuted.get(i);
+        }
+
+        return new ScriptCoverageStatistics(baseUri, fileUri, sourceLines, snapshot, separateFile);
+    }
+
+}
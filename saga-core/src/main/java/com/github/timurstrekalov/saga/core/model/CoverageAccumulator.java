@@ -0,0 +1,12 @@
+package com.github.timurstrekalov.saga.core.model;
+
+/**
+ * Adds up the coverage of a single script across test runs.
+ */
+interface CoverageAccumulator {
+
+    void add(ScriptCoverageStatistics newStatistics);
+
+    ScriptCoverageStatistics toStatistics();
+
+}
@@ -39,6 +39,10 @@ public final class LineCoverageRecord {
         return timesExecuted;
     }
 
+    public String getLine() {
+        return line;
+    }
+
     public String getLineSource() {
         return StringEscapeUtils.escapeHtml(StringEscapeUtils.escapeJavaScript(line));
     }
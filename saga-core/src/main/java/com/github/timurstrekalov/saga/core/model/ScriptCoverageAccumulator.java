@@ -0,0 +1,73 @@
+package com.github.timurstrekalov.saga.core.model;
+
+import java.net.URI;
+
+import com.google.common.base.Preconditions;
+
+import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_NO_STATEMENT;
+
+/**
+ * Adds up the coverage of a script across test runs in place, summing the execution counts into a single array instead
+ * of creating new statistics on every merge. The {@link ScriptCoverageStatistics} view is only built when asked for and
+ * is kept until more coverage is added.
+ */
+public final class ScriptCoverageAccumulator implements CoverageAccumulator {
+
+    private final URI baseUri;
+    private final URI fileUri;
+    private final boolean separateFile;
+    private final SourceLines sourceLines;
+
+    private ScriptCoverageStatistics statistics;
+
+    // copied on the first merge, so that scripts covered by a single test never have to be copied
+    private int[] timesExecuted;
+
+    public ScriptCoverageAccumulator(final ScriptCoverageStatistics initialStatistics) {
+        this.baseUri = initialStatistics.getBaseUri();
+        this.fileUri = initialStatistics.getFileUri();
+        this.separateFile = initialStatistics.isSeparateFile();
+        this.sourceLines = initialStatistics.getSourceLines();
+        this.statistics = initialStatistics;
+    }
+
+    public URI getFileUri() {
+        return fileUri;
+    }
+
+    @Override
+    public void add(final ScriptCoverageStatistics newStatistics) {
+        Preconditions.checkArgument(fileUri.equals(newStatistics.getFileUri()), "Got different file names: %s and %s", fileUri, newStatistics);
+        Preconditions.checkArgument(sourceLines.hasSameLines(newStatistics.getSourceLines()),
+                "Error merging %s: the source differs between test runs", fileUri);
+
+        if (timesExecuted == null) {
+            timesExecuted = statistics.getTimesExecuted().clone();
+        }
+
+        final int[] newTimesExecuted = newStatistics.getTimesExecuted();
+
+        for (int i = 0; i < timesExecuted.length; i++) {
+            if (newTimesExecuted[i] == LINE_NO_STATEMENT) {
+                timesExecuted[i] = LINE_NO_STATEMENT;
+            } else if (timesExecuted[i] == LINE_NO_STATEMENT) {
+                timesExecuted[i] = newTimesExecuted[i];
+            } else {
+                timesExecuted[i] += newTimesExecuted[i];
+            }
+        }
+
+        statistics = null;
+    }
+
+    @Override
+    public ScriptCoverageStatistics toStatistics() {
+        if (statistics == null) {
+            // the view gets its own copy, since more coverage might be added to the accumulator later on
+            statistics = new ScriptCoverageStatistics(baseUri, fileUri, sourceLines, timesExecuted.clone(), separateFile);
+        }
+
+        return statistics;
+    }
+
+}
@@ -3,45 +3,102 @@ package com.github.timurstrekalov.saga.core.model;
 import java.io.File;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.util.AbstractList;
 import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
 
 import com.github.timurstrekalov.saga.core.util.MiscUtil;
 import com.github.timurstrekalov.saga.core.util.ResourceUtil;
 import com.github.timurstrekalov.saga.core.util.UriUtil;
-import com.google.common.base.Function;
+import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 
 import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_MISSED;
+import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_NO_STATEMENT;
 
 /**
- * Contains coverage statistics of a particular script.
+ * Contains coverage statistics of a particular script. The statistics are kept in columns: the number of times each
+ * line was executed (or {@link LineCoverageRecord#LINE_NO_STATEMENT}) is an element of an array and the lines
+ * themselves are shared with every other test run that loaded the script. {@link LineCoverageRecord}s are only created
+ * when a report asks for them.
  */
 public final class ScriptCoverageStatistics {
 
     private final URI baseUri;
     private final URI fileUri;
-    private final List<LineCoverageRecord> lineCoverageRecords;
+    private final SourceLines sourceLines;
+    private final int[] timesExecuted;
     private final boolean separateFile;
 
-    // for stringtemplate
-    private final String parentName;
+    // computed lazily, since most instances only live long enough to be merged into another one
+    private String parentName;
+    private String id;
+    private int statements = -1;
+    private int executed = -1;
+
+    /**
+     * @param timesExecuted the number of times each line was executed, indexed by line number minus one; not copied, so
+     *                      it must not be modified afterwards
+     */
+    public ScriptCoverageStatistics(final URI baseUri, final URI fileUri, final SourceLines sourceLines, final int[] timesExecuted,
+            final boolean separateFile) {
+        Preconditions.checkArgument(sourceLines.size() == timesExecuted.length,
+                "Got %s lines and %s execution counts for %s", sourceLines.size(), timesExecuted.length, fileUri);
 
-    private final String id;
-
-    public ScriptCoverageStatistics(final URI baseUri, final URI fileUri, final List<LineCoverageRecord> lineCoverageRecords, final boolean separateFile) {
         this.baseUri = baseUri;
         this.fileUri = fileUri;
+        this.sourceLines = sourceLines;
+        this.timesExecuted = timesExecuted;
         this.separateFile = separateFile;
+    }
+
+    /**
+     * @param lineCoverageRecords the records of all lines of the script, numbered from 1
+     */
+    public ScriptCoverageStatistics(final URI baseUri, final URI fileUri, final List<LineCoverageRecord> lineCoverageRecords, final boolean separateFile) {
+        this(baseUri, fileUri, toSourceLines(lineCoverageRecords), toTimesExecuted(fileUri, lineCoverageRecords), separateFile);
+    }
 
-        parentName = new File(getRelativeName()).getParent();
+    private static SourceLines toSourceLines(final List<LineCoverageRecord> lineCoverageRecords) {
+        final List<String> lines = Lists.newArrayListWithCapacity(lineCoverageRecords.size());
+        for (final LineCoverageRecord record : lineCoverageRecords) {
+            lines.add(record.getLine());
+        }
+        return SourceLines.of(lines);
+    }
+
+    private static int[] toTimesExecuted(final URI fileUri, final List<LineCoverageRecord> lineCoverageRecords) {
+        final int[] timesExecuted = new int[lineCoverageRecords.size()];
+
+        int i = 0;
+        for (final LineCoverageRecord record : lineCoverageRecords) {
+            Preconditions.checkArgument(record.getLineNr() == i + 1, "Expected line %s of %s, got %s", i + 1, fileUri, record.getLineNr());
+            timesExecuted[i++] = record.getTimesExecuted();
+        }
 
-        this.id = generateId();
-        this.lineCoverageRecords = lineCoverageRecords;
+        return timesExecuted;
+    }
+
+    /**
+     * @return a hash of the source and execution counts of the script, which changes whenever a report of it would
+     */
+    public HashCode getFingerprint() {
+        final Hasher hasher = Hashing.md5().newHasher()
+                .putString(fileUri.toString(), Charsets.UTF_8)
+                .putInt(timesExecuted.length);
+
+        for (int i = 0; i < timesExecuted.length; i++) {
+            hasher.putInt(timesExecuted[i]).putString(sourceLines.get(i), Charsets.UTF_8).putByte((byte) '\n');
+        }
+
+        return hasher.hash();
     }
 
     private String generateId() {
@@ -49,11 +106,11 @@ public final class ScriptCoverageStatistics {
     }
 
     public List<LineCoverageRecord> getLineCoverageRecords() {
-        return lineCoverageRecords;
+        return new LineCoverageRecordList();
     }
 
     public Collection<LineCoverageRecord> getExecutableLineCoverageRecords() {
-        return Collections2.filter(lineCoverageRecords, new Predicate<LineCoverageRecord>() {
+        return Collections2.filter(getLineCoverageRecords(), new Predicate<LineCoverageRecord>() {
             @Override
             public boolean apply(final LineCoverageRecord record) {
                 return record.isExecutable();
@@ -62,21 +119,31 @@ public final class ScriptCoverageStatistics {
     }
 
     public int getStatements() {
-        return Collections2.filter(lineCoverageRecords, new Predicate<LineCoverageRecord>() {
-            @Override
-            public boolean apply(final LineCoverageRecord input) {
-                return input.isExecutable();
+        if (statements == -1) {
+            int count = 0;
+            for (final int times : timesExecuted) {
+                if (times != LINE_NO_STATEMENT) {
+                    count++;
+                }
             }
-        }).size();
+            statements = count;
+        }
+
+        return statements;
     }
 
     public int getExecuted() {
-        return MiscUtil.sum(lineCoverageRecords, new Function<LineCoverageRecord, Integer>() {
-            @Override
-            public Integer apply(final LineCoverageRecord input) {
-                return input.getTimesExecuted() > LINE_MISSED ? 1 : LINE_MISSED;
+        if (executed == -1) {
+            int count = 0;
+            for (final int times : timesExecuted) {
+                if (times > LINE_MISSED) {
+                    count++;
+                }
             }
-        });
+            executed = count;
+        }
+
+        return executed;
     }
 
     public int getCoverage() {
@@ -100,26 +167,32 @@ public final class ScriptCoverageStatistics {
     }
 
     public static ScriptCoverageStatistics merge(final ScriptCoverageStatistics s1, final ScriptCoverageStatistics s2) {
-        final List<LineCoverageRecord> r1 = s1.getLineCoverageRecords();
-        final List<LineCoverageRecord> r2 = s2.getLineCoverageRecords();
-
-        Preconditions.checkArgument(s1.fileUri.equals(s2.fileUri), "Got different file names: %s and %s", s1, s2);
-        Preconditions.checkArgument(r1.size() == r2.size(), "Got different numbers of line coverage records: %s and %s", s1, s2);
+        final ScriptCoverageAccumulator accumulator = new ScriptCoverageAccumulator(s2);
+        accumulator.add(s1);
+        return accumulator.toStatistics();
+    }
 
-        final List<LineCoverageRecord> mergedRecords = Lists.newLinkedList();
+    public URI getBaseUri() {
+        return baseUri;
+    }
 
-        for (int i = 0; i < r1.size(); i++) {
-            final LineCoverageRecord l1 = r1.get(i);
-            final LineCoverageRecord l2 = r2.get(i);
+    /**
+     * @return the lines of the script, e.g. for writing all of them without creating a {@link LineCoverageRecord} each
+     */
+    public SourceLines getSourceLines() {
+        return sourceLines;
+    }
 
-            try {
-                mergedRecords.add(LineCoverageRecord.merge(l1, l2));
-            } catch (final Exception e) {
-                throw new RuntimeException("Error merging " + s1.fileUri + " and " + s2.fileUri, e);
-            }
-        }
+    /**
+     * @param index zero-based index of the line, i.e. the line number minus one
+     * @return the number of times the line was executed or {@link LineCoverageRecord#LINE_NO_STATEMENT}
+     */
+    public int getTimesExecuted(final int index) {
+        return timesExecuted[index];
+    }
 
-        return new ScriptCoverageStatistics(s1.baseUri, s1.fileUri, mergedRecords, s1.separateFile);
+    int[] getTimesExecuted() {
+        return timesExecuted;
     }
 
     public URI getFileUri() {
@@ -141,10 +214,18 @@ public final class ScriptCoverageStatistics {
     }
 
     public String getParentName() {
+        if (parentName == null) {
+            parentName = new File(getRelativeName()).getParent();
+        }
+
         return parentName;
     }
 
     public String getId() {
+        if (id == null) {
+            id = generateId();
+        }
+
         return id;
     }
 
@@ -157,4 +238,18 @@ public final class ScriptCoverageStatistics {
         return fileUri.toString();
     }
 
+    private final class LineCoverageRecordList extends AbstractList<LineCoverageRecord> implements RandomAccess {
+
+        @Override
+        public LineCoverageRecord get(final int index) {
+            return new LineCoverageRecord(index + 1, timesExecuted[index], sourceLines.get(index));
+        }
+
+        @Override
+        public int size() {
+            return timesExecuted.length;
+        }
+
+    }
+
 }
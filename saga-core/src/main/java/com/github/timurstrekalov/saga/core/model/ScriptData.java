@@ -3,11 +3,11 @@ package com.github.timurstrekalov.saga.core.model;
 import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.SortedSet;
 
 import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_MISSED;
@@ -21,7 +21,12 @@ public final class ScriptData {
 
     private final SortedSet<Integer> linesWithStatements = Sets.newTreeSet();
 
+    // only used with CounterMode.ARRAY
+    private final Map<Integer, Integer> counterIndexesByLine = Maps.newHashMap();
+    private final List<Integer> linesByCounterIndex = Lists.newArrayList();
+
     private String instrumentedSourceCode;
+    private SourceLines sourceLines;
 
     public ScriptData(final URI sourceUri, final String sourceCode, final boolean separateFile) {
         this.sourceUri = sourceUri;
@@ -65,6 +70,41 @@ public final class ScriptData {
         return linesWithStatements.first();
     }
 
+    /**
+     * @return the line number of the last statement, or 0 if there are none
+     */
+    public int getLineNumberOfLastStatement() {
+        return linesWithStatements.isEmpty() ? 0 : linesWithStatements.last();
+    }
+
+    /**
+     * Adds a counter tracking the given line, using the next free index, unless the line already has one.
+     *
+     * @return the index of the counter tracking the line
+     */
+    public int addCounter(final int lineNr) {
+        final Integer index = counterIndexesByLine.get(lineNr);
+
+        if (index != null) {
+            return index;
+        }
+
+        final int newIndex = linesByCounterIndex.size();
+
+        counterIndexesByLine.put(lineNr, newIndex);
+        linesByCounterIndex.add(lineNr);
+
+        return newIndex;
+    }
+
+    public int getNumberOfCounters() {
+        return linesByCounterIndex.size();
+    }
+
+    public int getLineNumberOfCounter(final int index) {
+        return linesByCounterIndex.get(index);
+    }
+
     public void setInstrumentedSourceCode(final String instrumentedSourceCode) {
         this.instrumentedSourceCode = instrumentedSourceCode;
     }
@@ -77,39 +117,48 @@ public final class ScriptData {
         return separateFile;
     }
 
-    // TODO clean up and test this mess
-    public ScriptCoverageStatistics generateScriptCoverageStatistics(final URI baseUri, final Map<String, Long> coverageData) {
-        final Scanner in = new Scanner(getSourceCode());
-
-        final List<LineCoverageRecord> lineCoverageRecords = Lists.newArrayList();
+    /**
+     * @return the lines of the source code, split only once and shared by the coverage statistics of all test runs
+     */
+    public synchronized SourceLines getSourceLines() {
+        if (sourceLines == null) {
+            sourceLines = SourceLines.of(getSourceCode());
+        }
 
-        if (!linesWithStatements.isEmpty()) {
-            // pad with extra line coverage records if first executable statement is not the first line (comments at the start of files)
-            for (int lineNr = 1; lineNr < getLineNumberOfFirstStatement() && in.hasNext(); lineNr++) {
-                lineCoverageRecords.add(new LineCoverageRecord(lineNr, LINE_NO_STATEMENT, in.nextLine()));
-            }
+        return sourceLines;
+    }
 
-            for (int lineNr = getLineNumberOfFirstStatement(); in.hasNext(); lineNr++) {
-                final String line = in.nextLine();
+    /**
+     * @param countsByLine the number of times each line ran, indexed by line number, with {@link
+     *                     LineCoverageRecord#LINE_NO_STATEMENT} for the lines (and the lines past the end of the
+     *                     array) that had no counter
+     */
+    public ScriptCoverageStatistics generateScriptCoverageStatistics(final URI baseUri, final int[] countsByLine) {
+        final SourceLines lines = getSourceLines();
+        final int[] timesExecuted = new int[lines.size()];
 
-                final Long coverageEntry = coverageData.get(String.valueOf(lineNr));
-                final int timesLineExecuted;
+        // lines before the first statement can only contain comments or whitespace (and no lines contain statements at all
+        // if the script doesn't have any)
+        final int lineNumberOfFirstStatement = linesWithStatements.isEmpty() ? Integer.MAX_VALUE : getLineNumberOfFirstStatement();
 
-                if (coverageEntry == null) {
-                    timesLineExecuted = hasStatement(lineNr) ? LINE_MISSED : LINE_NO_STATEMENT;
-                } else {
-                    timesLineExecuted = coverageEntry.intValue();
-                }
+        for (int i = 0; i < timesExecuted.length; i++) {
+            final int lineNr = i + 1;
 
-                lineCoverageRecords.add(new LineCoverageRecord(lineNr, timesLineExecuted, line));
+            if (lineNr < lineNumberOfFirstStatement) {
+                timesExecuted[i] = LINE_NO_STATEMENT;
+                continue;
             }
-        } else {
-            for (int lineNr = 1; in.hasNext(); lineNr++) {
-                lineCoverageRecords.add(new LineCoverageRecord(lineNr, LINE_NO_STATEMENT, in.nextLine()));
+
+            final int count = lineNr < countsByLine.length ? countsByLine[lineNr] : LINE_NO_STATEMENT;
+
+            if (count == LINE_NO_STATEMENT) {
+                timesExecuted[i] = hasStatement(lineNr) ? LINE_MISSED : LINE_NO_STATEMENT;
+            } else {
+                timesExecuted[i] = count;
             }
         }
 
-        return new ScriptCoverageStatistics(baseUri, getSourceUri(), lineCoverageRecords, isSeparateFile());
+        return new ScriptCoverageStatistics(baseUri, getSourceUri(), lines, timesExecuted, isSeparateFile());
     }
 
     @Override
@@ -0,0 +1,141 @@
+package com.github.timurstrekalov.saga.core.model;
+
+import java.util.List;
+
+
+/**
+ * The lines of a script, kept as offsets into the source code so that the text of a line is only sliced out when a
+ * report actually needs it. Instances are immutable and shared by the coverage statistics of every test run that
+ * loaded the script.
+ * <p/>
+ * Trailing lines containing nothing but whitespace are not part of the script, just like when reading the lines with a
+ * {@link java.util.Scanner} while it has more tokens.
+ */
+public final class SourceLines {
+
+    public static final SourceLines EMPTY = new SourceLines("", new int[0], new int[0]);
+
+    private final String source;
+    private final int[] lineStarts;
+    private final int[] lineEnds;
+
+    private SourceLines(final String source, final int[] lineStarts, final int[] lineEnds) {
+        this.source = source;
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+    }
+
+    public static SourceLines of(final String source) {
+        final int end = indexOfLastNonWhitespace(source) + 1;
+
+        int lineCount = 0;
+        for (int pos = 0; pos < end; pos = nextLineStart(source, pos)) {
+            lineCount++;
+        }
+
+        final int[] lineStarts = new int[lineCount];
+        final int[] lineEnds = new int[lineCount];
+
+        int pos = 0;
+        for (int i = 0; i < lineCount; i++) {
+            lineStarts[i] = pos;
+            lineEnds[i] = lineEnd(source, pos);
+            pos = nextLineStart(source, pos);
+        }
+
+        return new SourceLines(source, lineStarts, lineEnds);
+    }
+
+    /**
+     * Creates an instance from lines that have already been split, keeping all of them.
+     */
+    public static SourceLines of(final List<String> lines) {
+        final StringBuilder source = new StringBuilder();
+        final int[] lineStarts = new int[lines.size()];
+        final int[] lineEnds = new int[lines.size()];
+
+        int i = 0;
+        for (final String line : lines) {
+            lineStarts[i] = source.length();
+            source.append(line);
+            lineEnds[i] = source.length();
+            source.append('\n');
+            i++;
+        }
+
+        return new SourceLines(source.toString(), lineStarts, lineEnds);
+    }
+
+    public int size() {
+        return lineStarts.length;
+    }
+
+    /**
+     * @param index zero-based index of the line, i.e. the line number minus one
+     */
+    public String get(final int index) {
+        return source.substring(lineStarts[index], lineEnds[index]);
+    }
+
+    /**
+     * @return whether both contain the same lines, without copying any of them
+     */
+    public boolean hasSameLines(final SourceLines other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (size() != other.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < size(); i++) {
+            final int length = lineEnds[i] - lineStarts[i];
+
+            if (length != other.lineEnds[i] - other.lineStarts[i]
+                    || !source.regionMatches(lineStarts[i], other.source, other.lineStarts[i], length)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static int indexOfLastNonWhitespace(final String source) {
+        int i = source.length() - 1;
+        while (i >= 0 && Character.isWhitespace(source.charAt(i))) {
+            i--;
+        }
+        return i;
+    }
+
+    private static int lineEnd(final String source, final int lineStart) {
+        int i = lineStart;
+        while (i < source.length() && !isLineSeparator(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int nextLineStart(final String source, final int lineStart) {
+        final int lineEnd = lineEnd(source, lineStart);
+
+        if (lineEnd == source.length()) {
+            return lineEnd;
+        }
+
+        if (source.charAt(lineEnd) == '\r' && lineEnd + 1 < source.length() && source.charAt(lineEnd + 1) == '\n') {
+            return lineEnd + 2;
+        }
+
+        return lineEnd + 1;
+    }
+
+    /**
+     * The same line separators as those recognized by {@link java.util.Scanner#nextLine()}.
+     */
+    private static boolean isLineSeparator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+    }
+
+}
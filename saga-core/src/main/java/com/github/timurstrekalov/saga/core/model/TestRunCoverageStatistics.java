@@ -6,7 +6,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import com.github.timurstrekalov.saga.core.Order;
 import com.github.timurstrekalov.saga.core.SortBy;
@@ -16,10 +17,10 @@ import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 /**
- * Contains coverage information generated by a single test run.
+ * Contains coverage information generated by a single test run, or added up over several of them. Instances aren't
+ * thread-safe unless created with {@link #newThreadSafeInstance(URI, String)}.
  */
 public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageStatistics> {
 
@@ -31,7 +32,11 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
     private SortBy sortBy;
     private Order order;
 
-    private final Map<URI, ScriptCoverageStatistics> fileStatsMap = Maps.newTreeMap();
+    private final boolean threadSafe;
+    private final ConcurrentMap<URI, CoverageAccumulator> fileStatsMap = new ConcurrentSkipListMap<URI, CoverageAccumulator>();
+
+    // built on demand and dropped whenever stats are added, guarded by this
+    private List<ScriptCoverageStatistics> sortedFileStats;
 
     private List<String> sourceDirs;
 
@@ -40,8 +45,21 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
     }
 
     public TestRunCoverageStatistics(final URI test, final String title) {
+        this(test, title, false);
+    }
+
+    private TestRunCoverageStatistics(final URI test, final String title, final boolean threadSafe) {
         this.test = test;
         this.title = title;
+        this.threadSafe = threadSafe;
+    }
+
+    /**
+     * Creates an instance that several threads can add stats to at the same time, e.g. to add up the total coverage as
+     * each test finishes.
+     */
+    public static TestRunCoverageStatistics newThreadSafeInstance(final URI test, final String title) {
+        return new TestRunCoverageStatistics(test, title, true);
     }
 
     public String getTestName() {
@@ -50,26 +68,48 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
 
     public void add(final ScriptCoverageStatistics newStats) {
         final URI key = newStats.getFileUri();
-        final ScriptCoverageStatistics oldStats = fileStatsMap.get(key);
+        final CoverageAccumulator accumulator = fileStatsMap.get(key);
 
-        if (oldStats != null) {
-            fileStatsMap.put(key, ScriptCoverageStatistics.merge(newStats, oldStats));
+        if (accumulator != null) {
+            accumulator.add(newStats);
         } else {
-            fileStatsMap.put(key, newStats);
+            final CoverageAccumulator existingAccumulator = fileStatsMap.putIfAbsent(key, newAccumulator(newStats));
+
+            if (existingAccumulator != null) {
+                existingAccumulator.add(newStats);
+            }
         }
+
+        invalidateFileStats();
     }
 
-    public List<ScriptCoverageStatistics> getFileStats() {
-        final List<ScriptCoverageStatistics> result = Lists.newLinkedList(fileStatsMap.values());
+    private synchronized void invalidateFileStats() {
+        sortedFileStats = null;
+    }
 
-        Collections.sort(result, new Comparator<ScriptCoverageStatistics>() {
-            @Override
-            public int compare(final ScriptCoverageStatistics s1, final ScriptCoverageStatistics s2) {
-                return (getOrder() == Order.ASC ? 1 : -1) * getSortBy().compare(s1, s2);
+    private CoverageAccumulator newAccumulator(final ScriptCoverageStatistics initialStats) {
+        return threadSafe ? new ConcurrentScriptCoverageAccumulator(initialStats) : new ScriptCoverageAccumulator(initialStats);
+    }
+
+    public synchronized List<ScriptCoverageStatistics> getFileStats() {
+        if (sortedFileStats == null) {
+            final List<ScriptCoverageStatistics> result = Lists.newArrayListWithCapacity(fileStatsMap.size());
+
+            for (final CoverageAccumulator accumulator : fileStatsMap.values()) {
+                result.add(accumulator.toStatistics());
             }
-        });
 
-        return result;
+            Collections.sort(result, new Comparator<ScriptCoverageStatistics>() {
+                @Override
+                public int compare(final ScriptCoverageStatistics s1, final ScriptCoverageStatistics s2) {
+                    return (getOrder() == Order.ASC ? 1 : -1) * getSortBy().compare(s1, s2);
+                }
+            });
+
+            sortedFileStats = Collections.unmodifiableList(result);
+        }
+
+        return sortedFileStats;
     }
 
     public Collection<ScriptCoverageStatistics> getFileStatsWithSeparateFileOnly() {
@@ -82,7 +122,7 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
     }
 
     public int getTotalStatements() {
-        return MiscUtil.sum(fileStatsMap.values(), new Function<ScriptCoverageStatistics, Integer>() {
+        return MiscUtil.sum(getFileStats(), new Function<ScriptCoverageStatistics, Integer>() {
 
             @Override
             public Integer apply(final ScriptCoverageStatistics input) {
@@ -92,7 +132,7 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
     }
 
     public int getTotalExecuted() {
-        return MiscUtil.sum(fileStatsMap.values(), new Function<ScriptCoverageStatistics, Integer>() {
+        return MiscUtil.sum(getFileStats(), new Function<ScriptCoverageStatistics, Integer>() {
 
             @Override
             public Integer apply(final ScriptCoverageStatistics input) {
@@ -128,6 +168,7 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
 
     public void setSortBy(final SortBy sortBy) {
         this.sortBy = sortBy;
+        invalidateFileStats();
     }
 
     public SortBy getSortBy() {
@@ -136,6 +177,7 @@ public final class TestRunCoverageStatistics implements Iterable<ScriptCoverageS
 
     public void setOrder(final Order order) {
         this.order = order;
+        invalidateFileStats();
     }
 
     public Order getOrder() {
@@ -1,10 +1,6 @@
 package com.github.timurstrekalov.saga.core.reporter;
 
-import java.io.File;
-import java.io.IOException;
-
 import com.github.timurstrekalov.saga.core.ReportFormat;
-import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.stringtemplate.v4.STErrorListener;
@@ -15,23 +11,26 @@ import org.stringtemplate.v4.misc.STMessage;
 abstract class AbstractStringTemplateBasedReporter extends AbstractReporter {
 
     protected static final LoggingStringTemplateErrorListener listener = new LoggingStringTemplateErrorListener();
-    protected static final STGroup stringTemplateGroup = new STGroupDir("stringTemplates", '$', '$');
 
-    private static final Object lock = new Object();
+    /**
+     * Template groups aren't thread-safe, so instead of having every report wait for the others to be written, each
+     * thread loads the templates into a group of its own.
+     */
+    private static final ThreadLocal<STGroup> stringTemplateGroup = new ThreadLocal<STGroup>() {
+        @Override
+        protected STGroup initialValue() {
+            return new STGroupDir("stringTemplates", '$', '$');
+        }
+    };
 
     public AbstractStringTemplateBasedReporter(final ReportFormat format) {
         super(format);
     }
 
-    @Override
-    protected final void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
-        synchronized (lock) {
-            writeReportThreadSafe(outputFile, runStats);
-        }
+    protected static STGroup getStringTemplateGroup() {
+        return stringTemplateGroup.get();
     }
 
-    protected abstract void writeReportThreadSafe(File outputFile, TestRunCoverageStatistics runStats) throws IOException;
-
     private static final class LoggingStringTemplateErrorListener implements STErrorListener {
 
         private static final Logger logger = LoggerFactory.getLogger(LoggingStringTemplateErrorListener.class);
@@ -0,0 +1,21 @@
+package com.github.timurstrekalov.saga.core.reporter;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.github.timurstrekalov.saga.core.ReportFormat;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.github.timurstrekalov.saga.core.storage.BinaryCoverageWriter;
+
+public class BinaryReporter extends AbstractReporter {
+
+    public BinaryReporter() {
+        super(ReportFormat.BINARY);
+    }
+
+    @Override
+    protected void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
+        new BinaryCoverageWriter().write(runStats, outputFile);
+    }
+
+}
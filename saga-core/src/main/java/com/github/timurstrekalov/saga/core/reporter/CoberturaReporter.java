@@ -13,8 +13,8 @@ public class CoberturaReporter extends AbstractStringTemplateBasedReporter {
     }
 
     @Override
-    protected void writeReportThreadSafe(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
-        stringTemplateGroup.getInstanceOf("runStatsCobertura")
+    protected void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
+        getStringTemplateGroup().getInstanceOf("runStatsCobertura")
                 .add("stats", runStats)
                 .add("name", config.getProperty("app.name"))
                 .add("version", config.getProperty("app.version"))
@@ -13,8 +13,8 @@ public class CsvReporter extends AbstractStringTemplateBasedReporter {
     }
 
     @Override
-    protected void writeReportThreadSafe(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
-        stringTemplateGroup.getInstanceOf("runStatsCsv")
+    protected void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
+        getStringTemplateGroup().getInstanceOf("runStatsCsv")
                 .add("stats", runStats)
                 .write(outputFile, listener);
     }
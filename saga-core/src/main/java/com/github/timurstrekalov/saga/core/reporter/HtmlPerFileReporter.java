@@ -0,0 +1,162 @@
+package com.github.timurstrekalov.saga.core.reporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import com.github.timurstrekalov.saga.core.ReportFormat;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import org.apache.commons.lang.StringEscapeUtils;
+import org.codehaus.plexus.util.FileUtils;
+
+/**
+ * Writes an index page with the statistics of every script and, next to it, a directory with a script per file that
+ * calls back into the index with the line-by-line coverage of that file. The index only loads a file's script when its
+ * section is opened, so the page stays small no matter how much code is covered.
+ * <p/>
+ * The fingerprints of the files are kept in a manifest, so that files whose coverage didn't change since the previous
+ * run aren't written again.
+ */
+public class HtmlPerFileReporter extends AbstractStringTemplateBasedReporter {
+
+    static final String MANIFEST_FILE_NAME = "manifest.properties";
+
+    private static final String FILE_EXTENSION = ".js";
+
+    public HtmlPerFileReporter() {
+        super(ReportFormat.HTML_PER_FILE);
+    }
+
+    @Override
+    protected void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
+        final String filesDirName = runStats.getTestName() + "-files";
+        final File filesDir = new File(outputFile.getParentFile(), filesDirName);
+
+        writeFiles(filesDir, runStats.getFileStats());
+
+        getStringTemplateGroup().getInstanceOf("runStatsIndex")
+                .add("stats", runStats)
+                .add("filesDir", filesDirName)
+                .add("name", config.getProperty("app.name"))
+                .add("version", config.getProperty("app.version"))
+                .add("url", config.getProperty("app.url"))
+                .write(outputFile, listener);
+    }
+
+    private void writeFiles(final File filesDir, final List<ScriptCoverageStatistics> fileStats) throws IOException {
+        FileUtils.mkdir(filesDir.getAbsolutePath());
+
+        final File manifestFile = new File(filesDir, MANIFEST_FILE_NAME);
+        final Properties previousManifest = loadManifest(manifestFile);
+        final Properties manifest = new Properties();
+
+        int written = 0;
+
+        for (final ScriptCoverageStatistics stats : fileStats) {
+            final String id = stats.getId();
+            final String fingerprint = stats.getFingerprint().toString();
+            final File file = new File(filesDir, id + FILE_EXTENSION);
+
+            manifest.setProperty(id, fingerprint);
+
+            if (!fingerprint.equals(previousManifest.getProperty(id)) || !file.isFile()) {
+                writeFile(file, stats);
+                written++;
+            }
+        }
+
+        deleteStaleFiles(filesDir, manifest.stringPropertyNames());
+        saveManifest(manifestFile, manifest);
+
+        logger.debug("Wrote {} of {} files to {}", written, fileStats.size(), filesDir);
+    }
+
+    private static void writeFile(final File file, final ScriptCoverageStatistics stats) throws IOException {
+        final Writer out = Files.newWriter(file, Charsets.UTF_8);
+        boolean threw = true;
+
+        try {
+            out.write("__coverage_fileLoaded('");
+            out.write(stats.getId());
+            out.write("',[");
+
+            boolean first = true;
+            for (final LineCoverageRecord record : stats.getLineCoverageRecords()) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+
+                out.write('[');
+                out.write(Integer.toString(record.getTimesExecuted()));
+                out.write(",'");
+                // the index puts the line into the page as HTML, just like the monolithic report does
+                out.write(StringEscapeUtils.escapeJavaScript(StringEscapeUtils.escapeHtml(record.getLine())));
+                out.write("']");
+            }
+
+            out.write("]);\n");
+            threw = false;
+        } finally {
+            Closeables.close(out, threw);
+        }
+    }
+
+    private static void deleteStaleFiles(final File filesDir, final Set<String> ids) {
+        final File[] files = filesDir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        final Set<String> fileNames = Sets.newHashSet();
+        for (final String id : ids) {
+            fileNames.add(id + FILE_EXTENSION);
+        }
+
+        for (final File file : files) {
+            if (file.getName().endsWith(FILE_EXTENSION) && !fileNames.contains(file.getName())) {
+                FileUtils.fileDelete(file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static Properties loadManifest(final File manifestFile) throws IOException {
+        final Properties manifest = new Properties();
+
+        if (manifestFile.isFile()) {
+            final InputStream in = Files.newInputStreamSupplier(manifestFile).getInput();
+
+            try {
+                manifest.load(in);
+            } finally {
+                Closeables.close(in, true);
+            }
+        }
+
+        return manifest;
+    }
+
+    private static void saveManifest(final File manifestFile, final Properties manifest) throws IOException {
+        final OutputStream out = Files.newOutputStreamSupplier(manifestFile).getOutput();
+        boolean threw = true;
+
+        try {
+            manifest.store(out, null);
+            threw = false;
+        } finally {
+            Closeables.close(out, threw);
+        }
+    }
+
+}
@@ -13,8 +13,8 @@ public class HtmlReporter extends AbstractStringTemplateBasedReporter {
     }
 
     @Override
-    protected void writeReportThreadSafe(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
-        stringTemplateGroup.getInstanceOf("runStats")
+    protected void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
+        getStringTemplateGroup().getInstanceOf("runStats")
                 .add("stats", runStats)
                 .add("name", config.getProperty("app.name"))
                 .add("version", config.getProperty("app.version"))
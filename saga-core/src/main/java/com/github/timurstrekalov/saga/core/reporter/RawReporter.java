@@ -13,8 +13,8 @@ public class RawReporter extends AbstractStringTemplateBasedReporter {
     }
 
     @Override
-    protected void writeReportThreadSafe(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
-        stringTemplateGroup.getInstanceOf("runStatsRaw")
+    protected void writeReportInternal(final File outputFile, final TestRunCoverageStatistics runStats) throws IOException {
+        getStringTemplateGroup().getInstanceOf("runStatsRaw")
                 .add("stats", runStats)
                 .write(outputFile, listener);
     }
@@ -13,6 +13,8 @@ public final class ReporterFactory {
             .put(ReportFormat.CSV, CsvReporter.class)
             .put(ReportFormat.PDF, PdfReporter.class)
             .put(ReportFormat.COBERTURA, CoberturaReporter.class)
+            .put(ReportFormat.HTML_PER_FILE, HtmlPerFileReporter.class)
+            .put(ReportFormat.BINARY, BinaryReporter.class)
             .build();
 
     private ReporterFactory() {
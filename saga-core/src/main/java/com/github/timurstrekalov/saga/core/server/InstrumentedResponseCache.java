@@ -0,0 +1,165 @@
+package com.github.timurstrekalov.saga.core.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPOutputStream;
+
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Keeps the instrumented scripts served by the proxy as bytes, both plain and gzipped, so that a script only has to be
+ * downloaded, decoded, instrumented, encoded and compressed once rather than once per browser and test. Every browser
+ * has a proxy of its own, so the responses are shared between all of them.
+ * <p/>
+ * The latest response is kept per URL, along with the validators of the upstream response it was made from, which the
+ * proxy uses to revalidate it: a 304 is trusted the same way a browser would trust it. When the upstream server sends
+ * the whole script anyway, it's compared by its strong ETag or otherwise a hash of its body: neither Last-Modified,
+ * which only has a resolution of a second, nor weak ETags promise the same bytes.
+ */
+final class InstrumentedResponseCache {
+
+    private static final long MAXIMUM_SIZE = 64 * 1024 * 1024;
+
+    private static final Cache<String, InstrumentedResponse> responses = CacheBuilder.newBuilder()
+            .maximumWeight(MAXIMUM_SIZE)
+            .weigher(new Weigher<String, InstrumentedResponse>() {
+                @Override
+                public int weigh(final String uri, final InstrumentedResponse response) {
+                    // the gzipped bytes are taken to be no more than the plain ones; both strings are kept as well
+                    final ScriptData scriptData = response.scriptData;
+                    final int characters = scriptData.getSourceCode().length() + scriptData.getInstrumentedSourceCode().length();
+                    return response.bytes.length * 2 + characters * 2;
+                }
+            })
+            .build();
+
+    private InstrumentedResponseCache() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * @param upstreamETag the ETag of the upstream response or null if it doesn't have one
+     */
+    static String getValidator(final String upstreamETag, final byte[] upstreamBody) {
+        if (upstreamETag != null && !upstreamETag.startsWith("W/")) {
+            return upstreamETag;
+        }
+
+        return Hashing.murmur3_128().hashBytes(upstreamBody).toString();
+    }
+
+    static InstrumentedResponse get(final String uri) {
+        return responses.getIfPresent(uri);
+    }
+
+    /**
+     * @param validator see {@link #getValidator(String, byte[])}
+     * @param upstreamETag the ETag of the upstream response or null if it doesn't have one
+     * @param upstreamLastModified the Last-Modified of the upstream response or null if it doesn't have one
+     * @param contentType the Content-Type of the upstream response or null if it doesn't have one
+     */
+    static InstrumentedResponse put(final String uri, final String validator, final String upstreamETag,
+            final String upstreamLastModified, final String contentType, final Charset charset, final ScriptData scriptData) {
+        final InstrumentedResponse response = new InstrumentedResponse(validator, upstreamETag, upstreamLastModified,
+                contentType, charset, scriptData);
+
+        responses.put(uri, response);
+        return response;
+    }
+
+    static final class InstrumentedResponse {
+
+        private final String validator;
+        private final String upstreamETag;
+        private final String upstreamLastModified;
+        private final String contentType;
+        private final Charset charset;
+        private final ScriptData scriptData;
+        private final byte[] bytes;
+        private final String eTag;
+        private volatile byte[] gzippedBytes;
+
+        private InstrumentedResponse(final String validator, final String upstreamETag, final String upstreamLastModified,
+                final String contentType, final Charset charset, final ScriptData scriptData) {
+            this.validator = validator;
+            this.upstreamETag = upstreamETag;
+            this.upstreamLastModified = upstreamLastModified;
+            this.contentType = contentType;
+            this.charset = charset;
+            this.scriptData = scriptData;
+            this.bytes = scriptData.getInstrumentedSourceCode().getBytes(charset);
+
+            // weak, since the plain and the gzipped bytes are the same representation
+            this.eTag = "W/\"saga-" + Hashing.murmur3_128().hashBytes(bytes) + "\"";
+        }
+
+        /**
+         * @return whether the response was made from an upstream response with the given validator and charset
+         */
+        boolean isFor(final String validator, final Charset charset) {
+            return this.validator.equals(validator) && this.charset.equals(charset);
+        }
+
+        String getUpstreamETag() {
+            return upstreamETag;
+        }
+
+        String getUpstreamLastModified() {
+            return upstreamLastModified;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        ScriptData getScriptData() {
+            return scriptData;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        byte[] getGzippedBytes() throws IOException {
+            // compressing the same bytes twice when two browsers ask at once is harmless
+            byte[] result = gzippedBytes;
+            if (result == null) {
+                final ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 4);
+                final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(baos);
+                gzipOutputStream.write(bytes);
+                gzipOutputStream.close();
+
+                result = baos.toByteArray();
+                gzippedBytes = result;
+            }
+
+            return result;
+        }
+
+        String getETag() {
+            return eTag;
+        }
+
+        boolean matches(final String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+
+            for (final String candidate : ifNoneMatch.split(",")) {
+                final String trimmed = candidate.trim();
+                if (trimmed.equals("*") || trimmed.equals(eTag)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+}
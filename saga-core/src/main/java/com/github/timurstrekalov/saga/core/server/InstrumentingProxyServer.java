@@ -1,6 +1,6 @@
 package com.github.timurstrekalov.saga.core.server;
 
-import com.github.timurstrekalov.saga.core.instrumentation.ScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitBasedScriptInstrumenter;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.ConnectHandler;
 import org.eclipse.jetty.server.handler.HandlerCollection;
@@ -13,9 +13,9 @@ import org.slf4j.LoggerFactory;
 public class InstrumentingProxyServer {
 
     private final Server server;
-    private final ScriptInstrumenter instrumenter;
+    private final HtmlUnitBasedScriptInstrumenter instrumenter;
 
-    public InstrumentingProxyServer(final ScriptInstrumenter instrumenter) {
+    public InstrumentingProxyServer(final HtmlUnitBasedScriptInstrumenter instrumenter) {
         this.instrumenter = instrumenter;
 
         server = new Server();
@@ -9,7 +9,6 @@ import java.nio.charset.Charset;
 import java.util.Enumeration;
 import java.util.Locale;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -18,7 +17,10 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import com.github.timurstrekalov.saga.core.instrumentation.ScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitBasedScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import com.github.timurstrekalov.saga.core.server.InstrumentedResponseCache.InstrumentedResponse;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 import com.google.common.io.InputSupplier;
@@ -43,13 +45,13 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
 
     private static final Logger logger = LoggerFactory.getLogger(InstrumentingProxyServlet.class);
 
-    private ScriptInstrumenter instrumenter;
+    private HtmlUnitBasedScriptInstrumenter instrumenter;
 
     @Override
     public void init(final ServletConfig config) throws ServletException {
         super.init(config);
 
-        this.instrumenter = (ScriptInstrumenter) config.getServletContext().getAttribute(INSTRUMENTER);
+        this.instrumenter = (HtmlUnitBasedScriptInstrumenter) config.getServletContext().getAttribute(INSTRUMENTER);
     }
 
     @Override
@@ -84,7 +86,8 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
             return;
         }
 
-        final HttpExchange exchange = new CustomHttpExchange(continuation, response, request);
+        final InstrumentedResponse cachedResponse = isScript(request) ? InstrumentedResponseCache.get(getSourceName(request)) : null;
+        final HttpExchange exchange = new CustomHttpExchange(continuation, response, request, cachedResponse);
 
         exchange.setScheme(HttpSchemes.HTTPS.equals(request.getScheme()) ? HttpSchemes.HTTPS_BUFFER : HttpSchemes.HTTP_BUFFER);
         exchange.setMethod(request.getMethod());
@@ -129,6 +132,11 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
             if (connectionHdr != null && connectionHdr.contains(lhdr)) {
                 continue;
             }
+            // the proxy answers conditional requests for scripts itself, since it has to know which ones a page loads, and
+            // revalidates what it has cached with the upstream server on its own
+            if (isScript(request) && isConditionalRequestHeader(lhdr)) {
+                continue;
+            }
             if (_hostHeader != null && "host".equals(lhdr)) {
                 continue;
             }
@@ -156,6 +164,15 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
             }
         }
 
+        if (cachedResponse != null) {
+            if (cachedResponse.getUpstreamETag() != null) {
+                exchange.setRequestHeader(HttpHeaders.IF_NONE_MATCH, cachedResponse.getUpstreamETag());
+            }
+            if (cachedResponse.getUpstreamLastModified() != null) {
+                exchange.setRequestHeader(HttpHeaders.IF_MODIFIED_SINCE, cachedResponse.getUpstreamLastModified());
+            }
+        }
+
         // Proxy headers
         exchange.setRequestHeader("Via", "1.1 (jetty)");
         if (!xForwardedFor) {
@@ -191,6 +208,22 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
         _client.send(exchange);
     }
 
+    private static boolean isScript(final HttpServletRequest request) {
+        return request.getRequestURI().toLowerCase(Locale.ENGLISH).endsWith(".js");
+    }
+
+    private static String getSourceName(final HttpServletRequest request) {
+        if (request instanceof Request) {
+            return ((Request) request).getUri().toString();
+        }
+
+        return request.getRequestURI();
+    }
+
+    private static boolean isConditionalRequestHeader(final String lowerCaseHeaderName) {
+        return "if-none-match".equals(lowerCaseHeaderName) || "if-modified-since".equals(lowerCaseHeaderName);
+    }
+
     private static InputStream newInputStreamForResponse(
             final HttpServletResponse response, final byte[] remoteResponseBody) throws IOException {
         final InputStream result = new ByteArrayInputStream(remoteResponseBody);
@@ -212,15 +245,25 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
         private final HttpServletResponse response;
         private final HttpServletRequest request;
 
+        /**
+         * The response cached when the request was made, which the upstream server has been asked to revalidate, or null
+         */
+        private final InstrumentedResponse cachedResponse;
+
         private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        private boolean revalidated;
+        private String upstreamETag;
+        private String upstreamLastModified;
 
         public CustomHttpExchange(
                 final Continuation continuation,
                 final HttpServletResponse response,
-                final HttpServletRequest request) {
+                final HttpServletRequest request,
+                final InstrumentedResponse cachedResponse) {
             this.continuation = continuation;
             this.response = response;
             this.request = request;
+            this.cachedResponse = cachedResponse;
         }
 
         @Override
@@ -228,45 +271,34 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
             final byte[] in;
             final byte[] remoteResponseBody = baos.toByteArray();
 
-            if (shouldBeInstrumented(request, response)) {
-                final Charset charset = getCharsetFrom(response);
-                final String body = CharStreams.toString(CharStreams.newReaderSupplier(new InputSupplier<InputStream>() {
-                    @Override
-                    public InputStream getInput() throws IOException {
-                        return newInputStreamForResponse(response, remoteResponseBody);
-                    }
-                }, charset));
-
-                final String uri;
+            final InstrumentedResponse instrumentedResponse = shouldBeInstrumented(request, response)
+                    ? (revalidated ? reuse(cachedResponse) : instrument(remoteResponseBody))
+                    : null;
 
-                if (request instanceof Request) {
-                    uri = ((Request) request).getUri().toString();
-                } else {
-                    uri = request.getRequestURI();
+            if (instrumentedResponse != null) {
+                if (revalidated && instrumentedResponse.getContentType() != null) {
+                    // a 304 doesn't describe the body, the upstream response the script was cached from did
+                    response.setContentType(instrumentedResponse.getContentType());
                 }
 
-                final String instrumentedString = instrumenter.instrument(body, uri, 1);
-                final byte[] instrumentedBytes = instrumentedString.getBytes(charset);
-
-                if (shouldBeGzipEncoded(response)) {
-                    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                    final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(baos);
-
-                    ByteStreams.write(instrumentedBytes, newOutputSupplier(gzipOutputStream));
+                response.setHeader(HttpHeaders.ETAG, instrumentedResponse.getETag());
+                // a reused browser has to ask again on every test, or the script won't be known to have been loaded
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
 
-                    gzipOutputStream.flush();
-                    gzipOutputStream.close();
-
-                    in = baos.toByteArray();
+                if (instrumentedResponse.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    in = new byte[0];
                 } else {
-                    in = instrumentedBytes;
+                    in = shouldBeGzipEncoded(response) ? instrumentedResponse.getGzippedBytes() : instrumentedResponse.getBytes();
+                    response.setContentLength(in.length);
                 }
             } else {
                 in = remoteResponseBody;
-            }
 
-            if (response.getHeader(HttpHeaders.CONTENT_LENGTH) != null) {
-                response.setContentLength(in.length);
+                // the upstream length is dropped for scripts, since they're expected to be instrumented
+                if (response.getHeader(HttpHeaders.CONTENT_LENGTH) != null || shouldBeInstrumented(request, response)) {
+                    response.setContentLength(in.length);
+                }
             }
 
             try {
@@ -281,6 +313,45 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
             continuation.complete();
         }
 
+        /**
+         * @return the instrumented response or null if the script is not to be instrumented
+         */
+        private InstrumentedResponse instrument(final byte[] remoteResponseBody) throws IOException {
+            final Charset charset = getCharsetFrom(response);
+            final String sourceName = getSourceName(request);
+            final String validator = InstrumentedResponseCache.getValidator(upstreamETag, remoteResponseBody);
+
+            // the upstream server didn't revalidate the script, e.g. since it doesn't support conditional requests
+            final InstrumentedResponse latestResponse = InstrumentedResponseCache.get(sourceName);
+            if (latestResponse != null && latestResponse.isFor(validator, charset)) {
+                return reuse(latestResponse);
+            }
+
+            final String body = CharStreams.toString(CharStreams.newReaderSupplier(new InputSupplier<InputStream>() {
+                @Override
+                public InputStream getInput() throws IOException {
+                    return newInputStreamForResponse(response, remoteResponseBody);
+                }
+            }, charset));
+
+            final ScriptData scriptData = instrumenter.instrumentScript(body, sourceName, 1);
+            if (scriptData == null) {
+                return null;
+            }
+
+            MetricsRecorder.increment(MetricsRecorder.INSTRUMENTED_RESPONSE_CACHE_MISSES);
+            return InstrumentedResponseCache.put(sourceName, validator, upstreamETag, upstreamLastModified,
+                    response.getContentType(), charset, scriptData);
+        }
+
+        private InstrumentedResponse reuse(final InstrumentedResponse instrumentedResponse) {
+            // the instrumenter keeps track of the scripts the page loads
+            instrumenter.recordScript(instrumentedResponse.getScriptData());
+
+            MetricsRecorder.increment(MetricsRecorder.INSTRUMENTED_RESPONSE_CACHE_HITS);
+            return instrumentedResponse;
+        }
+
         private OutputSupplier<? extends OutputStream> newOutputSupplier(final OutputStream outputStream) {
             return new OutputSupplier<OutputStream>() {
                 @Override
@@ -300,6 +371,13 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
         protected void onResponseStatus(final Buffer version, final int status, final Buffer reason) throws IOException {
             logger.debug("{}, {}, {}", version, status, reason);
 
+            if (status == HttpServletResponse.SC_NOT_MODIFIED && cachedResponse != null) {
+                // the script the proxy asked about hasn't changed, so it's served from the cache as if it had been sent
+                revalidated = true;
+                response.setStatus(HttpServletResponse.SC_OK);
+                return;
+            }
+
             if (reason != null && reason.length() > 0) {
                 response.setStatus(status, reason.toString());
             } else {
@@ -312,6 +390,17 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
             final String nameString = name.toString();
             final String s = nameString.toLowerCase(Locale.ENGLISH);
 
+            if (shouldBeInstrumented(request, response) && isReplacedByInstrumentedResponse(s)) {
+                if ("etag".equals(s)) {
+                    upstreamETag = value.toString();
+                } else if ("last-modified".equals(s)) {
+                    upstreamLastModified = value.toString();
+                }
+
+                logger.debug("{} (replaced): {}", name, value);
+                return;
+            }
+
             if (!_DontProxyHeaders.contains(s) || (HttpHeaders.CONNECTION_BUFFER.equals(name) && HttpHeaderValues.CLOSE_BUFFER.equals(value))) {
                 logger.debug("{}: {}", name, value);
 
@@ -358,7 +447,19 @@ public final class InstrumentingProxyServlet extends ProxyServlet {
         }
 
         private boolean shouldBeInstrumented(final HttpServletRequest request, final HttpServletResponse response) {
-            return response.getStatus() == HttpServletResponse.SC_OK && request.getRequestURI().toLowerCase(Locale.ENGLISH).endsWith(".js");
+            return response.getStatus() == HttpServletResponse.SC_OK && isScript(request);
+        }
+
+        /**
+         * @return whether the header describes the upstream body rather than the instrumented one, or lets the browser
+         * use the response without asking the proxy again
+         */
+        private boolean isReplacedByInstrumentedResponse(final String lowerCaseHeaderName) {
+            return "etag".equals(lowerCaseHeaderName)
+                    || "last-modified".equals(lowerCaseHeaderName)
+                    || "content-length".equals(lowerCaseHeaderName)
+                    || "cache-control".equals(lowerCaseHeaderName)
+                    || "expires".equals(lowerCaseHeaderName);
         }
 
         private Charset getCharsetFrom(final HttpServletResponse response) {
@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.List;
-import java.util.Map;
 
 import com.github.timurstrekalov.saga.core.OutputStrategy;
 import com.github.timurstrekalov.saga.core.cfg.Config;
@@ -14,7 +13,6 @@ import com.github.timurstrekalov.saga.core.instrumentation.ScriptInstrumenter;
 import com.github.timurstrekalov.saga.core.model.ScriptData;
 import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
 import com.github.timurstrekalov.saga.core.util.UriUtil;
-import com.google.common.collect.Maps;
 import com.google.common.io.CharStreams;
 import com.google.common.io.Files;
 import org.codehaus.plexus.util.FileUtils;
@@ -50,13 +48,8 @@ public class FileSystemSourcePreloader implements SourcePreloader {
         }
 
         for (final ScriptData data : instrumenter.getScriptDataList()) {
-            final Map<String, Long> coverageData = Maps.newHashMap();
-
-            for (final Integer lineNumber : data.getLineNumbersOfAllStatements()) {
-                coverageData.put(String.valueOf(lineNumber), 0L);
-            }
-
-            totalStats.add(data.generateScriptCoverageStatistics(baseUri, coverageData));
+            // without any counts, every statement is reported as missed
+            totalStats.add(data.generateScriptCoverageStatistics(baseUri, new int[0]));
         }
     }
 
@@ -0,0 +1,222 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.SourceLines;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.CONTENT_HASH_LENGTH;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.FLAG_SEPARATE_FILE;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.MAGIC;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.VERSION;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.readString;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.readVarint;
+
+/**
+ * A binary coverage file written by {@link BinaryCoverageWriter}. The file is mapped into memory and only its file
+ * table is read when it's opened; the data of a file is decoded when it's asked for.
+ * <p/>
+ * Instances are safe to use from several threads.
+ */
+public final class BinaryCoverageFile implements Closeable {
+
+    private final RandomAccessFile file;
+    private final ByteBuffer buffer;
+
+    private final URI test;
+    private final String title;
+    private final Map<URI, Entry> entries;
+
+    private BinaryCoverageFile(final RandomAccessFile file, final ByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+
+        final ByteBuffer in = buffer.duplicate();
+
+        Preconditions.checkState(in.getInt() == MAGIC, "Not a binary coverage file");
+
+        final int version = in.getInt();
+        Preconditions.checkState(version == VERSION, "Unsupported binary coverage file version: %s", version);
+
+        final String testUri = readString(in);
+        this.test = testUri.isEmpty() ? null : URI.create(testUri);
+        this.title = Strings.emptyToNull(readString(in));
+
+        final int fileCount = in.getInt();
+        this.entries = Maps.newLinkedHashMap();
+
+        for (int i = 0; i < fileCount; i++) {
+            final URI fileUri = URI.create(readString(in));
+            final URI baseUri = URI.create(readString(in));
+            final boolean separateFile = (in.get() & FLAG_SEPARATE_FILE) != 0;
+
+            final byte[] contentHash = new byte[CONTENT_HASH_LENGTH];
+            in.get(contentHash);
+
+            final long offset = in.getLong();
+            final int length = in.getInt();
+
+            entries.put(fileUri, new Entry(baseUri, separateFile, contentHash, offset, length));
+        }
+    }
+
+    public static BinaryCoverageFile open(final File file) throws IOException {
+        final RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        boolean threw = true;
+
+        try {
+            final ByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            final BinaryCoverageFile coverageFile = new BinaryCoverageFile(randomAccessFile, buffer);
+            threw = false;
+            return coverageFile;
+        } catch (final IllegalStateException e) {
+            throw new IOException("Error reading " + file + ": " + e.getMessage(), e);
+        } catch (final RuntimeException e) {
+            throw new IOException("Error reading " + file + ", it might be truncated", e);
+        } finally {
+            if (threw) {
+                Closeables.close(randomAccessFile, true);
+            }
+        }
+    }
+
+    public URI getTest() {
+        return test;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the URIs of the covered files, sorted
+     */
+    public List<URI> getFileUris() {
+        return ImmutableList.copyOf(entries.keySet());
+    }
+
+    public boolean contains(final URI fileUri) {
+        return entries.containsKey(fileUri);
+    }
+
+    /**
+     * @return the MD5 hash of the source of the file, so that it can be compared to the current version of the file
+     *         without reading the data
+     */
+    public byte[] getContentHash(final URI fileUri) {
+        return getEntry(fileUri).contentHash.clone();
+    }
+
+    /**
+     * @return the number of times each line of the file was executed, indexed by line number minus one, or
+     *         {@link LineCoverageRecord#LINE_NO_STATEMENT} for lines without statements
+     */
+    public int[] getTimesExecuted(final URI fileUri) {
+        return readTimesExecuted(dataOf(getEntry(fileUri)));
+    }
+
+    public ScriptCoverageStatistics getFileStats(final URI fileUri) {
+        final Entry entry = getEntry(fileUri);
+        final ByteBuffer in = dataOf(entry);
+
+        final int[] timesExecuted = readTimesExecuted(in);
+
+        final List<String> lines = Lists.newArrayListWithCapacity(timesExecuted.length);
+        for (int i = 0; i < timesExecuted.length; i++) {
+            lines.add(readString(in));
+        }
+
+        return new ScriptCoverageStatistics(entry.baseUri, fileUri, SourceLines.of(lines), timesExecuted, entry.separateFile);
+    }
+
+    /**
+     * Reads the statistics of all the files, e.g. to write other kinds of reports from them. Just like with any other
+     * statistics, the sort order has to be set before asking for the file statistics.
+     */
+    public TestRunCoverageStatistics toTestRunCoverageStatistics() {
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(test, title);
+
+        for (final URI fileUri : entries.keySet()) {
+            runStats.add(getFileStats(fileUri));
+        }
+
+        return runStats;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // there's no way of unmapping the buffer, it goes away once it's garbage collected
+        file.close();
+    }
+
+    private Entry getEntry(final URI fileUri) {
+        final Entry entry = entries.get(fileUri);
+        Preconditions.checkArgument(entry != null, "No coverage data for %s", fileUri);
+        return entry;
+    }
+
+    private ByteBuffer dataOf(final Entry entry) {
+        final ByteBuffer data = buffer.duplicate();
+        data.position((int) entry.offset);
+        data.limit((int) (entry.offset + entry.length));
+        return data.slice();
+    }
+
+    private static int[] readTimesExecuted(final ByteBuffer in) {
+        final int lineCount = readVarint(in);
+        final int statementCount = readVarint(in);
+
+        final int[] timesExecuted = new int[lineCount];
+        Arrays.fill(timesExecuted, LineCoverageRecord.LINE_NO_STATEMENT);
+
+        final int[] statementLineNrs = new int[statementCount];
+
+        int lineNr = 0;
+        for (int i = 0; i < statementCount; i++) {
+            lineNr += readVarint(in);
+            statementLineNrs[i] = lineNr;
+        }
+
+        for (int i = 0; i < statementCount; i++) {
+            timesExecuted[statementLineNrs[i] - 1] = readVarint(in);
+        }
+
+        return timesExecuted;
+    }
+
+    private static final class Entry {
+
+        final URI baseUri;
+        final boolean separateFile;
+        final byte[] contentHash;
+        final long offset;
+        final int length;
+
+        Entry(final URI baseUri, final boolean separateFile, final byte[] contentHash, final long offset, final int length) {
+            this.baseUri = baseUri;
+            this.separateFile = separateFile;
+            this.contentHash = contentHash;
+            this.offset = offset;
+            this.length = length;
+        }
+
+    }
+
+}
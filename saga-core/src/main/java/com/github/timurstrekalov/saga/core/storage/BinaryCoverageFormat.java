@@ -0,0 +1,74 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Layout of binary coverage files, all numbers big-endian:
+ * <pre>
+ * header:      magic (int "SAGA"), version (int), test URI (string), title (string), number of files (int)
+ * file table:  per file, sorted by URI: URI (string), base URI (string), flags (byte), MD5 of the source (16 bytes),
+ *              offset of the file's data from the start of the file (long), length of the data (int)
+ * data:        per file: number of lines (varint), number of statements (varint), the line numbers of the statements
+ *              (varints, each relative to the previous one), how many times each statement was executed (varints),
+ *              the length of each line in bytes followed by the line (varint, UTF-8 bytes)
+ * </pre>
+ * Strings are written as their length in bytes followed by their UTF-8 bytes. The file table is all that has to be read
+ * to get at the data of any single file, and the execution counts come before the source, so that they can be read
+ * without decoding any of it.
+ */
+final class BinaryCoverageFormat {
+
+    static final int MAGIC = 0x53414741;
+    static final int VERSION = 1;
+
+    static final int FLAG_SEPARATE_FILE = 1;
+
+    static final int CONTENT_HASH_LENGTH = 16;
+
+    private BinaryCoverageFormat() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    static void writeVarint(final DataOutput out, final int value) throws IOException {
+        int remaining = value;
+
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+
+        out.writeByte(remaining);
+    }
+
+    static int readVarint(final ByteBuffer in) {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IllegalStateException("Malformed varint at position " + in.position());
+    }
+
+    static void writeString(final DataOutput out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(Charsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(final ByteBuffer in) {
+        final byte[] bytes = new byte[readVarint(in)];
+        in.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.SourceLines;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+
+import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_NO_STATEMENT;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.FLAG_SEPARATE_FILE;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.MAGIC;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.VERSION;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.writeString;
+import static com.github.timurstrekalov.saga.core.storage.BinaryCoverageFormat.writeVarint;
+
+/**
+ * Writes coverage statistics in the format described by {@link BinaryCoverageFormat}, to be read back with
+ * {@link BinaryCoverageFile}.
+ */
+public final class BinaryCoverageWriter {
+
+    private static final Comparator<ScriptCoverageStatistics> BY_FILE_URI = new Comparator<ScriptCoverageStatistics>() {
+        @Override
+        public int compare(final ScriptCoverageStatistics s1, final ScriptCoverageStatistics s2) {
+            return s1.getFileUri().toString().compareTo(s2.getFileUri().toString());
+        }
+    };
+
+    public void write(final TestRunCoverageStatistics runStats, final File file) throws IOException {
+        final List<ScriptCoverageStatistics> fileStats = Lists.newArrayList(runStats);
+        Collections.sort(fileStats, BY_FILE_URI);
+
+        final List<byte[]> contentHashes = Lists.newArrayListWithCapacity(fileStats.size());
+        final List<byte[]> data = Lists.newArrayListWithCapacity(fileStats.size());
+
+        for (final ScriptCoverageStatistics stats : fileStats) {
+            final Hasher contentHasher = Hashing.md5().newHasher();
+            data.add(encodeData(stats, contentHasher));
+            contentHashes.add(contentHasher.hash().asBytes());
+        }
+
+        // the offsets in the file table are fixed-size, so the size of the header doesn't depend on them
+        final byte[] header = encodeHeader(runStats, fileStats, contentHashes, data, 0);
+        final byte[] actualHeader = encodeHeader(runStats, fileStats, contentHashes, data, header.length);
+
+        final OutputStream out = Files.newOutputStreamSupplier(file).getOutput();
+        boolean threw = true;
+
+        try {
+            out.write(actualHeader);
+            for (final byte[] bytes : data) {
+                out.write(bytes);
+            }
+            threw = false;
+        } finally {
+            Closeables.close(out, threw);
+        }
+    }
+
+    private static byte[] encodeHeader(final TestRunCoverageStatistics runStats, final List<ScriptCoverageStatistics> fileStats,
+            final List<byte[]> contentHashes, final List<byte[]> data, final long headerLength) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, runStats.test == null ? "" : runStats.test.toString());
+        writeString(out, Strings.nullToEmpty(runStats.title));
+        out.writeInt(fileStats.size());
+
+        long offset = headerLength;
+
+        for (int i = 0; i < fileStats.size(); i++) {
+            final ScriptCoverageStatistics stats = fileStats.get(i);
+
+            writeString(out, stats.getFileUri().toString());
+            writeString(out, stats.getBaseUri().toString());
+            out.writeByte(stats.isSeparateFile() ? FLAG_SEPARATE_FILE : 0);
+            out.write(contentHashes.get(i));
+            out.writeLong(offset);
+            out.writeInt(data.get(i).length);
+
+            offset += data.get(i).length;
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the data of a file and hashes its source the same way as {@link #contentHash(SourceLines)}, in a single
+     * pass over its lines.
+     */
+    private static byte[] encodeData(final ScriptCoverageStatistics stats, final Hasher contentHasher) throws IOException {
+        final SourceLines sourceLines = stats.getSourceLines();
+
+        // the sections are written one after another, but filled in at the same time
+        final ByteArrayOutputStream lineNrBytes = new ByteArrayOutputStream();
+        final ByteArrayOutputStream timesExecutedBytes = new ByteArrayOutputStream();
+        final ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+
+        final DataOutputStream lineNrs = new DataOutputStream(lineNrBytes);
+        final DataOutputStream timesExecuted = new DataOutputStream(timesExecutedBytes);
+        final DataOutputStream lines = new DataOutputStream(lineBytes);
+
+        int statements = 0;
+        int previousLineNr = 0;
+
+        for (int i = 0; i < sourceLines.size(); i++) {
+            final int times = stats.getTimesExecuted(i);
+
+            if (times > LINE_NO_STATEMENT) {
+                writeVarint(lineNrs, i + 1 - previousLineNr);
+                writeVarint(timesExecuted, times);
+                previousLineNr = i + 1;
+                statements++;
+            }
+
+            final byte[] line = sourceLines.get(i).getBytes(Charsets.UTF_8);
+            contentHasher.putBytes(line).putByte((byte) '\n');
+            writeVarint(lines, line.length);
+            lines.write(line);
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                lineNrBytes.size() + timesExecutedBytes.size() + lineBytes.size() + 10);
+        final DataOutputStream out = new DataOutputStream(bytes);
+
+        writeVarint(out, sourceLines.size());
+        writeVarint(out, statements);
+        lineNrBytes.writeTo(out);
+        timesExecutedBytes.writeTo(out);
+        lineBytes.writeTo(out);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return the hash of the source of a file, as written to the file table, e.g. to compare the current version of
+     *         a file to the one the coverage data was collected for
+     */
+    public static byte[] contentHash(final SourceLines sourceLines) {
+        final Hasher hasher = Hashing.md5().newHasher();
+
+        for (int i = 0; i < sourceLines.size(); i++) {
+            hasher.putString(sourceLines.get(i), Charsets.UTF_8).putByte((byte) '\n');
+        }
+
+        return hasher.hash().asBytes();
+    }
+
+}
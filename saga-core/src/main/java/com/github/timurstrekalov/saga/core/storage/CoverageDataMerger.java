@@ -0,0 +1,94 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.ReportFormat;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.collect.Maps;
+
+/**
+ * Adds up previously written coverage data, e.g. the BINARY reports of several shards of a test run. A file covered in
+ * more than one of them has to have the same source in all of them, otherwise the coverage can't be added up; this is
+ * checked using the content hashes in the file tables before any of the data is read.
+ * <p/>
+ * RAW reports don't record the sources they were collected for: their sources are read from the base directory, so
+ * there would be nothing to compare. A RAW report can therefore only be turned into other reports on its own, never be
+ * merged with other coverage data.
+ */
+public final class CoverageDataMerger {
+
+    private final LcovCoverageReader lcovCoverageReader;
+
+    private final Map<URI, byte[]> contentHashes = Maps.newHashMap();
+    private final Map<URI, File> coverageDataFiles = Maps.newHashMap();
+
+    private File firstCoverageDataFile;
+    private boolean rawCoverageDataMerged;
+
+    /**
+     * @param baseUri        the base URI the paths in RAW reports are relative to
+     * @param sourceEncoding the encoding of the sources of files in RAW reports
+     */
+    public CoverageDataMerger(final URI baseUri, final Charset sourceEncoding) {
+        this.lcovCoverageReader = new LcovCoverageReader(baseUri, sourceEncoding);
+    }
+
+    /**
+     * @throws IOException if the coverage data can't be read or added up with the data merged before, e.g. because one of
+     * them is a RAW report
+     */
+    public void merge(final File coverageDataFile, final TestRunCoverageStatistics into) throws IOException {
+        final boolean binary = coverageDataFile.getName().endsWith("." + ReportFormat.BINARY.getExtension());
+
+        if (firstCoverageDataFile == null) {
+            firstCoverageDataFile = coverageDataFile;
+        } else if (rawCoverageDataMerged || !binary) {
+            throw new IOException(String.format("Cannot merge %s with %s: only BINARY coverage data records the sources "
+                    + "it was collected for, so RAW coverage data can't be merged", coverageDataFile, firstCoverageDataFile));
+        }
+
+        if (binary) {
+            mergeBinary(coverageDataFile, into);
+        } else {
+            rawCoverageDataMerged = true;
+            for (final ScriptCoverageStatistics fileStats : lcovCoverageReader.read(coverageDataFile)) {
+                into.add(fileStats);
+            }
+        }
+    }
+
+    private void mergeBinary(final File coverageDataFile, final TestRunCoverageStatistics into) throws IOException {
+        final BinaryCoverageFile binaryCoverageFile = BinaryCoverageFile.open(coverageDataFile);
+
+        try {
+            for (final URI fileUri : binaryCoverageFile.getFileUris()) {
+                checkContentHash(coverageDataFile, fileUri, binaryCoverageFile.getContentHash(fileUri));
+            }
+
+            for (final URI fileUri : binaryCoverageFile.getFileUris()) {
+                into.add(binaryCoverageFile.getFileStats(fileUri));
+            }
+        } finally {
+            binaryCoverageFile.close();
+        }
+    }
+
+    private void checkContentHash(final File coverageDataFile, final URI fileUri, final byte[] contentHash) throws IOException {
+        final byte[] previousContentHash = contentHashes.get(fileUri);
+
+        if (previousContentHash == null) {
+            contentHashes.put(fileUri, contentHash);
+            coverageDataFiles.put(fileUri, coverageDataFile);
+        } else if (!Arrays.equals(previousContentHash, contentHash)) {
+            throw new IOException(String.format("Cannot merge %s: the source of %s differs from the one in %s",
+                    coverageDataFile, fileUri, coverageDataFiles.get(fileUri)));
+        }
+    }
+
+}
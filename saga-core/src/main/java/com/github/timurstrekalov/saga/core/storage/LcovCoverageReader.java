@@ -0,0 +1,120 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitBasedScriptInstrumenter;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.SourceLines;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the coverage data written by the RAW (LCOV-like) reporter. The data only has the execution counts of lines
+ * containing statements, so the sources of the files are read from the base directory the paths are relative to.
+ * <p/>
+ * The data doesn't record the sources it was collected for either, so a changed source can't be told apart from the
+ * one the data belongs to in general. Only files whose source is gone, or obviously doesn't match the data because it
+ * has counts for lines past its end or for blank lines, are left out; the counts of a file edited in other ways end up
+ * on the wrong lines. Use BINARY coverage data, which does record the sources, where that matters.
+ */
+public final class LcovCoverageReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(LcovCoverageReader.class);
+
+    private static final String SOURCE_FILE = "SF:";
+    private static final String LINE_DATA = "DA:";
+    private static final String END_OF_RECORD = "end_of_record";
+
+    private final URI baseUri;
+    private final Charset sourceEncoding;
+
+    public LcovCoverageReader(final URI baseUri, final Charset sourceEncoding) {
+        this.baseUri = baseUri;
+        this.sourceEncoding = sourceEncoding;
+    }
+
+    public List<ScriptCoverageStatistics> read(final File file) throws IOException {
+        final List<ScriptCoverageStatistics> fileStats = Lists.newArrayList();
+        final BufferedReader in = Files.newReader(file, Charsets.UTF_8);
+
+        try {
+            String relativeName = null;
+            final Map<Integer, Integer> timesExecutedByLineNr = Maps.newHashMap();
+
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.startsWith(SOURCE_FILE)) {
+                    relativeName = line.substring(SOURCE_FILE.length());
+                    timesExecutedByLineNr.clear();
+                } else if (line.startsWith(LINE_DATA)) {
+                    final String[] lineData = line.substring(LINE_DATA.length()).split(",");
+                    if (lineData.length != 2) {
+                        throw new IOException("Malformed line data in " + file + ": " + line);
+                    }
+
+                    try {
+                        timesExecutedByLineNr.put(Integer.parseInt(lineData[0].trim()), Integer.parseInt(lineData[1].trim()));
+                    } catch (final NumberFormatException e) {
+                        throw new IOException("Malformed line data in " + file + ": " + line, e);
+                    }
+                } else if (line.equals(END_OF_RECORD) && relativeName != null) {
+                    final ScriptCoverageStatistics stats = toStatistics(relativeName, timesExecutedByLineNr);
+                    if (stats != null) {
+                        fileStats.add(stats);
+                    }
+
+                    relativeName = null;
+                }
+            }
+        } finally {
+            Closeables.close(in, true);
+        }
+
+        return fileStats;
+    }
+
+    private ScriptCoverageStatistics toStatistics(final String relativeName, final Map<Integer, Integer> timesExecutedByLineNr) {
+        // the names are relative to the base URI and already URI-encoded
+        final URI fileUri = baseUri.resolve(relativeName);
+
+        final SourceLines sourceLines;
+        try {
+            sourceLines = SourceLines.of(Resources.toString(fileUri.toURL(), sourceEncoding));
+        } catch (final IOException e) {
+            logger.warn("Skipping {}, could not read its source: {}", fileUri, e.getMessage());
+            return null;
+        }
+
+        final int[] timesExecuted = new int[sourceLines.size()];
+        Arrays.fill(timesExecuted, LineCoverageRecord.LINE_NO_STATEMENT);
+
+        for (final Map.Entry<Integer, Integer> entry : timesExecutedByLineNr.entrySet()) {
+            final int lineNr = entry.getKey();
+
+            if (lineNr < 1 || lineNr > timesExecuted.length || sourceLines.get(lineNr - 1).trim().isEmpty()) {
+                logger.warn("Skipping {}, there's no statement on line {} of its source, which must have changed since "
+                        + "the coverage data was written", fileUri, lineNr);
+                return null;
+            }
+
+            timesExecuted[lineNr - 1] = entry.getValue();
+        }
+
+        return new ScriptCoverageStatistics(baseUri, fileUri, sourceLines, timesExecuted,
+                HtmlUnitBasedScriptInstrumenter.isSeparateFile(fileUri.toString()));
+    }
+
+}
@@ -1,9 +1,11 @@
 package com.github.timurstrekalov.saga.core.webdriver;
 
+import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 import com.google.common.base.Predicate;
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
 
 public final class WebDriverUtils {
 
@@ -25,4 +27,24 @@ public final class WebDriverUtils {
                 });
     }
 
+    /**
+     * Brings the browser back to the state of a freshly started one as far as tests are concerned: closes all windows
+     * but one, deletes the cookies and navigates to a blank page, dropping all of the page's JavaScript state.
+     */
+    public static void resetBrowser(final WebDriver driver) {
+        final Iterator<String> windowHandles = driver.getWindowHandles().iterator();
+        final String windowToKeep = windowHandles.next();
+
+        while (windowHandles.hasNext()) {
+            driver.switchTo().window(windowHandles.next());
+            driver.close();
+        }
+
+        driver.switchTo().window(windowToKeep);
+
+        // WebDriver only deletes the cookies visible to the current page, so this has to happen before navigating away
+        driver.manage().deleteAllCookies();
+        driver.get("about:blank");
+    }
+
 }
@@ -2,16 +2,98 @@
     // lazily create a namespace
     var saga = window.__saga = window.__saga || {};
     if (!saga.completed) {
-        saga.completed = function() {
-            function detectJasmineCompletion() {
-                return (window.reporter && window.reporter.finished) ||
-                    (window.jsApiReporter && window.jsApiReporter.finished);
+        var finished = false;
+        var callbacks = [];
+
+        var signalCompletion = function () {
+            if (finished) {
+                return;
+            }
+
+            finished = true;
+            while (callbacks.length) {
+                callbacks.shift()();
             }
+        };
+
+        // the frameworks call their other reporters and callbacks after (or along with) ours, e.g. Jasmine's
+        // HtmlReporter, which was added before it, so the coverage data is only complete once they have all returned
+        var signalCompletionLater = function () {
+            setTimeout(signalCompletion, 0);
+        };
 
-            // this space reserved for detecting completeness for other frameworks
+        // each of these returns whether the framework is there to be hooked into; none of them can be hooked into before
+        // the framework's own script has run, which is why they're tried again by every instrumented script
+        var hooks = {
+            jasmine: function () {
+                if (!window.jasmine || !jasmine.getEnv || !jasmine.getEnv().addReporter) {
+                    return false;
+                }
+
+                // both versions only call the methods a reporter has
+                jasmine.getEnv().addReporter({
+                    reportRunnerResults: signalCompletionLater, // Jasmine 1
+                    jasmineDone: signalCompletionLater // Jasmine 2
+                });
+                return true;
+            },
+            mocha: function () {
+                if (!window.mocha || !mocha.run) {
+                    return false;
+                }
+
+                var run = mocha.run;
+                mocha.run = function () {
+                    var runner = run.apply(this, arguments);
+                    runner.on('end', signalCompletionLater);
+                    return runner;
+                };
+                return true;
+            },
+            qunit: function () {
+                if (!window.QUnit || !QUnit.done) {
+                    return false;
+                }
+
+                QUnit.done(signalCompletionLater);
+                return true;
+            }
+        };
 
+        saga.hookIntoFrameworks = function () {
+            for (var name in hooks) {
+                if (hooks.hasOwnProperty(name) && hooks[name]()) {
+                    delete hooks[name];
+                }
+            }
+        };
+
+        var detectJasmineCompletion = function () {
+            return (window.reporter && window.reporter.finished) ||
+                (window.jsApiReporter && window.jsApiReporter.finished);
+        };
+
+        saga.completed = function () {
             // make sure we return true/false rather than truthy/falsy
-            return Boolean(detectJasmineCompletion());
+            return Boolean(finished || detectJasmineCompletion());
+        };
+
+        /**
+         * Calls the callback as soon as the test runner on the page has finished, or right away if it already has.
+         */
+        saga.whenCompleted = function (callback) {
+            if (saga.completed()) {
+                callback();
+            } else {
+                callbacks.push(callback);
+            }
+        };
+
+        // the last instrumented script might be loaded before the framework, e.g. if the specs aren't instrumented
+        if (window.addEventListener) {
+            window.addEventListener('DOMContentLoaded', saga.hookIntoFrameworks, false);
         }
     }
+
+    saga.hookIntoFrameworks();
 })();
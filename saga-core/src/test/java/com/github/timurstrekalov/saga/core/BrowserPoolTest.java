@@ -0,0 +1,95 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.instrumentation.InstrumentingBrowser;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.handler.ResourceHandler;
+import org.eclipse.jetty.server.nio.SelectChannelConnector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class BrowserPoolTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Server server;
+    private String baseUrl;
+    private BrowserPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        final File baseDir = temporaryFolder.newFolder("src");
+        final File page = new File(baseDir, "ATest.html");
+        final File script = new File(baseDir, "a.js");
+
+        Files.write("<html><head><script src=\"a.js\"></script></head><body></body></html>", page, Charsets.UTF_8);
+        Files.write("var a = 1;\n", script, Charsets.UTF_8);
+
+        // old enough for HtmlUnit to cache the compiled script
+        final long anHourAgo = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        page.setLastModified(anHourAgo);
+        script.setLastModified(anHourAgo);
+
+        // unlike FileServer, doesn't send an Expires header, which would keep HtmlUnit from caching anything
+        final ResourceHandler resourceHandler = new ResourceHandler();
+        resourceHandler.setResourceBase(baseDir.getAbsolutePath());
+
+        final SelectChannelConnector connector = new SelectChannelConnector();
+        connector.setPort(0);
+
+        server = new Server();
+        server.addConnector(connector);
+        server.setHandler(resourceHandler);
+        server.start();
+
+        baseUrl = "http://localhost:" + connector.getLocalPort() + "/";
+
+        final InstanceFieldPerPropertyConfig config = new InstanceFieldPerPropertyConfig();
+        config.setBrowserRecycleHeapThreshold(100);
+
+        pool = new BrowserPool(config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        pool.close();
+        server.stop();
+    }
+
+    @Test
+    public void reused_browsers_keep_track_of_the_scripts_of_every_test() throws Exception {
+        final InstrumentingBrowser browser = pool.acquire();
+        assertCoverageOfA(browser);
+        pool.release(browser);
+
+        final InstrumentingBrowser reusedBrowser = pool.acquire();
+        assertThat(reusedBrowser, sameInstance(browser));
+        assertCoverageOfA(reusedBrowser);
+        pool.release(reusedBrowser);
+    }
+
+    private void assertCoverageOfA(final InstrumentingBrowser browser) {
+        browser.get(baseUrl + "ATest.html");
+
+        final Map<String, int[]> coverageData = browser.extractCoverageDataVariable();
+        assertThat(coverageData.get(baseUrl + "a.js")[1], equalTo(1));
+
+        assertThat(browser.getScriptDataList().size(), equalTo(1));
+        assertThat(browser.getScriptDataList().get(0).getSourceUriAsString(), equalTo(baseUrl + "a.js"));
+    }
+
+}
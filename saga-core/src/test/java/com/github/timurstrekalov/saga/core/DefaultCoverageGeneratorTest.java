@@ -0,0 +1,143 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.metrics.Metrics;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultCoverageGeneratorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File baseDir;
+    private File outputDir;
+    private File rawCoverageFile;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = temporaryFolder.newFolder("src");
+        outputDir = temporaryFolder.newFolder("target");
+
+        Files.write("var a = 1;\n\nif (a > 1) {\n    a--;\n}\n", new File(baseDir, "a.js"), Charsets.UTF_8);
+
+        rawCoverageFile = temporaryFolder.newFile("previous-coverage.dat");
+        Files.write("SF:a.js\nDA:1,3\nDA:3,3\nDA:4,0\nend_of_record\n"
+                + "SF:deleted.js\nDA:1,1\nend_of_record\n", rawCoverageFile, Charsets.UTF_8);
+    }
+
+    @Test
+    public void generateReports_from_raw_and_binary_coverage_data() throws Exception {
+        final Config config = newConfig();
+        config.setCoverageDataFiles(rawCoverageFile.getAbsolutePath());
+        config.setReportFormats("RAW, BINARY");
+
+        new DefaultCoverageGenerator(config).generateReports();
+
+        final String raw = Files.toString(new File(outputDir, "total-coverage.dat"), Charsets.UTF_8);
+        assertThat(raw, containsString("SF:a.js\nDA:1,3\nDA:3,3\nDA:4,0\nend_of_record"));
+        assertThat(raw, not(containsString("deleted.js")));
+
+        final File binaryCoverageFile = new File(outputDir, "total-coverage.bin");
+        assertTrue(binaryCoverageFile.isFile());
+
+        final Config binaryConfig = newConfig();
+        binaryConfig.setCoverageDataFiles(binaryCoverageFile.getAbsolutePath());
+        binaryConfig.setReportFormats("CSV");
+
+        new DefaultCoverageGenerator(binaryConfig).generateReports();
+
+        final String csv = Files.toString(new File(outputDir, "total-report.csv"), Charsets.UTF_8);
+        assertThat(csv, containsString("a.js,3,2,66%"));
+    }
+
+    @Test
+    public void instrumentAndGenerateReports_without_tests_leaves_the_metrics_of_the_current_run_alone() throws Exception {
+        final Metrics runMetrics = MetricsRecorder.startRun();
+
+        final Config config = newConfig();
+        config.setIncludes("**/*Test.html");
+
+        new DefaultCoverageGenerator(config).instrumentAndGenerateReports();
+        MetricsRecorder.increment(MetricsRecorder.MERGE);
+
+        assertThat(runMetrics.getCounters().get(MetricsRecorder.MERGE), equalTo(1L));
+    }
+
+    @Test
+    public void selectShard_puts_every_test_into_exactly_one_shard() throws Exception {
+        final List<URI> tests = Lists.newArrayList();
+        for (int i = 0; i < 100; i++) {
+            tests.add(baseDir.toURI().resolve("pkg" + (i % 7) + "/Test" + i + ".html"));
+        }
+
+        final int shardCount = 4;
+        final Set<URI> allShards = Sets.newHashSet();
+        int total = 0;
+
+        for (int shardIndex = 0; shardIndex < shardCount; shardIndex++) {
+            final List<URI> shard = DefaultCoverageGenerator.selectShard(baseDir.toURI(), tests, shardIndex, shardCount);
+            assertThat(shard.isEmpty(), equalTo(false));
+
+            allShards.addAll(shard);
+            total += shard.size();
+        }
+
+        assertThat(total, equalTo(tests.size()));
+        assertThat(allShards, equalTo((Set<URI>) Sets.newHashSet(tests)));
+    }
+
+    @Test
+    public void selectShard_does_not_depend_on_where_the_tests_are() throws Exception {
+        final URI otherBaseUri = URI.create("http://localhost:8234/");
+        final List<URI> tests = Lists.newArrayList();
+        final List<URI> otherTests = Lists.newArrayList();
+
+        for (int i = 0; i < 20; i++) {
+            tests.add(baseDir.toURI().resolve("Test" + i + ".html"));
+            otherTests.add(otherBaseUri.resolve("Test" + i + ".html"));
+        }
+
+        final List<URI> shard = DefaultCoverageGenerator.selectShard(baseDir.toURI(), Lists.reverse(tests), 1, 3);
+        final List<URI> otherShard = DefaultCoverageGenerator.selectShard(otherBaseUri, otherTests, 1, 3);
+
+        final Set<String> shardPaths = Sets.newHashSet();
+        for (final URI test : shard) {
+            shardPaths.add(baseDir.toURI().relativize(test).toString());
+        }
+
+        final Set<String> otherShardPaths = Sets.newHashSet();
+        for (final URI test : otherShard) {
+            otherShardPaths.add(otherBaseUri.relativize(test).toString());
+        }
+
+        assertThat(shardPaths, equalTo(otherShardPaths));
+    }
+
+    private Config newConfig() {
+        final Config config = new InstanceFieldPerPropertyConfig();
+        config.setBaseDir(baseDir.getAbsolutePath());
+        config.setOutputDir(outputDir);
+        return config;
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DirectorySnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File baseDir;
+    private File outputDir;
+    private Collection<File> excludes;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = temporaryFolder.newFolder("src");
+        outputDir = new File(baseDir, "target");
+        excludes = ImmutableList.of(outputDir);
+
+        write(new File(baseDir, "a.js"), "var a = 1;");
+        write(new File(baseDir, "lib/b.js"), "var b = 1;");
+        write(new File(outputDir, "total-report.html"), "<html></html>");
+    }
+
+    @Test
+    public void nothing_changed() throws Exception {
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+
+        assertTrue(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier).isEmpty());
+    }
+
+    @Test
+    public void added_file() throws Exception {
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+        final File added = new File(baseDir, "lib/c.js");
+        write(added, "var c = 1;");
+
+        assertChanged(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier), added);
+    }
+
+    @Test
+    public void modified_file() throws Exception {
+        final File modified = new File(baseDir, "lib/b.js");
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+
+        // the same length, only the modification time tells them apart
+        write(modified, "var b = 2;");
+        assertTrue(modified.setLastModified(modified.lastModified() + 2000));
+
+        assertChanged(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier), modified);
+    }
+
+    @Test
+    public void file_modified_within_the_same_second() throws Exception {
+        final File modified = new File(baseDir, "lib/b.js");
+        final long lastModified = modified.lastModified();
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+
+        write(modified, "var b = 22;");
+        assertTrue(modified.setLastModified(lastModified));
+
+        assertChanged(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier), modified);
+    }
+
+    @Test
+    public void deleted_file() throws Exception {
+        final File deleted = new File(baseDir, "a.js");
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+        assertTrue(deleted.delete());
+
+        assertChanged(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier), deleted);
+    }
+
+    @Test
+    public void ignores_excluded_files() throws Exception {
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+
+        final File report = new File(outputDir, "total-report.html");
+        write(report, "<html><body></body></html>");
+        assertTrue(report.setLastModified(report.lastModified() + 2000));
+        write(new File(outputDir, "total-report.csv"), "a.js,1,1,100%");
+
+        assertTrue(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier).isEmpty());
+    }
+
+    @Test
+    public void reports_every_change_at_once() throws Exception {
+        final DirectorySnapshot earlier = DirectorySnapshot.take(baseDir, excludes);
+
+        final File added = new File(baseDir, "c.js");
+        write(added, "var c = 1;");
+
+        final File modified = new File(baseDir, "lib/b.js");
+        write(modified, "var b = 1; var c = 2;");
+
+        final File deleted = new File(baseDir, "a.js");
+        assertTrue(deleted.delete());
+
+        write(new File(outputDir, "total-report.csv"), "a.js,1,1,100%");
+
+        assertChanged(DirectorySnapshot.take(baseDir, excludes).changedSince(earlier), added, modified, deleted);
+    }
+
+    @Test
+    public void nothing_to_snapshot_in_a_missing_directory() throws Exception {
+        final File missingDir = new File(baseDir, "missing");
+        final DirectorySnapshot earlier = DirectorySnapshot.take(missingDir, Collections.<File>emptyList());
+
+        assertTrue(DirectorySnapshot.take(missingDir, Collections.<File>emptyList()).changedSince(earlier).isEmpty());
+    }
+
+    private static void assertChanged(final Collection<File> changedFiles, final File... expected) {
+        final Set<File> expectedFiles = Sets.newHashSet();
+        for (final File file : expected) {
+            expectedFiles.add(file.getAbsoluteFile());
+        }
+
+        assertThat(changedFiles.size(), equalTo(expected.length));
+        assertThat(ImmutableSet.copyOf(changedFiles), equalTo((Set<File>) expectedFiles));
+    }
+
+    private static void write(final File file, final String content) throws Exception {
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.net.URI;
+
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class TestDependenciesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private URI baseUri;
+    private File dataDir;
+    private File test;
+    private File script;
+
+    @Before
+    public void setUp() throws Exception {
+        final File baseDir = temporaryFolder.newFolder("src");
+        baseUri = baseDir.toURI();
+        dataDir = new File(temporaryFolder.getRoot(), "incremental");
+
+        test = new File(baseDir, "ATest.html");
+        Files.write("<script src=\"a.js\"></script>", test, Charsets.UTF_8);
+
+        script = new File(baseDir, "a.js");
+        Files.write("var a;", script, Charsets.UTF_8);
+
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(test.toURI());
+        runStats.setSortBy(SortBy.FILE);
+        runStats.setOrder(Order.ASC);
+        runStats.add(new ScriptCoverageStatistics(baseUri, URI.create(script.toURI() + "?123"),
+                ImmutableList.of(new LineCoverageRecord(1, 2, "var a;")), true));
+        runStats.add(new ScriptCoverageStatistics(baseUri, URI.create(test.toURI() + "__from_1_8_to_1_20"),
+                ImmutableList.of(new LineCoverageRecord(1, 1, "a = 1;")), false));
+
+        final TestDependencies testDependencies = TestDependencies.load(baseUri, dataDir, Charsets.UTF_8);
+        testDependencies.record(runStats);
+        testDependencies.save();
+    }
+
+    @Test
+    public void unchanged_test_is_up_to_date_and_keeps_its_coverage() throws Exception {
+        final TestDependencies testDependencies = TestDependencies.load(baseUri, dataDir, Charsets.UTF_8);
+        assertThat(testDependencies.isUpToDate(test.toURI()), equalTo(true));
+
+        int totalExecuted = 0;
+        for (final ScriptCoverageStatistics fileStats : testDependencies.loadStats(test.toURI())) {
+            totalExecuted += fileStats.getLineCoverageRecords().get(0).getTimesExecuted();
+        }
+
+        assertThat(totalExecuted, equalTo(3));
+    }
+
+    @Test
+    public void test_is_affected_by_changes_to_the_scripts_it_loaded() throws Exception {
+        Files.write("var a = 1;", script, Charsets.UTF_8);
+
+        assertThat(TestDependencies.load(baseUri, dataDir, Charsets.UTF_8).isUpToDate(test.toURI()), equalTo(false));
+    }
+
+    @Test
+    public void test_is_affected_by_changes_to_itself() throws Exception {
+        Files.append("<script>var b;</script>", test, Charsets.UTF_8);
+
+        assertThat(TestDependencies.load(baseUri, dataDir, Charsets.UTF_8).isUpToDate(test.toURI()), equalTo(false));
+    }
+
+    @Test
+    public void unknown_and_forgotten_tests_are_not_up_to_date() throws Exception {
+        final TestDependencies testDependencies = TestDependencies.load(baseUri, dataDir, Charsets.UTF_8);
+        assertThat(testDependencies.isUpToDate(baseUri.resolve("BTest.html")), equalTo(false));
+
+        testDependencies.retainOnly(ImmutableList.of(baseUri.resolve("BTest.html")));
+        assertThat(testDependencies.isUpToDate(test.toURI()), equalTo(false));
+    }
+
+}
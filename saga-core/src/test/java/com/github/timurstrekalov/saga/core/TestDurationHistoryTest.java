@@ -0,0 +1,82 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.net.URI;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class TestDurationHistoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private URI baseUri;
+    private URI small;
+    private URI medium;
+    private URI large;
+
+    @Before
+    public void setUp() throws Exception {
+        baseUri = temporaryFolder.getRoot().toURI();
+        small = newTest("small.html", 10);
+        medium = newTest("medium.html", 100);
+        large = newTest("large.html", 1000);
+    }
+
+    @Test
+    public void longestFirst_without_history_orders_by_size() throws Exception {
+        final TestDurationHistory history = new TestDurationHistory(baseUri);
+
+        assertThat(history.longestFirst(ImmutableList.of(small, large, medium)), equalTo((List<URI>) ImmutableList.of(large, medium, small)));
+    }
+
+    @Test
+    public void longestFirst_uses_recorded_durations_across_runs() throws Exception {
+        final File file = new File(temporaryFolder.getRoot(), "history/test-durations.properties");
+
+        final TestDurationHistory previousRun = new TestDurationHistory(baseUri);
+        previousRun.record(small, 5000);
+        previousRun.record(large, 100);
+        previousRun.save(file);
+
+        final TestDurationHistory history = TestDurationHistory.load(baseUri, file);
+
+        // medium is estimated by the average time per byte of the others, 5100 ms / 1010 bytes * 100 bytes
+        assertThat(history.longestFirst(ImmutableList.of(large, medium, small)), equalTo((List<URI>) ImmutableList.of(small, medium, large)));
+    }
+
+    @Test
+    public void save_keeps_durations_of_tests_that_did_not_run() throws Exception {
+        final File file = temporaryFolder.newFile("test-durations.properties");
+
+        final TestDurationHistory firstRun = new TestDurationHistory(baseUri);
+        firstRun.record(small, 5000);
+        firstRun.save(file);
+
+        final TestDurationHistory secondRun = TestDurationHistory.load(baseUri, file);
+        secondRun.record(large, 100);
+        secondRun.save(file);
+
+        final TestDurationHistory history = TestDurationHistory.load(baseUri, file);
+
+        assertThat(history.longestFirst(ImmutableList.of(large, small)), equalTo((List<URI>) ImmutableList.of(small, large)));
+    }
+
+    private URI newTest(final String name, final int size) throws Exception {
+        final File file = temporaryFolder.newFile(name);
+        Files.write(Strings.repeat("x", size), file, Charsets.UTF_8);
+        return file.toURI();
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.github.timurstrekalov.saga.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.timurstrekalov.saga.core.cfg.Config;
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WritesStatisticsTest {
+
+    private static final Set<ReportFormat> TEMPLATE_BASED_FORMATS = EnumSet.of(ReportFormat.HTML, ReportFormat.RAW,
+            ReportFormat.CSV, ReportFormat.COBERTURA, ReportFormat.HTML_PER_FILE);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File baseDir;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = temporaryFolder.newFolder("src");
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void writes_every_format_in_parallel() throws Exception {
+        final File outputDir = temporaryFolder.newFolder("target");
+
+        new WritesStatistics(executorService).write(newConfig(outputDir, EnumSet.allOf(ReportFormat.class)), newRunStats());
+
+        for (final ReportFormat reportFormat : ReportFormat.values()) {
+            assertTrue(reportFormat + " report written", reportFile(outputDir, reportFormat).length() > 0);
+        }
+    }
+
+    @Test
+    public void rethrows_the_first_failure_once_every_report_is_written() throws Exception {
+        final File outputDir = temporaryFolder.newFolder("target");
+
+        // directories in the way of two of the reports
+        assertTrue(reportFile(outputDir, ReportFormat.CSV).mkdir());
+        assertTrue(reportFile(outputDir, ReportFormat.BINARY).mkdir());
+
+        try {
+            new WritesStatistics(executorService).write(newConfig(outputDir, EnumSet.allOf(ReportFormat.class)), newRunStats());
+            fail("Expected the CSV report to fail");
+        } catch (final IOException e) {
+            assertThat(e.getMessage(), containsString(reportFile(outputDir, ReportFormat.CSV).getName()));
+        }
+
+        for (final ReportFormat reportFormat : EnumSet.complementOf(EnumSet.of(ReportFormat.CSV, ReportFormat.BINARY))) {
+            assertTrue(reportFormat + " report written", reportFile(outputDir, reportFormat).length() > 0);
+        }
+    }
+
+    @Test
+    public void writes_the_same_template_based_reports_on_every_thread() throws Exception {
+        final File expectedOutputDir = temporaryFolder.newFolder("expected");
+        new WritesStatistics().write(newConfig(expectedOutputDir, TEMPLATE_BASED_FORMATS), newRunStats());
+
+        final int runCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<File>> futures = Lists.newArrayList();
+
+        for (int i = 0; i < runCount; i++) {
+            final File outputDir = temporaryFolder.newFolder("target" + i);
+
+            futures.add(executorService.submit(new Callable<File>() {
+                @Override
+                public File call() throws Exception {
+                    start.await();
+                    new WritesStatistics().write(newConfig(outputDir, TEMPLATE_BASED_FORMATS), newRunStats());
+                    return outputDir;
+                }
+            }));
+        }
+
+        start.countDown();
+
+        for (final Future<File> future : futures) {
+            final File outputDir = future.get();
+
+            for (final ReportFormat reportFormat : TEMPLATE_BASED_FORMATS) {
+                assertThat(reportFormat + " report", read(reportFile(outputDir, reportFormat)),
+                        equalTo(read(reportFile(expectedOutputDir, reportFormat))));
+            }
+        }
+    }
+
+    private Config newConfig(final File outputDir, final Set<ReportFormat> reportFormats) {
+        // writes the reports in a predictable order, unlike the set of formats the config keeps
+        final Config config = new InstanceFieldPerPropertyConfig() {
+            @Override
+            public Set<ReportFormat> getReportFormats() {
+                return reportFormats;
+            }
+        };
+
+        config.setBaseDir(baseDir.getAbsolutePath());
+        config.setOutputDir(outputDir);
+        return config;
+    }
+
+    private TestRunCoverageStatistics newRunStats() {
+        final URI baseUri = baseDir.toURI();
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(baseUri.resolve("total"), "Total");
+        runStats.setSortBy(SortBy.FILE);
+        runStats.setOrder(Order.ASC);
+
+        int timesExecuted = 0;
+
+        for (final String fileName : ImmutableList.of("a.js", "lib/b.js", "lib/c.js")) {
+            runStats.add(new ScriptCoverageStatistics(baseUri, baseUri.resolve(fileName), ImmutableList.of(
+                    new LineCoverageRecord(1, timesExecuted++, "if (a < b) {"),
+                    new LineCoverageRecord(2, timesExecuted++, "    a = \"b\";"),
+                    new LineCoverageRecord(3, LineCoverageRecord.LINE_NO_STATEMENT, "}")), true));
+        }
+
+        return runStats;
+    }
+
+    private static File reportFile(final File outputDir, final ReportFormat reportFormat) {
+        return new File(outputDir, String.format("total-%s.%s", reportFormat.getSuffix(), reportFormat.getExtension()));
+    }
+
+    private static String read(final File file) throws IOException {
+        return Files.toString(file, Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.instrumentation.HtmlUnitInstrumentingBrowser;
+import com.github.timurstrekalov.saga.core.metrics.Metrics;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class CachingJavaScriptEngineTest {
+
+    @Test
+    public void compiled_scripts_are_shared_between_browsers() throws Exception {
+        final String page = getClass().getResource("/completion/QUnitTest.html").toURI().toString();
+        final String spec = getClass().getResource("/completion/Spec.js").toURI().toString();
+
+        loadAndExtractCoverageData(page);
+
+        final Metrics metrics = MetricsRecorder.startRun();
+        final Map<String, int[]> coverageData = loadAndExtractCoverageData(page);
+
+        // the shim and the spec, at least
+        assertThat(metrics.getCounters().get(MetricsRecorder.COMPILED_SCRIPT_CACHE_HITS), greaterThanOrEqualTo(2L));
+
+        // the scripts were still instrumented for the second browser
+        assertThat(coverageData.get(spec)[7], equalTo(1));
+    }
+
+    private static Map<String, int[]> loadAndExtractCoverageData(final String page) {
+        final HtmlUnitInstrumentingBrowser browser = new HtmlUnitInstrumentingBrowser(new InstanceFieldPerPropertyConfig());
+
+        try {
+            browser.get(page);
+            return browser.extractCoverageDataVariable();
+        } finally {
+            browser.quit();
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import java.net.URL;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestFilterTest {
+
+    private static final BrowserVersion FIREFOX = BrowserVersion.FIREFOX_17;
+    private static final BrowserVersion CHROME = BrowserVersion.CHROME;
+
+    private final RequestFilter filter = new RequestFilter(ImmutableList.of("https?://www\\.google-analytics\\.com/.*"), true);
+
+    @Test
+    public void blocks_urls_matching_the_patterns() throws Exception {
+        assertTrue(filter.isBlocked(request("http://www.google-analytics.com/ga.js", "*/*"), FIREFOX));
+        assertFalse(filter.isBlocked(request("http://localhost/ga.js", "*/*"), FIREFOX));
+    }
+
+    @Test
+    public void blocks_images_and_stylesheets_by_accept_header() throws Exception {
+        assertTrue(filter.isBlocked(request("http://localhost/avatar", FIREFOX.getImgAcceptHeader()), FIREFOX));
+        assertTrue(filter.isBlocked(request("http://localhost/theme", FIREFOX.getCssAcceptHeader()), FIREFOX));
+    }
+
+    @Test
+    public void blocks_non_script_resources_by_extension() throws Exception {
+        assertTrue(filter.isBlocked(request("http://localhost/style.CSS?v=2", "*/*"), CHROME));
+        assertTrue(filter.isBlocked(request("file:/project/fonts/icons.woff", "*/*"), CHROME));
+    }
+
+    @Test
+    public void does_not_block_pages_and_scripts() throws Exception {
+        assertFalse(filter.isBlocked(request("http://localhost/lib.js", CHROME.getScriptAcceptHeader()), CHROME));
+        assertFalse(filter.isBlocked(request("http://localhost/images.v1/lib", CHROME.getImgAcceptHeader()), CHROME));
+        assertFalse(filter.isBlocked(request("file:/project/test/Test.html", FIREFOX.getHtmlAcceptHeader()), FIREFOX));
+    }
+
+    @Test
+    public void only_blocks_matching_urls_unless_skipping_non_script_resources() throws Exception {
+        final RequestFilter blockingFilter = new RequestFilter(ImmutableList.<String>of(), false);
+
+        assertFalse(blockingFilter.isBlocked(request("http://localhost/style.css", FIREFOX.getCssAcceptHeader()), FIREFOX));
+    }
+
+    private static WebRequest request(final String url, final String accept) throws Exception {
+        return new WebRequest(new URL(url), accept);
+    }
+
+}
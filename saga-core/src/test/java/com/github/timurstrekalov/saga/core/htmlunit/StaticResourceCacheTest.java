@@ -0,0 +1,101 @@
+package com.github.timurstrekalov.saga.core.htmlunit;
+
+import java.io.File;
+import java.util.Collections;
+
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import com.gargoylesoftware.htmlunit.WebResponseData;
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StaticResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private StaticResourceCache cache;
+    private File lib;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new StaticResourceCache(ImmutableList.of(".*/lib/.*"), 1024 * 1024);
+
+        lib = new File(temporaryFolder.newFolder("lib"), "lib.js");
+        Files.write("var lib = {};", lib, Charsets.UTF_8);
+    }
+
+    @Test
+    public void serves_static_resources_from_memory() throws Exception {
+        final WebRequest request = new WebRequest(lib.toURI().toURL());
+
+        assertThat(cache.get(request), nullValue());
+        assertThat(cache.put(request, respond(request, 200, "var lib = {};")).getContentAsString(), equalTo("var lib = {};"));
+
+        final WebResponse cachedResponse = cache.get(new WebRequest(lib.toURI().toURL()));
+        assertThat(cachedResponse.getContentAsString(), equalTo("var lib = {};"));
+        assertThat(cachedResponse.getContentType(), equalTo("application/javascript"));
+    }
+
+    @Test
+    public void reads_modified_files_again() throws Exception {
+        final WebRequest request = new WebRequest(lib.toURI().toURL());
+        cache.put(request, respond(request, 200, "var lib = {};"));
+
+        Files.write("var lib = { modified: true };", lib, Charsets.UTF_8);
+
+        assertThat(cache.get(request), nullValue());
+    }
+
+    @Test
+    public void reads_modified_files_with_escaped_paths_again() throws Exception {
+        final File libWithSpace = new File(lib.getParentFile(), "with space/lib.js");
+        Files.createParentDirs(libWithSpace);
+        Files.write("var lib = {};", libWithSpace, Charsets.UTF_8);
+
+        final WebRequest request = new WebRequest(libWithSpace.toURI().toURL());
+        cache.put(request, respond(request, 200, "var lib = {};"));
+        assertThat(cache.get(request).getContentAsString(), equalTo("var lib = {};"));
+
+        Files.write("var lib = { modified: true };", libWithSpace, Charsets.UTF_8);
+
+        assertThat(cache.get(request), nullValue());
+    }
+
+    @Test
+    public void does_not_cache_other_resources() throws Exception {
+        final File test = temporaryFolder.newFile("test.js");
+        final WebRequest request = new WebRequest(test.toURI().toURL());
+
+        cache.put(request, respond(request, 200, ""));
+
+        assertThat(cache.get(request), nullValue());
+    }
+
+    @Test
+    public void does_not_cache_failed_responses() throws Exception {
+        final WebRequest request = new WebRequest(new File(lib.getParentFile(), "missing.js").toURI().toURL());
+
+        cache.put(request, respond(request, 404, "Not Found"));
+
+        assertThat(cache.get(request), nullValue());
+    }
+
+    private static WebResponse respond(final WebRequest request, final int statusCode, final String body) {
+        final WebResponseData data = new WebResponseData(body.getBytes(Charsets.UTF_8), statusCode, "",
+                Collections.singletonList(new NameValuePair("Content-Type", "application/javascript")));
+
+        return new WebResponse(data, request, 0);
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.github.timurstrekalov.saga.core.instrumentation;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import org.junit.Test;
+
+import static com.github.timurstrekalov.saga.core.model.LineCoverageRecord.LINE_NO_STATEMENT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CoverageDataConverterTest {
+
+    @Test
+    public void convert_object_counters() throws Exception {
+        final Map<String, int[]> coverageData = CoverageDataConverter.convert(
+                "file:/a.js\to\t2,5,4,0\nfile:/b.js\to\t", Collections.<ScriptData>emptyList());
+
+        final int[] a = coverageData.get("file:/a.js");
+        assertEquals(LINE_NO_STATEMENT, a[1]);
+        assertEquals(5, a[2]);
+        assertEquals(LINE_NO_STATEMENT, a[3]);
+        assertEquals(0, a[4]);
+
+        assertArrayEquals(new int[0], coverageData.get("file:/b.js"));
+    }
+
+    @Test
+    public void convert_array_counters() throws Exception {
+        final ScriptData data = new ScriptData(new URI("file:/a.js"), "a();\n\nb();\n", true);
+        data.addExecutableLine(3);
+        data.addExecutableLine(1);
+        data.addCounter(3);
+        data.addCounter(1);
+
+        final Map<String, int[]> coverageData = CoverageDataConverter.convert(
+                "file:/a.js\ta\t7,12345678901\nfile:/unknown.js\ta\t1", Collections.singletonList(data));
+
+        assertArrayEquals(new int[] { LINE_NO_STATEMENT, Integer.MAX_VALUE, LINE_NO_STATEMENT, 7 }, coverageData.get("file:/a.js"));
+        assertEquals(1, coverageData.size());
+    }
+
+    @Test
+    public void convert_no_coverage_data() throws Exception {
+        assertNull(CoverageDataConverter.convert(null, Collections.<ScriptData>emptyList()));
+        assertEquals(0, CoverageDataConverter.convert("", Collections.<ScriptData>emptyList()).size());
+    }
+
+}
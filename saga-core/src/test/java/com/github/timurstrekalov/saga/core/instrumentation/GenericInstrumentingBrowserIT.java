@@ -0,0 +1,62 @@
+package com.github.timurstrekalov.saga.core.instrumentation;
+
+import java.io.File;
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.FileServer;
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class GenericInstrumentingBrowserIT {
+
+    // the tests would take this long if the long-lived timer on the pages was waited for
+    private static final long BACKGROUND_JAVASCRIPT_TIMEOUT = 20000;
+
+    private FileServer fileServer;
+    private GenericInstrumentingBrowser browser;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        fileServer = new FileServer(new File(getClass().getResource("/completion").toURI()).getAbsolutePath());
+        baseUrl = "http://localhost:" + fileServer.start() + "/";
+
+        final InstanceFieldPerPropertyConfig config = new InstanceFieldPerPropertyConfig();
+        config.setBackgroundJavaScriptTimeout(BACKGROUND_JAVASCRIPT_TIMEOUT);
+
+        browser = new GenericInstrumentingBrowser(config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        browser.quit();
+        fileServer.stop();
+    }
+
+    @Test
+    public void get_returns_as_soon_as_qunit_is_done() throws Exception {
+        assertReturnsBeforeTimeout("QUnitTest.html");
+    }
+
+    @Test
+    public void get_returns_as_soon_as_a_reporter_that_could_not_be_hooked_into_is_done() throws Exception {
+        assertReturnsBeforeTimeout("LateReporterTest.html");
+    }
+
+    private void assertReturnsBeforeTimeout(final String page) throws Exception {
+        final long start = System.currentTimeMillis();
+        browser.get(baseUrl + page);
+
+        assertThat(System.currentTimeMillis() - start, lessThan(BACKGROUND_JAVASCRIPT_TIMEOUT / 2));
+
+        final Map<String, int[]> coverageData = browser.extractCoverageDataVariable();
+        assertThat(coverageData.get(baseUrl + "Spec.js")[7], equalTo(1));
+    }
+
+}
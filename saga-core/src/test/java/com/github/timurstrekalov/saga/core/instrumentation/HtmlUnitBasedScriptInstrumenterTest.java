@@ -1,19 +1,38 @@
 package com.github.timurstrekalov.saga.core.instrumentation;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 import com.gargoylesoftware.htmlunit.javascript.HtmlUnitContextFactory;
+import com.github.timurstrekalov.saga.core.CounterMode;
 import com.github.timurstrekalov.saga.core.Data;
 import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
 import com.github.timurstrekalov.saga.core.model.ScriptData;
 import net.sourceforge.htmlunit.corejs.javascript.Context;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -25,6 +44,9 @@ public class HtmlUnitBasedScriptInstrumenterTest {
 	
     private static final AtomicInteger evalCounter = new AtomicInteger();
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     private HtmlUnitContextFactory factory;
 
@@ -82,4 +104,175 @@ public class HtmlUnitBasedScriptInstrumenterTest {
         verifyClassJsData(sourceName, expectedSourceName);
     }
 
+    @Test
+    public void preProcess_persistent_cache() throws Exception {
+        final String sourceName = "http://localhost:59664/cached.js";
+
+        final InstanceFieldPerPropertyConfig config = new InstanceFieldPerPropertyConfig();
+        config.setCacheInstrumentedCode(false);
+        config.setInstrumentationCacheDir(temporaryFolder.getRoot());
+
+        final ScriptInstrumenter first = new HtmlUnitBasedScriptInstrumenter(config);
+        first.instrument(Data.getClassJsSourceCode(), sourceName, 1);
+
+        assertEquals(1, temporaryFolder.getRoot().list().length);
+
+        final ScriptInstrumenter second = new HtmlUnitBasedScriptInstrumenter(config);
+        second.instrument(Data.getClassJsSourceCode(), sourceName, 1);
+
+        final ScriptData expected = first.getScriptDataList().get(0);
+        final ScriptData actual = second.getScriptDataList().get(0);
+
+        assertEquals(expected.getLineNumbersOfAllStatements(), actual.getLineNumbersOfAllStatements());
+        assertEquals(expected.getInstrumentedSourceCode(), actual.getInstrumentedSourceCode());
+    }
+
+    @Test
+    public void preProcess_array_counters() {
+        final String sourceName = "http://localhost:59664/array.js";
+
+        final InstanceFieldPerPropertyConfig config = new InstanceFieldPerPropertyConfig();
+        config.setCacheInstrumentedCode(false);
+        config.setCounterMode(CounterMode.ARRAY);
+
+        final HtmlUnitBasedScriptInstrumenter instrumenter = new HtmlUnitBasedScriptInstrumenter(config);
+        instrumenter.instrument(Data.getClassJsSourceCode(), sourceName, 1);
+
+        final ScriptData data = instrumenter.getScriptDataList().get(0);
+        assertEquals(114, data.getNumberOfStatements());
+        assertEquals(data.getNumberOfStatements(), data.getNumberOfCounters());
+        assertEquals(5, data.getLineNumberOfCounter(0));
+
+        final String instrumentedCode = data.getInstrumentedSourceCode();
+        assertTrue(instrumentedCode.contains("__saga_coverage_data['" + sourceName + "'][0]++;"));
+        // top-level scripts share the window, so nothing but the coverage variable may be declared
+        assertFalse(instrumentedCode.contains("var __saga_coverage_data_"));
+
+        final int[] coverageData = CoverageDataConverter.convert(sourceName + "\ta\t3,0", instrumenter.getScriptDataList())
+                .get(sourceName);
+
+        assertEquals(3, coverageData[5]);
+        assertEquals(0, coverageData[data.getLineNumberOfCounter(1)]);
+        assertEquals(LineCoverageRecord.LINE_NO_STATEMENT, coverageData[data.getLineNumberOfCounter(2)]);
+    }
+
+    @Test
+    public void preProcess_reinstruments_changed_source() {
+        final String sourceName = "http://localhost:59664/changed.js";
+
+        final ScriptInstrumenter first = new HtmlUnitBasedScriptInstrumenter(new InstanceFieldPerPropertyConfig());
+        first.instrument("var a = 1;", sourceName, 1);
+
+        final ScriptInstrumenter second = new HtmlUnitBasedScriptInstrumenter(new InstanceFieldPerPropertyConfig());
+        second.instrument("var a = 1;\nvar b = 2;", sourceName, 1);
+
+        assertEquals(1, first.getScriptDataList().get(0).getNumberOfStatements());
+        assertEquals(2, second.getScriptDataList().get(0).getNumberOfStatements());
+    }
+
+    @Test
+    public void preProcess_concurrent_single_flight() throws Exception {
+        final String sourceName = "http://localhost:59664/shared.js";
+        final int threadCount = 8;
+
+        final InstrumentationCounters before = HtmlUnitBasedScriptInstrumenter.getCounters().snapshot();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+
+        try {
+            final List<Future<ScriptData>> futures = Lists.newArrayList();
+
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executorService.submit(new Callable<ScriptData>() {
+                    @Override
+                    public ScriptData call() throws Exception {
+                        final ScriptInstrumenter instrumenter = new HtmlUnitBasedScriptInstrumenter(new InstanceFieldPerPropertyConfig());
+                        start.await();
+                        instrumenter.instrument(Data.getClassJsSourceCode(), sourceName, 1);
+                        return instrumenter.getScriptDataList().get(0);
+                    }
+                }));
+            }
+
+            start.countDown();
+
+            final ScriptData first = futures.get(0).get();
+            for (final Future<ScriptData> future : futures) {
+                assertSame(first, future.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final InstrumentationCounters counters = HtmlUnitBasedScriptInstrumenter.getCounters().since(before);
+        assertEquals(1, counters.getParsed());
+        assertEquals(threadCount - 1, counters.getReused());
+    }
+
+    @Test
+    public void preProcess_interrupted_while_waiting_for_another_browser() throws Exception {
+        final String sourceName = "http://localhost:59664/interrupted.js";
+
+        final CountDownLatch instrumenting = new CountDownLatch(1);
+        final CountDownLatch finishInstrumenting = new CountDownLatch(1);
+        final InstanceFieldPerPropertyConfig slowConfig = new InstanceFieldPerPropertyConfig() {
+            @Override
+            public CounterMode getCounterMode() {
+                instrumenting.countDown();
+                Uninterruptibles.awaitUninterruptibly(finishInstrumenting);
+                return super.getCounterMode();
+            }
+        };
+
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final ScriptInstrumenter instrumenter = new HtmlUnitBasedScriptInstrumenter(new InstanceFieldPerPropertyConfig());
+        boolean stillInterrupted = false;
+
+        try {
+            executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    new HtmlUnitBasedScriptInstrumenter(slowConfig).instrument("var a = 1;", sourceName, 1);
+                }
+            });
+
+            instrumenting.await();
+            Thread.currentThread().interrupt();
+
+            instrumenter.instrument("var a = 1;", sourceName, 1);
+            fail("Served the script without waiting for its instrumentation");
+        } catch (final RuntimeException e) {
+            stillInterrupted = Thread.currentThread().isInterrupted();
+        } finally {
+            Thread.interrupted();
+            finishInstrumenting.countDown();
+            executorService.shutdown();
+        }
+
+        assertTrue(stillInterrupted);
+        assertTrue(instrumenter.getScriptDataList().isEmpty());
+    }
+
+    @Test
+    public void records_scripts_again_without_instrumenting_them_again() {
+        final HtmlUnitBasedScriptInstrumenter instrumenter = new HtmlUnitBasedScriptInstrumenter(new InstanceFieldPerPropertyConfig());
+        final ScriptData data = instrumenter.instrumentScript("var a = 1;", "http://localhost/record.js", 1);
+
+        instrumenter.recordScript(data);
+
+        assertEquals(2, instrumenter.getScriptDataList().size());
+        assertSame(data, instrumenter.getScriptDataList().get(1));
+        assertEquals(instrumenter.instrument("var a = 1;", "http://localhost/record.js", 1), data.getInstrumentedSourceCode());
+    }
+
+    @Test
+    public void leaves_ignored_scripts_alone() {
+        final HtmlUnitBasedScriptInstrumenter instrumenter = new HtmlUnitBasedScriptInstrumenter(new InstanceFieldPerPropertyConfig());
+        instrumenter.setIgnorePatterns(Lists.newArrayList(Pattern.compile(".*/ignored\\.js")));
+
+        assertNull(instrumenter.instrumentScript("var a = 1;", "http://localhost/ignored.js", 1));
+        assertEquals("var a = 1;", instrumenter.instrument("var a = 1;", "http://localhost/ignored.js", 1));
+        assertTrue(instrumenter.getScriptDataList().isEmpty());
+    }
+
 }
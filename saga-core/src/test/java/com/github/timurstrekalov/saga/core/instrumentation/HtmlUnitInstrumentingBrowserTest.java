@@ -0,0 +1,66 @@
+package com.github.timurstrekalov.saga.core.instrumentation;
+
+import java.util.Map;
+
+import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class HtmlUnitInstrumentingBrowserTest {
+
+    // the tests would take this long if the long-lived timer on the pages was waited for
+    private static final long BACKGROUND_JAVASCRIPT_TIMEOUT = 20000;
+
+    private HtmlUnitInstrumentingBrowser browser;
+
+    @Before
+    public void setUp() throws Exception {
+        final InstanceFieldPerPropertyConfig config = new InstanceFieldPerPropertyConfig();
+        config.setBackgroundJavaScriptTimeout(BACKGROUND_JAVASCRIPT_TIMEOUT);
+
+        browser = new HtmlUnitInstrumentingBrowser(config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        browser.quit();
+    }
+
+    @Test
+    public void get_returns_as_soon_as_qunit_is_done() throws Exception {
+        assertThat(assertReturnsBeforeTimeout("/completion/QUnitTest.html")[4], equalTo(1));
+    }
+
+    @Test
+    public void get_returns_as_soon_as_mocha_is_done() throws Exception {
+        assertThat(assertReturnsBeforeTimeout("/completion/MochaTest.html")[4], equalTo(1));
+    }
+
+    @Test
+    public void get_returns_once_every_jasmine_reporter_is_done() throws Exception {
+        final int[] specCoverageData = assertReturnsBeforeTimeout("/completion/JasmineTest.html");
+
+        // also called by the reporter added after the completion monitor's
+        assertThat(specCoverageData[4], equalTo(2));
+    }
+
+    private int[] assertReturnsBeforeTimeout(final String page) throws Exception {
+        final long start = System.currentTimeMillis();
+        browser.get(getClass().getResource(page).toURI().toString());
+
+        assertThat(System.currentTimeMillis() - start, lessThan(BACKGROUND_JAVASCRIPT_TIMEOUT / 2));
+
+        final Map<String, int[]> coverageData = browser.extractCoverageDataVariable();
+        final int[] specCoverageData = coverageData.get(getClass().getResource("/completion/Spec.js").toURI().toString());
+
+        // the call to spec()
+        assertThat(specCoverageData[7], equalTo(1));
+        return specCoverageData;
+    }
+
+}
@@ -1,6 +1,10 @@
 package com.github.timurstrekalov.saga.core.instrumentation;
 
 import java.io.File;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
 
 import com.gargoylesoftware.htmlunit.BrowserVersion;
 import com.gargoylesoftware.htmlunit.WebClient;
@@ -8,7 +12,12 @@ import com.github.timurstrekalov.saga.core.FileServer;
 import com.github.timurstrekalov.saga.core.webdriver.WebDriverUtils;
 import com.github.timurstrekalov.saga.core.cfg.InstanceFieldPerPropertyConfig;
 import com.github.timurstrekalov.saga.core.htmlunit.WebClientFactory;
+import com.github.timurstrekalov.saga.core.metrics.Metrics;
+import com.github.timurstrekalov.saga.core.metrics.MetricsRecorder;
 import com.github.timurstrekalov.saga.core.server.InstrumentingProxyServer;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,8 +29,16 @@ import org.openqa.selenium.remote.BrowserType;
 import org.openqa.selenium.remote.CapabilityType;
 import org.openqa.selenium.remote.DesiredCapabilities;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
 public class InstrumentingProxyServerIT {
 
+    private HtmlUnitBasedScriptInstrumenter instrumenter;
     private InstrumentingProxyServer proxyServer;
     private FileServer fileServer;
     private WebDriver driver;
@@ -33,7 +50,8 @@ public class InstrumentingProxyServerIT {
     public void setUp() throws Exception {
         final InstanceFieldPerPropertyConfig config = new InstanceFieldPerPropertyConfig();
 
-        proxyServer = new InstrumentingProxyServer(new HtmlUnitBasedScriptInstrumenter(config));
+        instrumenter = new HtmlUnitBasedScriptInstrumenter(config);
+        proxyServer = new InstrumentingProxyServer(instrumenter);
         fileServer = new FileServer(new File(getClass().getResource("/tests").toURI()).getAbsolutePath());
 
         proxyServerPort = proxyServer.start();
@@ -74,4 +92,55 @@ public class InstrumentingProxyServerIT {
         WebDriverUtils.waitForWindowJavaScriptVariableToBePresent((JavascriptExecutor) driver, ScriptInstrumenter.COVERAGE_VARIABLE_NAME);
     }
 
+    @Test
+    public void instrumented_scripts_are_cached_and_revalidated() throws Exception {
+        final Metrics metrics = MetricsRecorder.startRun();
+
+        final HttpURLConnection first = openThroughProxy("/Class.js", null);
+        final String eTag = first.getHeaderField("ETag");
+
+        assertThat(first.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(eTag, notNullValue());
+        assertThat(first.getHeaderField("Cache-Control"), equalTo("no-cache"));
+        assertThat(first.getHeaderField("Expires"), nullValue());
+        assertThat(read(first), containsString(ScriptInstrumenter.COVERAGE_VARIABLE_NAME));
+
+        // revalidated with the file server, which only answers with a 304
+        final HttpURLConnection second = openThroughProxy("/Class.js", null);
+        assertThat(second.getResponseCode(), equalTo(HttpURLConnection.HTTP_OK));
+        assertThat(second.getHeaderField("ETag"), equalTo(eTag));
+        assertThat(second.getContentType(), equalTo(first.getContentType()));
+        assertThat(read(second), containsString(ScriptInstrumenter.COVERAGE_VARIABLE_NAME));
+
+        final HttpURLConnection conditional = openThroughProxy("/Class.js", eTag);
+        assertThat(conditional.getResponseCode(), equalTo(HttpURLConnection.HTTP_NOT_MODIFIED));
+
+        assertThat(metrics.getCounters().get(MetricsRecorder.INSTRUMENTED_RESPONSE_CACHE_HITS), equalTo(2L));
+
+        // every response is known to have loaded the script, even the ones that didn't instrument it
+        assertThat(instrumenter.getScriptDataList().size(), equalTo(3));
+        assertThat(instrumenter.getScriptDataList().get(2), sameInstance(instrumenter.getScriptDataList().get(0)));
+    }
+
+    private HttpURLConnection openThroughProxy(final String path, final String ifNoneMatch) throws Exception {
+        final java.net.Proxy proxy = new java.net.Proxy(java.net.Proxy.Type.HTTP, new InetSocketAddress("localhost", proxyServerPort));
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + fileServerPort + path).openConnection(proxy);
+
+        connection.setUseCaches(false);
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+
+        return connection;
+    }
+
+    private static String read(final HttpURLConnection connection) throws Exception {
+        final InputStream in = connection.getInputStream();
+        try {
+            return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        } finally {
+            Closeables.close(in, true);
+        }
+    }
+
 }
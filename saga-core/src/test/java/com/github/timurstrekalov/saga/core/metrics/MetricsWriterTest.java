@@ -0,0 +1,59 @@
+package com.github.timurstrekalov.saga.core.metrics;
+
+import java.util.SortedMap;
+
+import com.google.common.collect.ImmutableSortedMap;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class MetricsWriterTest {
+
+    @Test
+    public void toJson_includes_totals_and_tests() throws Exception {
+        final Metrics runMetrics = new Metrics();
+        runMetrics.recordTime(MetricsRecorder.PAGE_LOAD, 2000000);
+        runMetrics.recordTime(MetricsRecorder.PAGE_LOAD, 3000000);
+        runMetrics.increment(MetricsRecorder.INSTRUMENTATION_CACHE_HITS, 4);
+
+        final Metrics testMetrics = new Metrics();
+        testMetrics.recordTime(MetricsRecorder.PAGE_LOAD, 3000000);
+
+        final SortedMap<String, Metrics> tests = ImmutableSortedMap.of("pkg/\"Quoted\"Test.html", testMetrics);
+
+        assertThat(MetricsWriter.toJson(runMetrics, tests), equalTo("{\n"
+                + "  \"phases\": {\n"
+                + "    \"page_load\": {\"count\": 2, \"totalMillis\": 5.000, \"maxMillis\": 3.000}\n"
+                + "  },\n"
+                + "  \"counters\": {\n"
+                + "    \"instrumentation_cache_hits\": 4\n"
+                + "  },\n"
+                + "  \"tests\": {\n"
+                + "    \"pkg/\\\"Quoted\\\"Test.html\": {\n"
+                + "      \"phases\": {\n"
+                + "        \"page_load\": {\"count\": 1, \"totalMillis\": 3.000, \"maxMillis\": 3.000}\n"
+                + "      },\n"
+                + "      \"counters\": {}\n"
+                + "    }\n"
+                + "  }\n"
+                + "}\n"));
+    }
+
+    @Test
+    public void toPrometheus_exposes_phases_and_counters() throws Exception {
+        final Metrics runMetrics = new Metrics();
+        runMetrics.recordTime(MetricsRecorder.REPORT_PREFIX + "html", 1500000000L);
+        runMetrics.increment(MetricsRecorder.INSTRUMENTATION_CACHE_MISSES, 7);
+
+        final String prometheus = MetricsWriter.toPrometheus(runMetrics);
+
+        assertThat(prometheus, containsString("# TYPE saga_phase_seconds_total counter\n"
+                + "saga_phase_seconds_total{phase=\"report_html\"} 1.500000\n"));
+        assertThat(prometheus, containsString("saga_phase_count_total{phase=\"report_html\"} 1\n"));
+        assertThat(prometheus, containsString("# TYPE saga_instrumentation_cache_misses_total counter\n"
+                + "saga_instrumentation_cache_misses_total 7\n"));
+    }
+
+}
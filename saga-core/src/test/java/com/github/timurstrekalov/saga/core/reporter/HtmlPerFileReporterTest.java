@@ -0,0 +1,116 @@
+package com.github.timurstrekalov.saga.core.reporter;
+
+import java.io.File;
+import java.net.URI;
+
+import com.github.timurstrekalov.saga.core.Order;
+import com.github.timurstrekalov.saga.core.SortBy;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class HtmlPerFileReporterTest {
+
+    private static final String UNCHANGED = "// not written again";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private URI baseUri;
+    private File outputDir;
+    private File filesDir;
+
+    @Before
+    public void setUp() throws Exception {
+        baseUri = temporaryFolder.newFolder("src").toURI();
+        outputDir = temporaryFolder.newFolder("target");
+        filesDir = new File(outputDir, "total-files");
+    }
+
+    @Test
+    public void writes_index_and_a_file_per_script() throws Exception {
+        final ScriptCoverageStatistics a = newStats("a.js", 1);
+        final ScriptCoverageStatistics b = newStats("b.js", 0);
+
+        writeReport(a, b);
+
+        final String index = Files.toString(new File(outputDir, "total-index.html"), Charsets.UTF_8);
+        assertThat(index, containsString("__src_" + a.getId()));
+        assertThat(index, containsString("__src_" + b.getId()));
+        assertThat(index, not(containsString("if (a &lt; b)")));
+
+        assertThat(readFile(a), equalTo("__coverage_fileLoaded('" + a.getId() + "',[[1,'if (a &lt; b) {'],[-1,'}']]);\n"));
+        assertThat(readFile(b), containsString("[[0,"));
+    }
+
+    @Test
+    public void only_writes_files_whose_coverage_changed() throws Exception {
+        writeReport(newStats("a.js", 1), newStats("b.js", 1));
+
+        final ScriptCoverageStatistics a = newStats("a.js", 1);
+        final ScriptCoverageStatistics b = newStats("b.js", 2);
+
+        Files.write(UNCHANGED, file(a), Charsets.UTF_8);
+        Files.write(UNCHANGED, file(b), Charsets.UTF_8);
+
+        writeReport(a, b);
+
+        assertThat(readFile(a), equalTo(UNCHANGED));
+        assertThat(readFile(b), containsString("[[2,"));
+    }
+
+    @Test
+    public void deletes_files_of_scripts_no_longer_covered() throws Exception {
+        final ScriptCoverageStatistics a = newStats("a.js", 1);
+        final ScriptCoverageStatistics b = newStats("b.js", 1);
+
+        writeReport(a, b);
+        assertTrue(file(b).isFile());
+
+        writeReport(a);
+
+        assertTrue(file(a).isFile());
+        assertFalse(file(b).isFile());
+    }
+
+    private void writeReport(final ScriptCoverageStatistics... fileStats) throws Exception {
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(baseUri.resolve("total"), "Total");
+        runStats.setSortBy(SortBy.FILE);
+        runStats.setOrder(Order.ASC);
+
+        for (final ScriptCoverageStatistics stats : fileStats) {
+            runStats.add(stats);
+        }
+
+        new HtmlPerFileReporter().writeReport(baseUri, outputDir, runStats);
+    }
+
+    private ScriptCoverageStatistics newStats(final String fileName, final int timesExecuted) {
+        return new ScriptCoverageStatistics(baseUri, baseUri.resolve(fileName), ImmutableList.of(
+                new LineCoverageRecord(1, timesExecuted, "if (a < b) {"),
+                new LineCoverageRecord(2, LineCoverageRecord.LINE_NO_STATEMENT, "}")), true);
+    }
+
+    private File file(final ScriptCoverageStatistics stats) {
+        return new File(filesDir, stats.getId() + ".js");
+    }
+
+    private String readFile(final ScriptCoverageStatistics stats) throws Exception {
+        return Files.toString(file(stats), Charsets.UTF_8);
+    }
+
+}
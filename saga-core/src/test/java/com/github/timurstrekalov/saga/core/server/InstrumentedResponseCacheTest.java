@@ -0,0 +1,104 @@
+package com.github.timurstrekalov.saga.core.server;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+
+import com.github.timurstrekalov.saga.core.model.ScriptData;
+import com.github.timurstrekalov.saga.core.server.InstrumentedResponseCache.InstrumentedResponse;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class InstrumentedResponseCacheTest {
+
+    private static final Charset UTF_8 = Charsets.UTF_8;
+
+    @Test
+    public void trusts_strong_etags_only() throws Exception {
+        final byte[] body = "var a = 1;".getBytes(UTF_8);
+
+        assertThat(InstrumentedResponseCache.getValidator("\"abc\"", body), equalTo("\"abc\""));
+        assertThat(InstrumentedResponseCache.getValidator("W/\"abc\"", body), equalTo(InstrumentedResponseCache.getValidator(null, body)));
+        assertThat(InstrumentedResponseCache.getValidator(null, body),
+                not(equalTo(InstrumentedResponseCache.getValidator(null, "var a = 2;".getBytes(UTF_8)))));
+    }
+
+    @Test
+    public void keeps_the_latest_response_per_uri() throws Exception {
+        final String uri = "http://localhost/lookup.js";
+        final InstrumentedResponse response = put(uri, "v1", "var a;", "cov(1); var a;");
+
+        assertThat(InstrumentedResponseCache.get(uri), sameInstance(response));
+        assertThat(InstrumentedResponseCache.get("http://localhost/other.js"), nullValue());
+
+        final InstrumentedResponse changedResponse = put(uri, "v2", "var b;", "cov(1); var b;");
+        assertThat(InstrumentedResponseCache.get(uri), sameInstance(changedResponse));
+    }
+
+    @Test
+    public void tells_whether_it_was_made_from_an_upstream_response() throws Exception {
+        final InstrumentedResponse response = put("http://localhost/validator.js", "v1", "var a;", "cov(1); var a;");
+
+        assertTrue(response.isFor("v1", UTF_8));
+        assertFalse(response.isFor("v2", UTF_8));
+        assertFalse(response.isFor("v1", Charsets.ISO_8859_1));
+    }
+
+    @Test
+    public void keeps_the_upstream_validators_for_revalidation() throws Exception {
+        final InstrumentedResponse response = InstrumentedResponseCache.put("http://localhost/revalidate.js", "v1",
+                "W/\"abc\"", "Thu, 01 Jan 2015 00:00:00 GMT", "text/javascript", UTF_8, newScriptData("var a;", "cov(1); var a;"));
+
+        assertThat(response.getUpstreamETag(), equalTo("W/\"abc\""));
+        assertThat(response.getUpstreamLastModified(), equalTo("Thu, 01 Jan 2015 00:00:00 GMT"));
+        assertThat(response.getContentType(), equalTo("text/javascript"));
+    }
+
+    @Test
+    public void serves_the_instrumented_code_plain_and_gzipped() throws Exception {
+        final InstrumentedResponse response = put("http://localhost/gzip.js", "v1", "var ä;", "cov(1); var ä;");
+
+        assertThat(new String(response.getBytes(), UTF_8), equalTo("cov(1); var ä;"));
+
+        final byte[] gzippedBytes = response.getGzippedBytes();
+        assertThat(response.getGzippedBytes(), sameInstance(gzippedBytes));
+        assertThat(ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzippedBytes))), equalTo(response.getBytes()));
+    }
+
+    @Test
+    public void matches_if_none_match_against_its_etag() throws Exception {
+        final InstrumentedResponse response = put("http://localhost/etag.js", "v1", "var a;", "cov(1); var a;");
+        final String eTag = response.getETag();
+
+        assertTrue(eTag.startsWith("W/\""));
+        assertTrue(response.matches(eTag));
+        assertTrue(response.matches("\"other\", " + eTag));
+        assertTrue(response.matches("*"));
+
+        assertFalse(response.matches(null));
+        assertFalse(response.matches("\"other\""));
+        assertFalse(response.matches(put("http://localhost/etag.js", "v2", "var b;", "cov(1); var b;").getETag()));
+    }
+
+    private static InstrumentedResponse put(final String uri, final String validator, final String sourceCode,
+            final String instrumentedSourceCode) {
+        return InstrumentedResponseCache.put(uri, validator, null, null, null, UTF_8, newScriptData(sourceCode, instrumentedSourceCode));
+    }
+
+    private static ScriptData newScriptData(final String sourceCode, final String instrumentedSourceCode) {
+        final ScriptData data = new ScriptData(URI.create("http://localhost/script.js"), sourceCode, true);
+        data.setInstrumentedSourceCode(instrumentedSourceCode);
+        return data;
+    }
+
+}
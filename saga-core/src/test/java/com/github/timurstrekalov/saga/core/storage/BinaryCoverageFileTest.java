@@ -0,0 +1,125 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import com.github.timurstrekalov.saga.core.Order;
+import com.github.timurstrekalov.saga.core.SortBy;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class BinaryCoverageFileTest {
+
+    private static final URI BASE_URI = URI.create("http://localhost:8234/");
+    private static final URI TEST = BASE_URI.resolve("total");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile("total-coverage.bin");
+    }
+
+    @Test
+    public void roundtrip() throws Exception {
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(TEST, "Total");
+        sortByFile(runStats);
+        runStats.add(newStats("b.js", "var b;", -1, 200, 0));
+        runStats.add(newStats("a.js", "var \u00e4;", 1, -1, 3000000, -1));
+        runStats.add(newStats("empty.js", ""));
+
+        new BinaryCoverageWriter().write(runStats, file);
+
+        final BinaryCoverageFile coverageFile = BinaryCoverageFile.open(file);
+        try {
+            assertThat(coverageFile.getTest(), equalTo(TEST));
+            assertThat(coverageFile.getTitle(), equalTo("Total"));
+            assertThat(coverageFile.getFileUris(), equalTo((List<URI>) ImmutableList.of(
+                    BASE_URI.resolve("a.js"), BASE_URI.resolve("b.js"), BASE_URI.resolve("empty.js"))));
+
+            final TestRunCoverageStatistics readStats = coverageFile.toTestRunCoverageStatistics();
+            sortByFile(readStats);
+
+            assertThat(readStats.title, equalTo(runStats.title));
+            assertThat(readStats.getTotalStatements(), equalTo(runStats.getTotalStatements()));
+            assertThat(readStats.getTotalExecuted(), equalTo(runStats.getTotalExecuted()));
+
+            for (int i = 0; i < runStats.getFileStats().size(); i++) {
+                final ScriptCoverageStatistics expected = runStats.getFileStats().get(i);
+                final ScriptCoverageStatistics actual = readStats.getFileStats().get(i);
+
+                assertThat(actual.getFileUri(), equalTo(expected.getFileUri()));
+                assertThat(actual.getRelativeName(), equalTo(expected.getRelativeName()));
+                assertThat(toStrings(actual.getLineCoverageRecords()), equalTo(toStrings(expected.getLineCoverageRecords())));
+            }
+        } finally {
+            coverageFile.close();
+        }
+    }
+
+    @Test
+    public void reads_a_single_file() throws Exception {
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(TEST, "Total");
+        sortByFile(runStats);
+        runStats.add(newStats("a.js", "a", 1, -1, 0));
+        runStats.add(newStats("b.js", "b", -1, 7));
+
+        new BinaryCoverageWriter().write(runStats, file);
+
+        final BinaryCoverageFile coverageFile = BinaryCoverageFile.open(file);
+        try {
+            assertArrayEquals(new int[] {-1, 7}, coverageFile.getTimesExecuted(BASE_URI.resolve("b.js")));
+            assertArrayEquals(BinaryCoverageWriter.contentHash(newStats("b.js", "b", 0, 0).getSourceLines()),
+                    coverageFile.getContentHash(BASE_URI.resolve("b.js")));
+        } finally {
+            coverageFile.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejects_other_files() throws Exception {
+        Files.write("SF:file.js\nend_of_record\n", file, Charsets.UTF_8);
+        BinaryCoverageFile.open(file);
+    }
+
+    private static ScriptCoverageStatistics newStats(final String fileName, final String linePrefix, final int... timesExecuted) {
+        final List<LineCoverageRecord> records = Lists.newArrayList();
+        for (int i = 0; i < timesExecuted.length; i++) {
+            records.add(new LineCoverageRecord(i + 1, timesExecuted[i], linePrefix + " // line " + (i + 1)));
+        }
+
+        return new ScriptCoverageStatistics(BASE_URI, BASE_URI.resolve(fileName), records, true);
+    }
+
+    private static void sortByFile(final TestRunCoverageStatistics runStats) {
+        runStats.setSortBy(SortBy.FILE);
+        runStats.setOrder(Order.ASC);
+    }
+
+    private static List<String> toStrings(final List<LineCoverageRecord> records) {
+        final List<String> strings = Lists.newArrayList();
+        for (final LineCoverageRecord record : records) {
+            strings.add(record.toString());
+        }
+        return strings;
+    }
+
+}
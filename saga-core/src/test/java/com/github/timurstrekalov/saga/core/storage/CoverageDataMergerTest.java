@@ -0,0 +1,92 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+import com.github.timurstrekalov.saga.core.Order;
+import com.github.timurstrekalov.saga.core.SortBy;
+import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CoverageDataMergerTest {
+
+    private static final URI BASE_URI = URI.create("http://localhost:8234/");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void adds_up_shards() throws Exception {
+        final File shard1 = writeShard("shard1-coverage.bin", "var a;", 1);
+        final File shard2 = writeShard("shard2-coverage.bin", "var a;", 2);
+
+        final TestRunCoverageStatistics total = newRunStats();
+        final CoverageDataMerger merger = new CoverageDataMerger(BASE_URI, Charsets.UTF_8);
+        merger.merge(shard1, total);
+        merger.merge(shard2, total);
+
+        assertThat(total.getFileStats().get(0).getLineCoverageRecords().get(0).getTimesExecuted(), equalTo(3));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejects_shards_with_different_sources() throws Exception {
+        final File shard1 = writeShard("shard1-coverage.bin", "var a;", 1);
+        final File shard2 = writeShard("shard2-coverage.bin", "var a = 1;", 1);
+
+        final TestRunCoverageStatistics total = newRunStats();
+        final CoverageDataMerger merger = new CoverageDataMerger(BASE_URI, Charsets.UTF_8);
+        merger.merge(shard1, total);
+        merger.merge(shard2, total);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejects_raw_shards() throws Exception {
+        final File shard1 = writeShard("shard1-coverage.bin", "var a;", 1);
+        final File shard2 = temporaryFolder.newFile("shard2-coverage.dat");
+        Files.write("SF:a.js\nDA:1,1\nend_of_record\n", shard2, Charsets.UTF_8);
+
+        final CoverageDataMerger merger = new CoverageDataMerger(BASE_URI, Charsets.UTF_8);
+        merger.merge(shard1, newRunStats());
+        merger.merge(shard2, newRunStats());
+    }
+
+    @Test(expected = IOException.class)
+    public void does_not_merge_anything_into_raw_coverage_data() throws Exception {
+        final File raw = temporaryFolder.newFile("previous-coverage.dat");
+        Files.write("", raw, Charsets.UTF_8);
+        final File shard = writeShard("shard-coverage.bin", "var a;", 1);
+
+        final CoverageDataMerger merger = new CoverageDataMerger(temporaryFolder.getRoot().toURI(), Charsets.UTF_8);
+        merger.merge(raw, newRunStats());
+        merger.merge(shard, newRunStats());
+    }
+
+    private File writeShard(final String fileName, final String source, final int timesExecuted) throws IOException {
+        final TestRunCoverageStatistics runStats = newRunStats();
+        runStats.add(new ScriptCoverageStatistics(BASE_URI, BASE_URI.resolve("a.js"),
+                ImmutableList.of(new LineCoverageRecord(1, timesExecuted, source)), true));
+
+        final File file = temporaryFolder.newFile(fileName);
+        new BinaryCoverageWriter().write(runStats, file);
+        return file;
+    }
+
+    private static TestRunCoverageStatistics newRunStats() {
+        final TestRunCoverageStatistics runStats = new TestRunCoverageStatistics(BASE_URI.resolve("total"), "Total");
+        runStats.setSortBy(SortBy.FILE);
+        runStats.setOrder(Order.ASC);
+        return runStats;
+    }
+
+}
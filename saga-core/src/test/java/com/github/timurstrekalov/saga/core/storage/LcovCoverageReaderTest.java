@@ -0,0 +1,72 @@
+package com.github.timurstrekalov.saga.core.storage;
+
+import java.io.File;
+import java.util.List;
+
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LcovCoverageReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File baseDir;
+    private LcovCoverageReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = temporaryFolder.newFolder("src");
+        reader = new LcovCoverageReader(baseDir.toURI(), Charsets.UTF_8);
+
+        Files.write("var a = 1;\n\nif (a > 1) {\n    a--;\n}\n", new File(baseDir, "a.js"), Charsets.UTF_8);
+    }
+
+    @Test
+    public void reads_the_counts_of_lines_with_statements() throws Exception {
+        final List<ScriptCoverageStatistics> fileStats = read("SF:a.js\nDA:1,3\nDA:3,3\nDA:4,0\nend_of_record\n");
+
+        assertThat(fileStats.size(), equalTo(1));
+        assertThat(fileStats.get(0).getStatements(), equalTo(3));
+        assertThat(fileStats.get(0).getExecuted(), equalTo(2));
+        assertThat(fileStats.get(0).isSeparateFile(), equalTo(true));
+    }
+
+    @Test
+    public void skips_files_with_counts_past_the_end_of_their_source() throws Exception {
+        assertThat(read("SF:a.js\nDA:1,3\nDA:7,1\nend_of_record\n").size(), equalTo(0));
+    }
+
+    @Test
+    public void skips_files_with_counts_for_blank_lines() throws Exception {
+        assertThat(read("SF:a.js\nDA:1,3\nDA:2,1\nend_of_record\n").size(), equalTo(0));
+    }
+
+    @Test
+    public void skips_files_without_a_source() throws Exception {
+        assertThat(read("SF:deleted.js\nDA:1,1\nend_of_record\n").size(), equalTo(0));
+    }
+
+    @Test
+    public void tells_evals_apart_from_files() throws Exception {
+        final List<ScriptCoverageStatistics> fileStats = read("SF:a.js#3(eval)(0)\nDA:1,1\nend_of_record\n");
+
+        assertThat(fileStats.size(), equalTo(1));
+        assertThat(fileStats.get(0).isSeparateFile(), equalTo(false));
+    }
+
+    private List<ScriptCoverageStatistics> read(final String coverageData) throws Exception {
+        final File file = temporaryFolder.newFile();
+        Files.write(coverageData, file, Charsets.UTF_8);
+        return reader.read(file);
+    }
+
+}
@@ -2,9 +2,17 @@ package com.github.timurstrekalov.saga.core.util;
 
 import java.io.File;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import com.github.timurstrekalov.saga.core.model.ScriptCoverageAccumulator;
 import com.github.timurstrekalov.saga.core.model.ScriptCoverageStatistics;
+import com.github.timurstrekalov.saga.core.model.TestRunCoverageStatistics;
 import com.github.timurstrekalov.saga.core.model.LineCoverageRecord;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import org.junit.Test;
 
@@ -26,4 +34,71 @@ public class ScriptCoverageStatisticsTest {
                 Lists.<LineCoverageRecord>newLinkedList(), true).getParentName().replace('\\', '/'));
     }
 
+    @Test
+    public void accumulator_adds_up_executions() {
+        final ScriptCoverageAccumulator accumulator = new ScriptCoverageAccumulator(newStats(-1, 0, 2));
+        accumulator.add(newStats(-1, 1, 3));
+        accumulator.add(newStats(-1, 0, 1));
+
+        final ScriptCoverageStatistics stats = accumulator.toStatistics();
+
+        assertEquals(-1, stats.getLineCoverageRecords().get(0).getTimesExecuted());
+        assertEquals(1, stats.getLineCoverageRecords().get(1).getTimesExecuted());
+        assertEquals(6, stats.getLineCoverageRecords().get(2).getTimesExecuted());
+        assertEquals(2, stats.getStatements());
+        assertEquals(2, stats.getExecuted());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void accumulator_rejects_different_sources() {
+        final ScriptCoverageAccumulator accumulator = new ScriptCoverageAccumulator(newStats(-1, 0, 2));
+        accumulator.add(new ScriptCoverageStatistics(URI.create("http://localhost"), URI.create("http://localhost/file.js"),
+                ImmutableList.of(
+                        new LineCoverageRecord(1, -1, "// changed"),
+                        new LineCoverageRecord(2, 0, "line 2"),
+                        new LineCoverageRecord(3, 0, "line 3")), true));
+    }
+
+    @Test
+    public void threadSafe_total_adds_up_concurrent_runs() throws Exception {
+        final TestRunCoverageStatistics total = TestRunCoverageStatistics.newThreadSafeInstance(URI.create("total"), "Total");
+        final int runs = 400;
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<Void>> futures = Lists.newArrayList();
+
+            for (int i = 0; i < runs; i++) {
+                futures.add(executorService.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        total.add(newStats(-1, 0, 2));
+                        return null;
+                    }
+                }));
+            }
+
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final List<LineCoverageRecord> records = total.getFileStats().get(0).getLineCoverageRecords();
+
+        assertEquals(-1, records.get(0).getTimesExecuted());
+        assertEquals(0, records.get(1).getTimesExecuted());
+        assertEquals(2 * runs, records.get(2).getTimesExecuted());
+    }
+
+    private static ScriptCoverageStatistics newStats(final int... timesExecuted) {
+        final List<LineCoverageRecord> records = Lists.newArrayList();
+        for (int i = 0; i < timesExecuted.length; i++) {
+            records.add(new LineCoverageRecord(i + 1, timesExecuted[i], "line " + (i + 1)));
+        }
+
+        return new ScriptCoverageStatistics(URI.create("http://localhost"), URI.create("http://localhost/file.js"), records, true);
+    }
+
 }
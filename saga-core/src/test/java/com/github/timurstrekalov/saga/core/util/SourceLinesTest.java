@@ -0,0 +1,53 @@
+package com.github.timurstrekalov.saga.core.util;
+
+import java.util.List;
+import java.util.Scanner;
+
+import com.github.timurstrekalov.saga.core.Data;
+import com.github.timurstrekalov.saga.core.model.SourceLines;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SourceLinesTest {
+
+    @Test
+    public void of_splits_lines_like_scanner() {
+        assertSameLinesAsScanner("");
+        assertSameLinesAsScanner("   \n\t\n");
+        assertSameLinesAsScanner("var a;");
+        assertSameLinesAsScanner("var a;\nvar b;\n");
+        assertSameLinesAsScanner("\n\n  var a;\r\n\r\nvar b;\rvar c;\n   \n\n");
+        assertSameLinesAsScanner("var a; var b;\n  \t");
+        assertSameLinesAsScanner(Data.getClassJsSourceCode());
+    }
+
+    @Test
+    public void hasSameLines() {
+        assertTrue(SourceLines.of("a\nb\n").hasSameLines(SourceLines.of("a\r\nb")));
+        assertFalse(SourceLines.of("a\nb\n").hasSameLines(SourceLines.of("a\nc")));
+        assertFalse(SourceLines.of("a\nb\n").hasSameLines(SourceLines.of("a\nb\nc")));
+    }
+
+    private static void assertSameLinesAsScanner(final String source) {
+        final List<String> expected = Lists.newArrayList();
+
+        final Scanner in = new Scanner(source);
+        while (in.hasNext()) {
+            expected.add(in.nextLine());
+        }
+
+        final SourceLines sourceLines = SourceLines.of(source);
+        final List<String> actual = Lists.newArrayList();
+
+        for (int i = 0; i < sourceLines.size(); i++) {
+            actual.add(sourceLines.get(i));
+        }
+
+        assertEquals(expected, actual);
+    }
+
+}
@@ -0,0 +1,23 @@
+// just enough of Jasmine 2 for the completion monitor to hook into, telling its reporters in the order they were added
+// that it's done a little after the page loads
+var jasmine = (function () {
+    var reporters = [];
+
+    setTimeout(function () {
+        for (var i = 0; i < reporters.length; i++) {
+            reporters[i].jasmineDone();
+        }
+    }, 50);
+
+    var env = {
+        addReporter: function (reporter) {
+            reporters.push(reporter);
+        }
+    };
+
+    return {
+        getEnv: function () {
+            return env;
+        }
+    };
+})();
@@ -0,0 +1,20 @@
+// just enough of Mocha for the completion monitor to hook into, finishing a little after it's run
+var mocha = {
+    run: function () {
+        var listeners = [];
+
+        setTimeout(function () {
+            for (var i = 0; i < listeners.length; i++) {
+                listeners[i]();
+            }
+        }, 50);
+
+        return {
+            on: function (event, listener) {
+                if (event === 'end') {
+                    listeners.push(listener);
+                }
+            }
+        };
+    }
+};
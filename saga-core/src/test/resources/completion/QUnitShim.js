@@ -0,0 +1,16 @@
+// just enough of QUnit for the completion monitor to hook into, finishing a little after the page loads
+var QUnit = (function () {
+    var callbacks = [];
+
+    setTimeout(function () {
+        for (var i = 0; i < callbacks.length; i++) {
+            callbacks[i]();
+        }
+    }, 50);
+
+    return {
+        done: function (callback) {
+            callbacks.push(callback);
+        }
+    };
+})();
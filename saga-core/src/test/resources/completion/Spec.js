@@ -0,0 +1,11 @@
+var specsRun = 0;
+
+function spec() {
+    specsRun++;
+}
+
+spec();
+
+// keeps background JavaScript running long after the tests are done, like a polling widget would
+setInterval(function () {
+}, 100);
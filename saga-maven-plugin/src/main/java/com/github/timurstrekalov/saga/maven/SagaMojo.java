@@ -60,6 +60,36 @@ public class SagaMojo extends AbstractMojo {
     @Parameter
     private String[] noInstrumentPatterns;
 
+    /**
+     * A list of regular expressions to match the URLs of resources that don't change during a run (e.g. libraries,
+     * fixtures and stylesheets). These are only read once and then served from memory to every test. Local files are
+     * still checked for modifications.
+     */
+    @Parameter
+    private String[] staticResourcePatterns;
+
+    /**
+     * The maximum total size of the static resources to keep in memory, in bytes. The least recently used ones are
+     * evicted past it.
+     */
+    @Parameter(defaultValue = "67108864")
+    private Long staticResourceCacheSize;
+
+    /**
+     * A list of regular expressions to match the URLs of requests (e.g. to analytics services) that the browser answers
+     * with an empty response right away.
+     */
+    @Parameter
+    private String[] blockedUrlPatterns;
+
+    /**
+     * Whether the HtmlUnit browsers skip the work that doesn't affect coverage: processing CSS, running applets and
+     * loading images, stylesheets, fonts and other resources that aren't scripts. Test pages that rely on styles (e.g.
+     * checking whether an element is visible) need it to be off.
+     */
+    @Parameter(property = "saga.leanBrowser", defaultValue = "false")
+    private Boolean leanBrowser;
+
     /**
      * Whether to cache instrumented source code. It's entirely possible that two tests might load some of the same
      * resources - this would prevent them from being instrumented every time, but rather cache them for the whole
@@ -68,6 +98,21 @@ public class SagaMojo extends AbstractMojo {
     @Parameter(defaultValue = "true")
     private Boolean cacheInstrumentedCode;
 
+    /**
+     * A directory to persist instrumented code in, so that subsequent runs don't have to instrument unchanged files
+     * again. Entries are keyed by the contents of the files, so the directory can safely be shared between builds
+     * (e.g. cached by the CI server). By default nothing is persisted.
+     */
+    @Parameter
+    private File instrumentationCacheDir;
+
+    /**
+     * How instrumented scripts count executed statements, either OBJECT (counters keyed by line number in a shared
+     * object) or ARRAY (a dense array of counters per script, which is cheaper to update in hot loops).
+     */
+    @Parameter(defaultValue = "OBJECT")
+    private String counterMode;
+
     /**
      * One of TOTAL, PER_TEST or BOTH. Pretty self-explanatory.
      */
@@ -80,6 +125,56 @@ public class SagaMojo extends AbstractMojo {
     @Parameter
     private Integer threadCount;
 
+    /**
+     * The number of tests a browser runs before it's quit and replaced with a fresh one. Browsers are reused between
+     * tests up to this number, since starting one often takes longer than running a test.
+     */
+    @Parameter(defaultValue = "50")
+    private Integer maxTestsPerBrowser;
+
+    /**
+     * The percentage of the maximum heap size in use past which browsers are quit after a test instead of being
+     * reused.
+     */
+    @Parameter(defaultValue = "80")
+    private Integer browserRecycleHeapThreshold;
+
+    /**
+     * The file to keep the durations of the tests in, so that the longest tests can be started first on the next run.
+     * Put it outside of the build directory to keep it across clean builds. Defaults to test-durations.properties in
+     * the output directory.
+     */
+    @Parameter
+    private File testDurationHistoryFile;
+
+    /**
+     * The zero-based index of the shard of the tests to run, see shardCount.
+     */
+    @Parameter(property = "saga.shardIndex", defaultValue = "0")
+    private Integer shardIndex;
+
+    /**
+     * The number of shards to split the tests into, e.g. to run them on several machines. Every test always ends up in
+     * the same shard. Each shard writes a BINARY coverage report, which can be merged into the total reports using
+     * coverageDataFiles.
+     */
+    @Parameter(property = "saga.shardCount", defaultValue = "1")
+    private Integer shardCount;
+
+    /**
+     * Only run the tests affected by changes to them or to the scripts they loaded since the previous run, reusing the
+     * stored coverage of the other ones.
+     */
+    @Parameter(property = "saga.incremental", defaultValue = "false")
+    private Boolean incremental;
+
+    /**
+     * The directory to keep the coverage of each test in for incremental runs. Put it outside of the build directory to
+     * keep it across clean builds. Defaults to the incremental directory in the output directory.
+     */
+    @Parameter
+    private File incrementalDataDir;
+
     /**
      * Whether to include inline scripts into instrumentation.
      */
@@ -134,11 +229,24 @@ public class SagaMojo extends AbstractMojo {
      *     <li>CSV</li>
      *     <li>PDF</li>
      *     <li>COBERTURA</li>
+     *     <li>HTML_PER_FILE - an HTML index which loads the coverage of each file separately, for big code bases</li>
+     *     <li>BINARY - compact coverage data for other tools, which can be read back without parsing all of it</li>
      * </ul>
      */
     @Parameter(defaultValue = "HTML, RAW, COBERTURA")
     private String reportFormats;
 
+    /**
+     * A comma-separated list of previously written RAW or BINARY coverage reports. If set, no tests are run and the
+     * total reports are generated from these instead, e.g. to add a report format or sort the reports differently
+     * without running the tests again. The sources of files in RAW reports are read from the base directory. Since RAW
+     * reports don't record the sources they were collected for, sources changed since then generally go unnoticed and
+     * only BINARY reports can be merged, e.g. the ones of the shards of a test run; a RAW report has to be the only one
+     * given.
+     */
+    @Parameter(property = "saga.coverageDataFiles")
+    private String coverageDataFiles;
+
     /**
      * The column to sort by, one of 'file', 'statements', 'executed' or 'coverage'.
      */
@@ -206,15 +314,29 @@ public class SagaMojo extends AbstractMojo {
             config.setExcludes(excludes);
             config.setOutputInstrumentedFiles(outputInstrumentedFiles);
             config.setCacheInstrumentedCode(cacheInstrumentedCode);
+            config.setInstrumentationCacheDir(instrumentationCacheDir);
+            config.setCounterMode(counterMode);
             config.setNoInstrumentPatterns(noInstrumentPatterns);
+            config.setStaticResourcePatterns(staticResourcePatterns);
+            config.setStaticResourceCacheSize(staticResourceCacheSize);
+            config.setBlockedUrlPatterns(blockedUrlPatterns);
+            config.setLeanBrowser(leanBrowser);
             config.setOutputStrategy(outputStrategy);
             config.setThreadCount(threadCount);
+            config.setMaxTestsPerBrowser(maxTestsPerBrowser);
+            config.setBrowserRecycleHeapThreshold(browserRecycleHeapThreshold);
+            config.setTestDurationHistoryFile(testDurationHistoryFile);
+            config.setShardIndex(shardIndex);
+            config.setShardCount(shardCount);
+            config.setIncremental(incremental);
+            config.setIncrementalDataDir(incrementalDataDir);
             config.setIncludeInlineScripts(includeInlineScripts);
             config.setBackgroundJavaScriptTimeout(backgroundJavaScriptTimeout);
             config.setSourcesToPreload(sourcesToPreload);
             config.setSourcesToPreloadEncoding(sourcesToPreloadEncoding);
             config.setBrowserVersion(browserVersion);
             config.setReportFormats(reportFormats);
+            config.setCoverageDataFiles(coverageDataFiles);
             config.setSortBy(sortBy);
             config.setOrder(order);
             config.setWebDriverCapabilities(webDriverCapabilities);
@@ -227,7 +349,11 @@ public class SagaMojo extends AbstractMojo {
             }
             config.setSourceDir(sourceDirs);
 
-            gen.instrumentAndGenerateReports();
+            if (config.getCoverageDataFiles().isEmpty()) {
+                gen.instrumentAndGenerateReports();
+            } else {
+                gen.generateReports();
+            }
         } catch (final IllegalArgumentException e) {
             throw new MojoExecutionException("Caught IllegalArgumentException: illegal parameters?", e);
         } catch (final Exception e) {